@@ -0,0 +1,73 @@
+package com.proto.core.data;
+
+import com.proto.core.event.EventKeyRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of encoding and decoding one quote with the {@link BinaryMarketDataTranslator}.
+ *
+ * Run the allocation profile with: java -jar target/benchmarks.jar BinaryMarketDataTranslatorBenchmark -prof gc
+ *
+ * @author wfrancis
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinaryMarketDataTranslatorBenchmark {
+
+    private BinaryMarketDataTranslator viewTranslator;
+
+    private BinaryMarketDataTranslator pooledTranslator;
+
+    private FXQuote quote;
+
+    private ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        FXQuotePool pool = new FXQuotePool(16);
+        viewTranslator = BinaryMarketDataTranslator.decodingViews(new EventKeyRegistry(),
+                BinaryMarketDataTranslator.DEFAULT_BUFFER_COUNT);
+        pooledTranslator = new BinaryMarketDataTranslator(pool);
+        quote = pool.acquire().set(42, 1.1, 1.2, 1000000L, 2000000L, System.nanoTime());
+        buffer = ByteBuffer.allocateDirect(BinaryMarketDataTranslator.MAX_MESSAGE_LENGTH);
+        viewTranslator.encode(quote, buffer);
+        buffer.flip();
+    }
+
+    @Benchmark
+    public ByteBuffer encode() throws Exception {
+        return viewTranslator.translate(quote);
+    }
+
+    @Benchmark
+    public long decodeView() throws Exception {
+        buffer.position(0);
+        return ((FXQuote) viewTranslator.untranslate(buffer)).getTimeNanos();
+    }
+
+    @Benchmark
+    public void decodePooled(Blackhole blackhole) throws Exception {
+        buffer.position(0);
+        FXQuote decoded = (FXQuote) pooledTranslator.untranslate(buffer);
+        blackhole.consume(decoded.getTimeNanos());
+        decoded.release();
+    }
+}
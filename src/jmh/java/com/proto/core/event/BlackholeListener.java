@@ -0,0 +1,21 @@
+package com.proto.core.event;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * A listener that hands every event to a JMH {@link Blackhole} so delivery cannot be optimised away.
+ *
+ * @author wfrancis
+ */
+class BlackholeListener implements Listener {
+
+    private final Blackhole blackhole;
+
+    BlackholeListener(Blackhole blackhole) {
+        this.blackhole = blackhole;
+    }
+
+    public void consume(EventKey eventKey, Object event) throws Exception {
+        blackhole.consume(event);
+    }
+}
@@ -0,0 +1,158 @@
+package com.proto.core.event;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the full publish path: {@link ChannelManager#consume} on the publishing thread, dispatch on the
+ * manager thread and fan-out to the listeners of the channel.
+ *
+ * Each invocation publishes {@link #BATCH} events round-robin over the keys and waits until the manager thread has
+ * delivered all of them, so the scores are per event and include the dispatch, not only the hand-off.
+ *
+ * Published keys are BENCH.K&lt;i&gt;. Wildcard registrations are BENCH.K&lt;i&gt;&gt;, each matching the keys
+ * whose index starts with i, so more wildcards means more listeners per channel on a subset of the keys.
+ *
+ * Run the allocation profile with: java -jar target/benchmarks.jar ChannelManagerBenchmark -prof gc
+ *
+ * @author wfrancis
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChannelManagerBenchmark {
+
+    /**
+     * Events published per invocation
+     */
+    static final int BATCH = 1024;
+
+    @Param({"simple", "ringbuffer", "sharded"})
+    public String manager;
+
+    @Param({"simple", "counting"})
+    public String channel;
+
+    @Param({"1", "100", "10000"})
+    public int keyCount;
+
+    @Param({"1", "4", "16"})
+    public int listenersPerKey;
+
+    @Param({"0", "10", "100"})
+    public int wildcardCount;
+
+    private ManagedChannelManager channelManager;
+
+    private EventKey[] keys;
+
+    private Object[] events;
+
+    private int next;
+
+    /**
+     * Counts the deliveries of every published event, registered once on every key
+     */
+    private DeliveryCounter counter;
+
+    private long published;
+
+    @Setup(Level.Trial)
+    public void setUp(Blackhole blackhole) throws Exception {
+        EventKeyRegistry registry = new EventKeyRegistry();
+        channelManager = createManager(registry);
+
+        keys = new EventKey[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = registry.intern("BENCH.K" + i);
+        }
+
+        events = new Object[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            events[i] = Integer.valueOf(i);
+        }
+
+        counter = new DeliveryCounter();
+        for (EventKey key : keys) {
+            channelManager.registerListener(key, counter);
+            for (int i = 1; i < listenersPerKey; i++) {
+                channelManager.registerListener(key, new BlackholeListener(blackhole));
+            }
+        }
+        for (int i = 0; i < wildcardCount; i++) {
+            channelManager.registerListener(new StringEventKey("BENCH.K" + i + EventKey.wildChar), new BlackholeListener(blackhole));
+        }
+
+        // create every channel before measuring
+        for (EventKey key : keys) {
+            channelManager.consume(key, events[0]);
+        }
+        published = keyCount;
+        awaitDelivery();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        channelManager.stop();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void publish() throws Exception {
+        int k = next;
+        for (int i = 0; i < BATCH; i++) {
+            channelManager.consume(keys[k], events[i]);
+            if (++k == keys.length) {
+                k = 0;
+            }
+        }
+        next = k;
+        published += BATCH;
+        awaitDelivery();
+    }
+
+    private void awaitDelivery() {
+        while (counter.getCount() < published) {
+            Thread.yield();
+        }
+    }
+
+    private ManagedChannelManager createManager(EventKeyRegistry registry) {
+        ChannelFactory channelFactory;
+        if ("simple".equals(channel)) {
+            channelFactory = new SimpleEventChannel();
+        } else if ("counting".equals(channel)) {
+            channelFactory = new CountingEventChannel();
+        } else {
+            throw new IllegalArgumentException("Unknown channel: " + channel);
+        }
+
+        if ("simple".equals(manager)) {
+            return new SimpleChannelManager(channelFactory, registry);
+        } else if ("ringbuffer".equals(manager)) {
+            return new RingBufferChannelManager(channelFactory, RingBufferChannelManager.DEFAULT_BUFFER_SIZE, registry);
+        } else if ("sharded".equals(manager)) {
+            return new ShardedChannelManager(channelFactory, Runtime.getRuntime().availableProcessors(), registry);
+        } else {
+            throw new IllegalArgumentException("Unknown manager: " + manager);
+        }
+    }
+}
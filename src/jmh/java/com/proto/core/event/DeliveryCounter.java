@@ -0,0 +1,23 @@
+package com.proto.core.event;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A listener counting data events, used by benchmarks to wait for the manager thread. Control events are ignored.
+ *
+ * @author wfrancis
+ */
+class DeliveryCounter implements Listener {
+
+    private final AtomicLong count = new AtomicLong();
+
+    public void consume(EventKey eventKey, Object event) throws Exception {
+        if (!(event instanceof ControlEvent)) {
+            count.incrementAndGet();
+        }
+    }
+
+    long getCount() {
+        return count.get();
+    }
+}
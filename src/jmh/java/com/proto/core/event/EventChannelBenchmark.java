@@ -0,0 +1,70 @@
+package com.proto.core.event;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the fan-out of a single channel to its listeners, called directly on the benchmark thread as the
+ * manager thread would.
+ *
+ * Run the allocation profile with: java -jar target/benchmarks.jar EventChannelBenchmark -prof gc
+ *
+ * @author wfrancis
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventChannelBenchmark {
+
+    @Param({"simple", "counting"})
+    public String channel;
+
+    @Param({"1", "4", "16", "64"})
+    public int listenerCount;
+
+    private Channel eventChannel;
+
+    private EventKey key;
+
+    private Object event;
+
+    @Setup(Level.Trial)
+    public void setUp(Blackhole blackhole) {
+        EventKeyRegistry registry = new EventKeyRegistry();
+        if ("simple".equals(channel)) {
+            eventChannel = new SimpleEventChannel().allocate();
+        } else if ("counting".equals(channel)) {
+            eventChannel = new CountingEventChannel().allocate();
+        } else {
+            throw new IllegalArgumentException("Unknown channel: " + channel);
+        }
+
+        for (int i = 0; i < listenerCount; i++) {
+            eventChannel.registerListener(new BlackholeListener(blackhole));
+        }
+
+        key = registry.intern("BENCH.K0");
+        event = Integer.valueOf(0);
+    }
+
+    @Benchmark
+    public void fanOut() throws Exception {
+        eventChannel.consume(key, event);
+    }
+}
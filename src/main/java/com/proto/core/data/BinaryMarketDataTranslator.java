@@ -0,0 +1,331 @@
+package com.proto.core.data;
+
+import com.proto.core.event.ControlEvent;
+import com.proto.core.event.EventKey;
+import com.proto.core.event.EventKeyRegistry;
+import com.proto.core.event.SubscriptionControlEvent;
+import com.proto.core.event.Translator;
+import com.proto.core.event.UnsubscriptionControlEvent;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * {@link Translator} of market data to and from a fixed little-endian binary layout.
+ *
+ * Each message starts with a 4 byte header: the layout version, see {@link #getVersion()}, the message type and the
+ * length of the body as an unsigned short. The body of an {@link #FX_QUOTE} is the {@link FXQuote} record, the body
+ * of a {@link #SUBSCRIPTION} or {@link #UNSUBSCRIPTION} the UTF-8 subject of its event key. Messages of another
+ * version are rejected.
+ *
+ * By default quotes are decoded into quotes of their own, see {@link FXQuote#allocate()}, which may be kept and handed
+ * to other threads. Given a pool, quotes are decoded into pooled quotes instead, which the consumer must release.
+ * A translator created with {@link #decodingViews} decodes quotes without copying into a view over the message, see
+ * {@link FXQuote#view()}, valid until the next decode on the same thread. It only suits a receiver translating on a
+ * single thread and consuming each event synchronously, as soon as it is decoded: not a receiver with decode threads,
+ * whose reorder window holds several decoded events, nor a listener queuing events for another thread.
+ *
+ * {@link #translate} encodes into a ring of reusable buffers per thread, each valid until the ring comes round,
+ * i.e. for {@link #DEFAULT_BUFFER_COUNT} translations on the same thread by default, see {@link #getTranslationLifetime()}.
+ * Transports writing into their own buffers should call {@link #encode} and {@link #decode} directly.
+ *
+ * Encoding quotes, and decoding them into a pool or views, does not allocate. Control events are rare and allocate
+ * their key and event.
+ *
+ * BinaryMarketDataTranslator is thread-safe.
+ *
+ * @author wfrancis
+ */
+public class BinaryMarketDataTranslator implements Translator<ByteBuffer> {
+
+    public static final int VERSION = 1;
+
+    public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * Message types
+     */
+    public static final byte FX_QUOTE = 1;
+    public static final byte SUBSCRIPTION = 2;
+    public static final byte UNSUBSCRIPTION = 3;
+
+    public static final int HEADER_LENGTH = 4;
+
+    /**
+     * The max length of a message, header included
+     */
+    public static final int MAX_MESSAGE_LENGTH = 256;
+
+    public static final int DEFAULT_BUFFER_COUNT = 1024;
+
+    private static final int VERSION_OFFSET = 0;
+    private static final int TYPE_OFFSET = 1;
+    private static final int LENGTH_OFFSET = 2;
+
+    private final EventKeyRegistry registry;
+
+    /**
+     * The pool quotes are decoded into, null to decode into allocated quotes or views
+     */
+    private final FXQuotePool pool;
+
+    /**
+     * true to decode quotes into views
+     */
+    private final boolean views;
+
+    private final int bufferCount;
+
+    private final ThreadLocal<EncodeBuffers> encodeBuffers = new ThreadLocal<EncodeBuffers>() {
+        @Override
+        protected EncodeBuffers initialValue() {
+            return new EncodeBuffers(bufferCount);
+        }
+    };
+
+    private final ThreadLocal<FXQuote> quoteViews = new ThreadLocal<FXQuote>() {
+        @Override
+        protected FXQuote initialValue() {
+            return FXQuote.view();
+        }
+    };
+
+    /**
+     * Decode quotes into allocated quotes, intern keys in a registry of this translator.
+     */
+    public BinaryMarketDataTranslator() {
+        this(null, new EventKeyRegistry(), DEFAULT_BUFFER_COUNT);
+    }
+
+    /**
+     * @param pool the pool quotes are decoded into, null to decode into allocated quotes
+     */
+    public BinaryMarketDataTranslator(FXQuotePool pool) {
+        this(pool, new EventKeyRegistry(), DEFAULT_BUFFER_COUNT);
+    }
+
+    /**
+     * @param pool        the pool quotes are decoded into, null to decode into allocated quotes
+     * @param registry    the registry interning the decoded event keys
+     * @param bufferCount the number of reusable buffers {@link #translate} encodes into, per thread
+     */
+    public BinaryMarketDataTranslator(FXQuotePool pool, EventKeyRegistry registry, int bufferCount) {
+        this(pool, false, registry, bufferCount);
+    }
+
+    private BinaryMarketDataTranslator(FXQuotePool pool, boolean views, EventKeyRegistry registry, int bufferCount) {
+        if (bufferCount < 1) {
+            throw new IllegalArgumentException("Buffer count must be positive: " + bufferCount);
+        }
+        this.pool = pool;
+        this.views = views;
+        this.registry = registry;
+        this.bufferCount = bufferCount;
+    }
+
+    /**
+     * Create a translator decoding quotes into a view per thread, only valid until the next decode on that thread.
+     *
+     * @param registry    the registry interning the decoded event keys
+     * @param bufferCount the number of reusable buffers {@link #translate} encodes into, per thread
+     */
+    public static BinaryMarketDataTranslator decodingViews(EventKeyRegistry registry, int bufferCount) {
+        return new BinaryMarketDataTranslator(null, true, registry, bufferCount);
+    }
+
+    /**
+     * @return a reusable buffer holding the encoded event, from position to limit
+     */
+    public ByteBuffer translate(Object o) throws TranslationException {
+        ByteBuffer buffer = encodeBuffers.get().next();
+        buffer.clear();
+        encode(o, buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    public Object untranslate(ByteBuffer o) throws TranslationException {
+        return decode(o);
+    }
+
+    public String translateEventKey(EventKey eventKey) {
+        return eventKey.toString();
+    }
+
+    public EventKey untranslateEventKey(String subject) {
+        return registry.intern(subject);
+    }
+
+    public int getVersion() {
+        return VERSION;
+    }
+
+    /**
+     * @return the number of buffers returned by {@link #translate} on a thread before they are reused
+     */
+    public int getTranslationLifetime() {
+        return bufferCount;
+    }
+
+    /**
+     * @return true if quotes are decoded into views, only valid until the next decode on the same thread
+     */
+    public boolean isUntranslatingViews() {
+        return views;
+    }
+
+    /**
+     * Write an event at the position of dst, advancing the position past the message. Sets the byte order of dst
+     * to {@link #ORDER}.
+     *
+     * @throws TranslationException if the event is not supported or does not fit in dst
+     */
+    public void encode(Object event, ByteBuffer dst) throws TranslationException {
+        dst.order(ORDER);
+        int start = dst.position();
+        int body = start + HEADER_LENGTH;
+
+        if (event instanceof FXQuote) {
+            FXQuote quote = (FXQuote) event;
+            checkRemaining(dst, HEADER_LENGTH + FXQuote.ENCODED_LENGTH);
+            putHeader(dst, start, FX_QUOTE, FXQuote.ENCODED_LENGTH);
+            dst.putInt(body + FXQuote.INSTRUMENT_ID_OFFSET, quote.getInstrumentId());
+            dst.putInt(body + FXQuote.INSTRUMENT_ID_OFFSET + 4, 0);
+            dst.putDouble(body + FXQuote.BID_OFFSET, quote.getBid());
+            dst.putDouble(body + FXQuote.ASK_OFFSET, quote.getAsk());
+            dst.putLong(body + FXQuote.BID_SIZE_OFFSET, quote.getBidSize());
+            dst.putLong(body + FXQuote.ASK_SIZE_OFFSET, quote.getAskSize());
+            dst.putLong(body + FXQuote.TIME_OFFSET, quote.getTimeNanos());
+            dst.position(body + FXQuote.ENCODED_LENGTH);
+
+        } else if (event instanceof SubscriptionControlEvent || event instanceof UnsubscriptionControlEvent) {
+            byte[] subject = getBytes(((ControlEvent) event).getKey());
+            checkRemaining(dst, HEADER_LENGTH + subject.length);
+            putHeader(dst, start, event instanceof SubscriptionControlEvent ? SUBSCRIPTION : UNSUBSCRIPTION, subject.length);
+            dst.position(body);
+            dst.put(subject);
+
+        } else {
+            throw new TranslationException("Unsupported event: " + event);
+        }
+    }
+
+    /**
+     * Read the message at the position of src, advancing the position past the message. Sets the byte order of src
+     * to {@link #ORDER}.
+     *
+     * @throws TranslationException if the message is truncated, of another version or type
+     */
+    public Object decode(ByteBuffer src) throws TranslationException {
+        src.order(ORDER);
+        int start = src.position();
+        if (src.remaining() < HEADER_LENGTH) {
+            throw new TranslationException("Truncated header: " + src.remaining() + " bytes");
+        }
+
+        int version = src.get(start + VERSION_OFFSET);
+        if (version != VERSION) {
+            throw new TranslationException("Unsupported version " + version + ", expected " + VERSION);
+        }
+        byte type = src.get(start + TYPE_OFFSET);
+        int length = src.getShort(start + LENGTH_OFFSET) & 0xFFFF;
+        if (src.remaining() < HEADER_LENGTH + length) {
+            throw new TranslationException("Truncated message: " + src.remaining() + " bytes, expected " + (HEADER_LENGTH + length));
+        }
+
+        int body = start + HEADER_LENGTH;
+        src.position(body + length);
+
+        switch (type) {
+            case FX_QUOTE:
+                if (length < FXQuote.ENCODED_LENGTH) {
+                    throw new TranslationException("Truncated quote: " + length + " bytes");
+                }
+                if (views) {
+                    return quoteViews.get().wrap(src, body);
+                }
+                FXQuote quote;
+                if (pool == null) {
+                    quote = FXQuote.allocate();
+                } else if ((quote = pool.acquire()) == null) {
+                    throw new TranslationException("No quote available in pool of " + pool.getCapacity());
+                }
+                return quote.set(src.getInt(body + FXQuote.INSTRUMENT_ID_OFFSET),
+                        src.getDouble(body + FXQuote.BID_OFFSET),
+                        src.getDouble(body + FXQuote.ASK_OFFSET),
+                        src.getLong(body + FXQuote.BID_SIZE_OFFSET),
+                        src.getLong(body + FXQuote.ASK_SIZE_OFFSET),
+                        src.getLong(body + FXQuote.TIME_OFFSET));
+
+            case SUBSCRIPTION:
+                return new SubscriptionControlEvent(readKey(src, body, length), null);
+
+            case UNSUBSCRIPTION:
+                return new UnsubscriptionControlEvent(readKey(src, body, length), null);
+
+            default:
+                throw new TranslationException("Unsupported message type: " + type);
+        }
+    }
+
+    private EventKey readKey(ByteBuffer src, int body, int length) throws TranslationException {
+        byte[] subject = new byte[length];
+        for (int i = 0; i < length; i++) {
+            subject[i] = src.get(body + i);
+        }
+        try {
+            return registry.intern(new String(subject, "UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new TranslationException("Cannot decode subject", e);
+        }
+    }
+
+    private static byte[] getBytes(EventKey eventKey) throws TranslationException {
+        try {
+            return eventKey.toString().getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new TranslationException("Cannot encode subject", e);
+        }
+    }
+
+    private static void putHeader(ByteBuffer dst, int start, byte type, int length) {
+        dst.put(start + VERSION_OFFSET, (byte) VERSION);
+        dst.put(start + TYPE_OFFSET, type);
+        dst.putShort(start + LENGTH_OFFSET, (short) length);
+    }
+
+    private static void checkRemaining(ByteBuffer dst, int length) throws TranslationException {
+        if (length > MAX_MESSAGE_LENGTH) {
+            throw new TranslationException("Message of " + length + " bytes exceeds " + MAX_MESSAGE_LENGTH);
+        }
+        if (dst.remaining() < length) {
+            throw new TranslationException("Message of " + length + " bytes does not fit in " + dst.remaining());
+        }
+    }
+
+    /**
+     * Ring of encode buffers of one thread, slices of a single direct slab
+     */
+    private static final class EncodeBuffers {
+
+        private final ByteBuffer[] buffers;
+
+        private int next;
+
+        EncodeBuffers(int count) {
+            ByteBuffer slab = ByteBuffer.allocateDirect(count * MAX_MESSAGE_LENGTH);
+            buffers = new ByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                slab.limit((i + 1) * MAX_MESSAGE_LENGTH).position(i * MAX_MESSAGE_LENGTH);
+                buffers[i] = slab.slice().order(ORDER);
+            }
+        }
+
+        ByteBuffer next() {
+            ByteBuffer buffer = buffers[next];
+            next = next + 1 == buffers.length ? 0 : next + 1;
+            return buffer;
+        }
+    }
+}
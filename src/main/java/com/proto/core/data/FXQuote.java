@@ -0,0 +1,215 @@
+package com.proto.core.data;
+
+import com.proto.core.event.NanoTimedEvent;
+import com.proto.core.event.ReferenceCounted;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An FX quote stored as a fixed size record in a direct {@link ByteBuffer} slab owned by an {@link FXQuotePool}.
+ *
+ * The quote object is a flyweight over its record: fields are read and written in place, and the quote is
+ * handed back to its pool for reuse once released, so publishing a quote allocates nothing.
+ *
+ * A quote acquired from the pool holds one reference, which is passed along with the quote as it is published,
+ * see {@link ReferenceCounted}: behind a channel manager the manager releases the quote once dispatched, and its
+ * listeners only retain a quote they keep past their consume call. The quote returns to its pool when the last
+ * reference is released, after which it must not be used.
+ *
+ * Fields must not be written once the quote is published.
+ *
+ * A quote created with {@link #view()} belongs to no pool: it reads the record at any position of any buffer it is
+ * {@link #wrap wrapped} around, without copying, and releasing it does nothing. A view cannot be retained past the
+ * life of the buffer it wraps. A quote created with {@link #allocate()} is a view over a record of its own, which
+ * may be kept as long as needed.
+ *
+ * @author wfrancis
+ */
+public final class FXQuote implements NanoTimedEvent, ReferenceCounted {
+
+    static final int INSTRUMENT_ID_OFFSET = 0;
+    static final int BID_OFFSET = 8;
+    static final int ASK_OFFSET = 16;
+    static final int BID_SIZE_OFFSET = 24;
+    static final int ASK_SIZE_OFFSET = 32;
+    static final int TIME_OFFSET = 40;
+
+    /**
+     * The size of a quote record in bytes
+     */
+    public static final int ENCODED_LENGTH = 48;
+
+    private final FXQuotePool pool;
+
+    /**
+     * The slab holding the record
+     */
+    private ByteBuffer slab;
+
+    /**
+     * The position of the record in the slab
+     */
+    private int offset;
+
+    private final AtomicInteger references = new AtomicInteger();
+
+    FXQuote(FXQuotePool pool, ByteBuffer slab, int offset) {
+        this.pool = pool;
+        this.slab = slab;
+        this.offset = offset;
+    }
+
+    /**
+     * @return a quote belonging to no pool, to {@link #wrap} around records
+     */
+    public static FXQuote view() {
+        FXQuote quote = new FXQuote(null, null, 0);
+        quote.acquired();
+        return quote;
+    }
+
+    /**
+     * @return a quote belonging to no pool, over a heap record of its own
+     */
+    public static FXQuote allocate() {
+        return view().wrap(ByteBuffer.allocate(ENCODED_LENGTH).order(ByteOrder.nativeOrder()), 0);
+    }
+
+    /**
+     * Point a view at the record at the given position of a buffer, read with the byte order of the buffer.
+     *
+     * @return this quote
+     * @throws IllegalStateException if the quote belongs to a pool
+     */
+    public FXQuote wrap(ByteBuffer buffer, int offset) {
+        if (pool != null) {
+            throw new IllegalStateException("Pooled quotes cannot wrap other records");
+        }
+        this.slab = buffer;
+        this.offset = offset;
+        return this;
+    }
+
+    public int getInstrumentId() {
+        return slab.getInt(offset + INSTRUMENT_ID_OFFSET);
+    }
+
+    public double getBid() {
+        return slab.getDouble(offset + BID_OFFSET);
+    }
+
+    public double getAsk() {
+        return slab.getDouble(offset + ASK_OFFSET);
+    }
+
+    public long getBidSize() {
+        return slab.getLong(offset + BID_SIZE_OFFSET);
+    }
+
+    public long getAskSize() {
+        return slab.getLong(offset + ASK_SIZE_OFFSET);
+    }
+
+    public long getTimeNanos() {
+        return slab.getLong(offset + TIME_OFFSET);
+    }
+
+    /**
+     * Allocates, prefer {@link #getTimeNanos()} on hot paths.
+     */
+    public Date getTime() {
+        return new Date(TimeUnit.NANOSECONDS.toMillis(getTimeNanos()));
+    }
+
+    /**
+     * Write every field of the quote
+     *
+     * @return this quote
+     */
+    public FXQuote set(int instrumentId, double bid, double ask, long bidSize, long askSize, long timeNanos) {
+        slab.putInt(offset + INSTRUMENT_ID_OFFSET, instrumentId);
+        slab.putDouble(offset + BID_OFFSET, bid);
+        slab.putDouble(offset + ASK_OFFSET, ask);
+        slab.putLong(offset + BID_SIZE_OFFSET, bidSize);
+        slab.putLong(offset + ASK_SIZE_OFFSET, askSize);
+        slab.putLong(offset + TIME_OFFSET, timeNanos);
+        return this;
+    }
+
+    /**
+     * Copy the record of the quote into dst at its position, advancing the position by {@link #ENCODED_LENGTH}.
+     */
+    public void writeTo(ByteBuffer dst) {
+        for (int i = 0; i < ENCODED_LENGTH; i += 8) {
+            dst.putLong(slab.getLong(offset + i));
+        }
+    }
+
+    /**
+     * Overwrite the record of the quote with one read from src at its position, advancing the position by
+     * {@link #ENCODED_LENGTH}. The record must have been written by {@link #writeTo} with the same byte order.
+     *
+     * @return this quote
+     */
+    public FXQuote readFrom(ByteBuffer src) {
+        for (int i = 0; i < ENCODED_LENGTH; i += 8) {
+            slab.putLong(offset + i, src.getLong());
+        }
+        return this;
+    }
+
+    /**
+     * Add a reference to the quote
+     */
+    public void retain() {
+        if (references.getAndIncrement() <= 0) {
+            references.getAndDecrement();
+            throw new IllegalStateException("Quote has already been released");
+        }
+    }
+
+    /**
+     * Drop a reference to the quote, returning it to its pool when it was the last one. Does nothing for a view.
+     */
+    public void release() {
+        if (pool == null) {
+            return;
+        }
+        int remaining = references.decrementAndGet();
+        if (remaining == 0) {
+            pool.recycle(this);
+        } else if (remaining < 0) {
+            references.incrementAndGet();
+            throw new IllegalStateException("Quote has already been released");
+        }
+    }
+
+    /**
+     * @return the number of live references
+     */
+    public int getReferenceCount() {
+        return references.get();
+    }
+
+    /**
+     * Called by the pool when handing the quote out
+     */
+    void acquired() {
+        references.set(1);
+    }
+
+    @Override
+    public String toString() {
+        return "FXQuote{instrumentId=" + getInstrumentId() +
+                ", bid=" + getBid() +
+                ", ask=" + getAsk() +
+                ", bidSize=" + getBidSize() +
+                ", askSize=" + getAskSize() +
+                ", timeNanos=" + getTimeNanos() +
+                '}';
+    }
+}
@@ -0,0 +1,62 @@
+package com.proto.core.data;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A fixed size pool of {@link FXQuote}s whose records share one direct {@link ByteBuffer} slab.
+ *
+ * Every quote and the slab are allocated when the pool is created. Acquiring and releasing quotes allocates nothing.
+ * FXQuotePool is thread-safe, quotes may be released on any thread.
+ *
+ * @author wfrancis
+ */
+public class FXQuotePool {
+
+    private final ArrayBlockingQueue<FXQuote> free;
+
+    private final int capacity;
+
+    /**
+     * @param capacity number of quotes in the pool
+     */
+    public FXQuotePool(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Pool capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.free = new ArrayBlockingQueue<FXQuote>(capacity);
+
+        ByteBuffer slab = ByteBuffer.allocateDirect(capacity * FXQuote.ENCODED_LENGTH).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < capacity; i++) {
+            free.add(new FXQuote(this, slab, i * FXQuote.ENCODED_LENGTH));
+        }
+    }
+
+    /**
+     * @return a quote holding one reference, or null if every quote is in use.
+     */
+    public FXQuote acquire() {
+        FXQuote quote = free.poll();
+        if (quote != null) {
+            quote.acquired();
+        }
+        return quote;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of quotes available
+     */
+    public int getAvailable() {
+        return free.size();
+    }
+
+    void recycle(FXQuote quote) {
+        free.offer(quote);
+    }
+}
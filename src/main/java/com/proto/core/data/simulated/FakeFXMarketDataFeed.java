@@ -1,20 +1,90 @@
 package com.proto.core.data.simulated;
 
+import com.proto.core.data.FXQuote;
+import com.proto.core.data.FXQuotePool;
+import com.proto.core.event.BatchListener;
+import com.proto.core.event.EventKey;
+import com.proto.core.event.EventKeyRegistry;
 import com.proto.core.event.Listener;
+import com.proto.core.event.Listeners;
 import com.proto.core.event.Producer;
+import com.proto.core.event.ReferenceCounted;
 import com.proto.utils.Threads;
 import org.apache.log4j.Logger;
 
 import java.util.Properties;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Simulated FX feed publishing random walk {@link FXQuote}s for a universe of currency pairs.
+ *
+ * Each tick picks an instrument at random and moves its mid price by a random step of up to one basis point.
+ * Instrument choice and sizes are drawn from the DELAY_TIME_SEED generator, price moves from the
+ * PRICE_RANDOM_WALK_SEED generator, so the same seeds always produce the same sequence of quotes.
+ * Quote times are taken from the wall clock when the quote is generated.
+ *
+ * Ticks are paced to an aggregate rate of TICK_RATE ticks per second, published in bursts of up to
+ * {@link #MAX_BURST} ticks. A TICK_RATE of 0 publishes as fast as the listener accepts them. When TICK_RATE is not
+ * set, each instrument ticks every INIT_TICK_RATE milliseconds on average.
+ *
+ * Quotes come from an {@link FXQuotePool} of POOL_SIZE quotes and each tick publishes with a pre-interned event key,
+ * so publishing allocates nothing. The reference of each quote passes to the listener, see
+ * {@link ReferenceCounted}: a channel manager releases the quotes once dispatched, a listener consuming straight
+ * from the feed must release them. A tick is dropped and counted if the pool is empty. Bursts are published as one
+ * batch to a {@link BatchListener}.
+ *
+ * Configuration properties:
+ * <ul>
+ *     <li>INSTRUMENT_COUNT: number of currency pairs, default 100</li>
+ *     <li>TICK_RATE: aggregate ticks per second</li>
+ *     <li>INIT_TICK_RATE: average milliseconds between ticks of one instrument, default 10</li>
+ *     <li>INIT_PX: average initial mid price, default 100.0</li>
+ *     <li>DELAY_TIME_SEED, PRICE_RANDOM_WALK_SEED: random seeds, default 1</li>
+ *     <li>POOL_SIZE: number of pooled quotes, default 65536</li>
+ *     <li>KEY_PREFIX: prefix of the event keys, default FX.</li>
+ * </ul>
+ *
+ * @author wfrancis
+ */
 public class FakeFXMarketDataFeed implements Producer {
 
     private static final Logger LOG = Logger.getLogger(FakeFXMarketDataFeed.class);
 
+    /**
+     * The max number of ticks published in a row before checking the pacing again
+     */
+    public static final int MAX_BURST = 1024;
+
+    /**
+     * Max time the feed parks while ahead of its rate
+     */
+    private static final long MAX_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * Max relative move of a mid price per tick
+     */
+    private static final double MAX_STEP = 0.0001;
+
+    /**
+     * Spread relative to the mid price
+     */
+    private static final double RELATIVE_SPREAD = 0.0002;
+
+    private static final long SIZE_UNIT = 1000000L;
+
+    private static final String[] CURRENCIES = {
+            "EUR", "USD", "JPY", "GBP", "CHF", "AUD", "NZD", "CAD", "SEK", "NOK",
+            "DKK", "PLN", "CZK", "HUF", "TRY", "ZAR", "MXN", "BRL", "CLP", "COP",
+            "PEN", "ARS", "CNH", "HKD", "SGD", "KRW", "TWD", "INR", "IDR", "THB",
+            "MYR", "PHP", "ILS", "RUB", "SAR", "AED", "KWD", "QAR", "ISK", "RON",
+            "BGN", "HRK", "KZT", "UAH", "EGP", "NGN", "KES", "GHS", "MAD", "VND"
+    };
+
     /**
      * The listener interested in events
      */
@@ -41,38 +111,118 @@ public class FakeFXMarketDataFeed implements Producer {
     private long priceRandomWalkSeed = 1;
 
     /**
-     * BufferedProducer uses executor as its thread.
+     * Number of simulated instruments
      */
-    private final ExecutorService executor;
+    private int instrumentCount = 100;
 
     /**
-     * true if the BufferedProducer is started, else false.
+     * Aggregate ticks per second, 0 for unpaced
      */
-    private final AtomicBoolean active;
+    private long tickRate = -1;
+
+    /**
+     * Number of pooled quotes
+     */
+    private int poolSize = 1 << 16;
+
+    /**
+     * Prefix of the instrument event keys
+     */
+    private String keyPrefix = "FX.";
+
+    /**
+     * Event key of each instrument, indexed by instrument id
+     */
+    private final EventKey[] eventKeys;
+
+    /**
+     * Current mid price of each instrument, indexed by instrument id. Only used by the feed thread.
+     */
+    private final double[] mids;
+
+    private final FXQuotePool pool;
 
     /**
-     * Guarding lock
+     * Burst of quotes, only used by the feed thread
      */
-    private final ReentrantLock lock;
+    private final EventKey[] burstKeys = new EventKey[MAX_BURST];
+    private final Object[] burstEvents = new Object[MAX_BURST];
+
+    /**
+     * Xorshift generator states
+     */
+    private long delayRandom;
+    private long priceRandom;
+
+    private final AtomicLong tickCount = new AtomicLong();
+
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * FakeFXMarketDataFeed uses executor as its thread.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * true if the FakeFXMarketDataFeed is started, else false.
+     */
+    private final AtomicBoolean active;
 
     public FakeFXMarketDataFeed(Properties config) {
+        this(config, new EventKeyRegistry());
+    }
+
+    /**
+     * @param config   configuration properties
+     * @param registry registry interning the instrument event keys
+     */
+    public FakeFXMarketDataFeed(Properties config, EventKeyRegistry registry) {
         this.executor = Executors.newSingleThreadExecutor(Threads.createFactory("FakeFXMarketDataFeed"));
         this.active = new AtomicBoolean(false);
-        this.lock = new ReentrantLock();
 
-        if(config.contains("DELAY_TIME_SEED")) {
+        if(config.containsKey("DELAY_TIME_SEED")) {
             this.delayTimeSeed = Long.parseLong(config.getProperty("DELAY_TIME_SEED"));
         }
-        if(config.contains("PRICE_RANDOM_WALK_SEED")) {
+        if(config.containsKey("PRICE_RANDOM_WALK_SEED")) {
             this.priceRandomWalkSeed = Long.parseLong(config.getProperty("PRICE_RANDOM_WALK_SEED"));
         }
-        if(config.contains("INIT_PX")) {
+        if(config.containsKey("INIT_PX")) {
             this.initInstrumentPx = Double.parseDouble(config.getProperty("INIT_PX"));
         }
 
-        if(config.contains("INIT_TICK_RATE")) {
+        if(config.containsKey("INIT_TICK_RATE")) {
             this.initPxTickRate = Long.parseLong(config.getProperty("INIT_TICK_RATE"));
         }
+        if(config.containsKey("INSTRUMENT_COUNT")) {
+            this.instrumentCount = Integer.parseInt(config.getProperty("INSTRUMENT_COUNT"));
+        }
+        if(config.containsKey("TICK_RATE")) {
+            this.tickRate = Long.parseLong(config.getProperty("TICK_RATE"));
+        }
+        if(config.containsKey("POOL_SIZE")) {
+            this.poolSize = Integer.parseInt(config.getProperty("POOL_SIZE"));
+        }
+        if(config.containsKey("KEY_PREFIX")) {
+            this.keyPrefix = config.getProperty("KEY_PREFIX");
+        }
+
+        if(instrumentCount < 1) {
+            throw new IllegalArgumentException("INSTRUMENT_COUNT must be positive: " + instrumentCount);
+        }
+        if(tickRate < 0) {
+            this.tickRate = initPxTickRate > 0 ? instrumentCount * 1000L / initPxTickRate : 0;
+        }
+
+        this.delayRandom = scramble(delayTimeSeed);
+        this.priceRandom = scramble(priceRandomWalkSeed);
+        this.pool = new FXQuotePool(poolSize);
+        this.eventKeys = new EventKey[instrumentCount];
+        this.mids = new double[instrumentCount];
+
+        for(int i = 0; i < instrumentCount; i++) {
+            eventKeys[i] = registry.intern(keyPrefix + instrumentName(i));
+            mids[i] = initInstrumentPx * (0.5 + nextDouble(false));
+        }
     }
 
     @Override
@@ -85,29 +235,27 @@ public class FakeFXMarketDataFeed implements Producer {
 
         executor.submit(new Runnable() {
             public void run() {
+                long startNanos = System.nanoTime();
+                long epochNanosAtStart = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+                long published = 0;
+
                 while (active.get()) {
+                    long elapsed = System.nanoTime() - startNanos;
 
-                    lock.lock();
-                    try {
-
-//                        BufferedProducer.DelayedEvent entry = queue.poll();
-//
-//                        if (entry != null) {
-//                            try {
-//                                listener.consume(entry.getEventKey(), entry.getEvent());
-//                            } catch (Exception e) {
-//                                LOG.error("Exception caught while dispatching event", e);
-//                            } finally {
-//                                notFull.signalAll();
-//                            }
-//                        } else {
-//                            entry = queue.peek();
-//                            waitOnEmpty(entry == null ? null : entry.getEndOfDelay());
-//                        }
-
-                    } finally {
-                        lock.unlock();
+                    int burst = MAX_BURST;
+                    if (tickRate > 0) {
+                        long due = (long) (elapsed * (tickRate / 1e9)) - published;
+                        if (due <= 0) {
+                            // ahead of the rate, park until the next tick is due
+                            long wait = (long) ((published + 1) * (1e9 / tickRate)) - elapsed;
+                            LockSupport.parkNanos(Math.max(1, Math.min(wait, MAX_PARK_NANOS)));
+                            continue;
+                        }
+                        burst = (int) Math.min(due, MAX_BURST);
                     }
+
+                    publishBurst(burst, epochNanosAtStart + elapsed);
+                    published += burst;
                 }
 
                 LOG.info(Thread.currentThread().getName() + " Exiting dispatch loop");
@@ -117,16 +265,156 @@ public class FakeFXMarketDataFeed implements Producer {
 
     public void stop() throws Exception {
         active.compareAndSet(true, false);
+        executor.shutdown();
+    }
+
+    /**
+     * @return the number of instruments
+     */
+    public int getInstrumentCount() {
+        return instrumentCount;
+    }
 
-        lock.lock();
-        try {
+    /**
+     * @return the event key quotes of an instrument are published with
+     */
+    public EventKey getEventKey(int instrumentId) {
+        return eventKeys[instrumentId];
+    }
 
-//            queue.clear();
-//            notFull.signalAll();
-//            notEmpty.signalAll();
+    /**
+     * @return the aggregate ticks per second, 0 if unpaced
+     */
+    public long getTickRate() {
+        return tickRate;
+    }
+
+    /**
+     * @return the number of quotes published
+     */
+    public long getTickCount() {
+        return tickCount.get();
+    }
 
-        } finally {
-            lock.unlock();
+    /**
+     * @return the number of ticks dropped because every pooled quote was in use
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Generate and publish a burst of ticks, all stamped with the given time.
+     */
+    void publishBurst(int burst, long timeNanos) {
+        int length = 0;
+        for (int i = 0; i < burst; i++) {
+            FXQuote quote = pool.acquire();
+            if (quote == null) {
+                droppedCount.addAndGet(burst - i);
+                break;
+            }
+            nextTick(quote, timeNanos);
+            burstKeys[length] = eventKeys[quote.getInstrumentId()];
+            burstEvents[length] = quote;
+            length++;
+        }
+
+        if (length == 0) {
+            return;
+        }
+
+        if (listener instanceof BatchListener) {
+            try {
+                ((BatchListener) listener).consumeBatch(burstKeys, burstEvents, 0, length);
+            } catch (Exception e) {
+                // the quotes were not accepted
+                Listeners.release(burstEvents, 0, length);
+                LOG.error("Exception caught while publishing " + length + " quotes", e);
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                try {
+                    listener.consume(burstKeys[i], burstEvents[i]);
+                } catch (Exception e) {
+                    // the quote was not accepted
+                    ((FXQuote) burstEvents[i]).release();
+                    LOG.error("Exception caught while publishing event", e);
+                }
+            }
+        }
+        tickCount.addAndGet(length);
+
+        for (int i = 0; i < length; i++) {
+            burstKeys[i] = null;
+            burstEvents[i] = null;
+        }
+    }
+
+    /**
+     * Move a random instrument one step and write its new quote.
+     */
+    void nextTick(FXQuote quote, long timeNanos) {
+        int instrumentId = (int) ((nextRandom(true) >>> 33) % instrumentCount);
+
+        double mid = mids[instrumentId] * (1 + MAX_STEP * (2 * nextDouble(false) - 1));
+        mids[instrumentId] = mid;
+
+        double halfSpread = mid * RELATIVE_SPREAD / 2;
+        long bidSize = SIZE_UNIT * (1 + (nextRandom(true) >>> 60));
+        long askSize = SIZE_UNIT * (1 + (nextRandom(true) >>> 60));
+
+        quote.set(instrumentId, mid - halfSpread, mid + halfSpread, bidSize, askSize, timeNanos);
+    }
+
+    /**
+     * @return the next value of the delay or price xorshift64* generator
+     */
+    private long nextRandom(boolean delay) {
+        long x = delay ? delayRandom : priceRandom;
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        if (delay) {
+            delayRandom = x;
+        } else {
+            priceRandom = x;
+        }
+        return x * 0x2545F4914F6CDD1DL;
+    }
+
+    /**
+     * @return a value in [0, 1)
+     */
+    private double nextDouble(boolean delay) {
+        return (nextRandom(delay) >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Spread a seed over the state bits, xorshift states must not be 0.
+     */
+    private static long scramble(long seed) {
+        long z = seed + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return z == 0 ? 1 : z;
+    }
+
+    /**
+     * @return the currency pair of an instrument, i.e. EURUSD, or a numbered synthetic pair once every
+     * combination of the known currencies is used.
+     */
+    static String instrumentName(int instrumentId) {
+        int pairs = CURRENCIES.length * (CURRENCIES.length - 1);
+        if (instrumentId >= pairs) {
+            return "SYN" + instrumentId;
+        }
+        int base = instrumentId / (CURRENCIES.length - 1);
+        int quote = instrumentId % (CURRENCIES.length - 1);
+        if (quote >= base) {
+            quote++;
         }
+        return CURRENCIES[base] + CURRENCIES[quote];
     }
 }
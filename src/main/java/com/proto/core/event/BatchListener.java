@@ -0,0 +1,23 @@
+package com.proto.core.event;
+
+/**
+ * A {@link Listener} that can also consume a contiguous batch of events in one call.
+ *
+ * Producers deliver batches through {@link Listeners#deliver} so listeners without batch support
+ * keep receiving one event per {@link #consume} call.
+ *
+ * @author wfrancis
+ */
+public interface BatchListener extends Listener {
+
+    /**
+     * Consume the events at [offset, offset + length) of events, each with the event key at the same index
+     * of eventKeys. The arrays belong to the caller and may be reused once the call returns.
+     *
+     * @param eventKeys subjects of the events
+     * @param events    events to be consumed
+     * @param offset    index of the first event of the batch
+     * @param length    number of events in the batch
+     */
+    void consumeBatch(EventKey[] eventKeys, Object[] events, int offset, int length) throws Exception;
+}
@@ -0,0 +1,405 @@
+package com.proto.core.event;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded FIFO queue of events with their keys, held in pre-allocated arrays, so its memory use is fixed
+ * whatever the backlog. What happens when an event is offered to a full queue depends on its {@link OverflowPolicy}.
+ *
+ * With {@link OverflowPolicy#CONFLATE} a data event replaces the event pending for the same key, if any, keeping
+ * its place in the queue, so the queue holds at most one data event per key. The pending events are found through
+ * an open addressing index, so conflating does not allocate. {@link ControlEvent}s are never conflated.
+ *
+ * A queued {@link ReferenceCounted} event is retained, and released if dropped, replaced or cleared. Taking
+ * events out hands their reference over to the caller, which must release them once done.
+ *
+ * A queue whose consumer has gone is {@link #close closed}: events offered are then dropped whatever the policy,
+ * so producers never wait for a consumer that will not come back.
+ *
+ * BoundedEventQueue is thread-safe.
+ *
+ * @author wfrancis
+ */
+public class BoundedEventQueue {
+
+    /**
+     * What to do with an event offered to a full queue
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait for room in the queue
+         */
+        BLOCK,
+        /**
+         * Drop the oldest queued event to make room
+         */
+        DROP_OLDEST,
+        /**
+         * Drop the event offered
+         */
+        DROP_NEWEST,
+        /**
+         * Conflate data events per key, wait for room for an event with a new key
+         */
+        CONFLATE
+    }
+
+    private final OverflowPolicy policy;
+
+    private final EventKey[] keys;
+
+    private final Object[] events;
+
+    /**
+     * Ring slot + 1 of the data event pending for a key, 0 for an empty entry. Only used to conflate.
+     */
+    private final int[] index;
+
+    private final int indexMask;
+
+    /**
+     * Slot of the oldest event
+     */
+    private int head;
+
+    private int count;
+
+    /**
+     * true once closed, until reopened
+     */
+    private boolean closed;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    /**
+     * Counters, written holding lock
+     */
+    private volatile long droppedCount;
+
+    private volatile long conflatedCount;
+
+    private volatile long blockedCount;
+
+    /**
+     * @param capacity the max number of queued events
+     * @param policy   what to do with an event offered to a full queue
+     */
+    public BoundedEventQueue(int capacity, OverflowPolicy policy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.policy = policy;
+        this.keys = new EventKey[capacity];
+        this.events = new Object[capacity];
+
+        // at most half full keeps the probes short
+        int indexSize = policy == OverflowPolicy.CONFLATE ? Integer.highestOneBit(capacity) << 2 : 0;
+        this.index = new int[indexSize];
+        this.indexMask = indexSize - 1;
+    }
+
+    /**
+     * Queue an event, applying the overflow policy if the queue is full.
+     *
+     * @return false if the event was dropped
+     * @throws InterruptedException if interrupted while waiting for room, the event is not queued
+     */
+    public boolean offer(EventKey eventKey, Object event) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            return enqueue(eventKey, event);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queue a batch of events under one lock, applying the overflow policy to each event.
+     *
+     * @return the number of events dropped from the batch
+     * @throws InterruptedException if interrupted while waiting for room, the rest of the batch is not queued
+     */
+    public int offerAll(EventKey[] eventKeys, Object[] batch, int offset, int length) throws InterruptedException {
+        int dropped = 0;
+        lock.lockInterruptibly();
+        try {
+            for (int i = offset; i < offset + length; i++) {
+                if (!enqueue(eventKeys[i], batch[i])) {
+                    dropped++;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return dropped;
+    }
+
+    /**
+     * Move up to max events, oldest first, into the given arrays, waiting for at least one or for the queue to close.
+     * The caller must release the events moved once done.
+     *
+     * @return the number of events moved, 0 if the queue is closed
+     */
+    public int take(EventKey[] eventKeys, Object[] batch, int max) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0 && !closed) {
+                notEmpty.await();
+            }
+            return drain(eventKeys, batch, 0, max);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Move up to max events, oldest first, into the given arrays, waiting up to the timeout for at least one.
+     *
+     * @return the number of events moved, 0 if the timeout elapsed
+     */
+    public int poll(EventKey[] eventKeys, Object[] batch, int max, long timeout, TimeUnit unit) throws InterruptedException {
+        return poll(eventKeys, batch, 0, max, timeout, unit);
+    }
+
+    /**
+     * Move up to max events, oldest first, into the given arrays from offset, waiting up to the timeout
+     * for at least one.
+     *
+     * @return the number of events moved, 0 if the timeout elapsed
+     */
+    public int poll(EventKey[] eventKeys, Object[] batch, int offset, int max, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) {
+                    return 0;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return drain(eventKeys, batch, offset, max);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return keys.length;
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return the number of events dropped, the oldest or the newest depending on the policy, or while closed
+     */
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * @return the number of events replaced by a later event with the same key
+     */
+    public long getConflatedCount() {
+        return conflatedCount;
+    }
+
+    /**
+     * @return the number of times an offer waited for room in the queue
+     */
+    public long getBlockedCount() {
+        return blockedCount;
+    }
+
+    /**
+     * Drop every queued event and every event offered until reopened, waking up the threads waiting on the queue.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            droppedCount += count;
+            while (count > 0) {
+                Listeners.release(events[head]);
+                removeHead();
+            }
+            notFull.signalAll();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Accept events again after {@link #close()}.
+     */
+    public void open() {
+        lock.lock();
+        try {
+            closed = false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return true if closed
+     */
+    public boolean isClosed() {
+        lock.lock();
+        try {
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove every queued event.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            while (count > 0) {
+                Listeners.release(events[head]);
+                removeHead();
+            }
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Must be called holding lock.
+     */
+    private boolean enqueue(EventKey eventKey, Object event) throws InterruptedException {
+        if (closed) {
+            droppedCount++;
+            return false;
+        }
+        boolean conflatable = policy == OverflowPolicy.CONFLATE && !(event instanceof ControlEvent);
+        if (conflatable) {
+            int position = find(eventKey);
+            if (index[position] != 0) {
+                Listeners.retain(event);
+                Listeners.release(events[index[position] - 1]);
+                events[index[position] - 1] = event;
+                conflatedCount++;
+                return true;
+            }
+        }
+
+        if (count == keys.length) {
+            switch (policy) {
+                case DROP_NEWEST:
+                    droppedCount++;
+                    return false;
+                case DROP_OLDEST:
+                    Listeners.release(events[head]);
+                    removeHead();
+                    droppedCount++;
+                    break;
+                default:
+                    blockedCount++;
+                    while (count == keys.length && !closed) {
+                        notFull.await();
+                    }
+                    if (closed || conflatable) {
+                        // closed, or the key may have been queued while waiting
+                        return enqueue(eventKey, event);
+                    }
+            }
+        }
+
+        Listeners.retain(event);
+        int slot = (head + count) % keys.length;
+        keys[slot] = eventKey;
+        events[slot] = event;
+        count++;
+        if (conflatable) {
+            index[find(eventKey)] = slot + 1;
+        }
+        notEmpty.signal();
+        return true;
+    }
+
+    /**
+     * Must be called holding lock.
+     */
+    private int drain(EventKey[] eventKeys, Object[] batch, int offset, int max) {
+        int n = Math.min(max, count);
+        for (int i = offset; i < offset + n; i++) {
+            eventKeys[i] = keys[head];
+            batch[i] = events[head];
+            removeHead();
+        }
+        notFull.signalAll();
+        return n;
+    }
+
+    private void removeHead() {
+        if (policy == OverflowPolicy.CONFLATE && !(events[head] instanceof ControlEvent)) {
+            unindex(head);
+        }
+        keys[head] = null;
+        events[head] = null;
+        head = (head + 1) % keys.length;
+        count--;
+    }
+
+    /**
+     * @return the index position of the data event pending for the key, or the empty position it would take
+     */
+    private int find(EventKey eventKey) {
+        int position = hash(eventKey);
+        while (index[position] != 0 && !keys[index[position] - 1].equals(eventKey)) {
+            position = (position + 1) & indexMask;
+        }
+        return position;
+    }
+
+    /**
+     * Remove a slot from the index, shifting back the entries probed past it.
+     */
+    private void unindex(int slot) {
+        int hole = find(keys[slot]);
+        int position = hole;
+        while (true) {
+            position = (position + 1) & indexMask;
+            if (index[position] == 0) {
+                break;
+            }
+            int home = hash(keys[index[position] - 1]);
+            // the entry stays if its home lies cyclically in (hole, position]
+            boolean stays = hole <= position ? hole < home && home <= position : hole < home || home <= position;
+            if (!stays) {
+                index[hole] = index[position];
+                hole = position;
+            }
+        }
+        index[hole] = 0;
+    }
+
+    private int hash(EventKey eventKey) {
+        int h = eventKey.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & indexMask;
+    }
+}
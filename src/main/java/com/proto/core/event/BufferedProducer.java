@@ -1,13 +1,14 @@
 package com.proto.core.event;
 
-import com.proto.utils.Clock;
+import com.proto.core.monitoring.BufferedProducerMXBean;
+import com.proto.core.monitoring.StripedCounter;
+import com.proto.utils.EpochDates;
+import com.proto.utils.HighResolutionClock;
 import com.proto.utils.IClock;
+import com.proto.utils.SettableClock;
 import com.proto.utils.Threads;
 import org.apache.log4j.Logger;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -16,10 +17,16 @@ import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * {@link Producer} implementation that buffers incoming events until their appropriate time of publication.
+ * When the listener is a {@link BatchListener}, all events due at the same time are published as one batch.
+ * In discrete event mode the clock is not waited for but set to the time of the next event, see
+ * {@link #BufferedProducer(SettableClock, TimedEventQueue, int)}.
+ * Published, rejected and dropped events are counted for the {@link BufferedProducerMXBean} metrics.
+ * The reference of a {@link ReferenceCounted} event is handed on to the listener, or released if the event is
+ * dropped or the listener throws.
  *
  * @author wfrancis
  */
-public class BufferedProducer implements Producer, Listener {
+public class BufferedProducer implements Producer, Listener, BufferedProducerMXBean {
 
     private static final Logger LOG = Logger.getLogger(BufferedProducer.class);
 
@@ -28,6 +35,11 @@ public class BufferedProducer implements Producer, Listener {
      */
     private static final int DEFAULT_TIMED_QUEUE_LENGTH = 100;
 
+    /**
+     * The max number of due events published in one batch to a {@link BatchListener}
+     */
+    private static final int MAX_BATCH_SIZE = 256;
+
     /**
      * The listener interested in events
      */
@@ -54,9 +66,38 @@ public class BufferedProducer implements Producer, Listener {
     private final Condition notEmpty;
 
     /**
-     * The event queue
+     * The event queue, guarded by lock
+     */
+    private final TimedEventQueue queue;
+
+    /**
+     * Size of the queue, written holding lock and read without it
+     */
+    private volatile int queueSize;
+
+    /**
+     * Batch of due events, only used by the dispatch thread
      */
-    private final DelayQueue<DelayedEvent> queue;
+    private final EventKey[] batchKeys = new EventKey[MAX_BATCH_SIZE];
+    private final Object[] batchEvents = new Object[MAX_BATCH_SIZE];
+
+    private final StripedCounter published = new StripedCounter();
+
+    private final StripedCounter rejected = new StripedCounter();
+
+    private final StripedCounter dropped = new StripedCounter();
+
+    private final StripedCounter late = new StripedCounter();
+
+    /**
+     * The clock set to the time of each event in discrete event mode, else null
+     */
+    private final SettableClock discreteClock;
+
+    /**
+     * The max number of queued events in discrete event mode
+     */
+    private final int maxQueueSize;
 
     /**
      * BufferedProducer uses executor as its thread.
@@ -69,16 +110,51 @@ public class BufferedProducer implements Producer, Listener {
     private final AtomicBoolean active;
 
     /**
-     * Create an instance with the given queue size and clock
+     * Create an instance with the given clock, buffering events in a {@link TimingWheelEventQueue}
      *
      * @param clock     The clock to use to determine when events should be published.
      */
     public BufferedProducer(IClock clock) {
+        this(clock, new TimingWheelEventQueue());
+    }
+
+    /**
+     * Create an instance with the given clock and event queue
+     *
+     * @param clock     The clock to use to determine when events should be published.
+     * @param queue     The queue buffering events until their time of publication.
+     */
+    public BufferedProducer(IClock clock, TimedEventQueue queue) {
+        this(clock, queue, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Create an instance in discrete event mode: instead of waiting for the time of the next event, the clock is
+     * set to it and the event published at once, so a simulation runs as fast as the listener consumes it.
+     * Listeners reading the clock see the time of the event they consume.
+     *
+     * Events are expected in time order. An event earlier than the clock is late: it is published at once,
+     * without setting the clock back, and counted. Producers wait while maxQueueSize events are queued.
+     *
+     * @param clock        The clock set to the time of each event published.
+     * @param queue        The queue buffering events until their time of publication.
+     * @param maxQueueSize The max number of queued events.
+     */
+    public BufferedProducer(SettableClock clock, TimedEventQueue queue, int maxQueueSize) {
+        this(clock, queue, clock, maxQueueSize);
+        if(maxQueueSize < 1) {
+            throw new IllegalArgumentException("Max queue size must be positive: " + maxQueueSize);
+        }
+    }
+
+    private BufferedProducer(IClock clock, TimedEventQueue queue, SettableClock discreteClock, int maxQueueSize) {
         this.clock = clock;
         this.lock = new ReentrantLock();
         this.notFull = lock.newCondition();
         this.notEmpty = lock.newCondition();
-        this.queue = new DelayQueue<DelayedEvent>();
+        this.queue = queue;
+        this.discreteClock = discreteClock;
+        this.maxQueueSize = maxQueueSize;
         this.executor = Executors.newSingleThreadExecutor(Threads.createFactory("BufferedProducer"));
         this.active = new AtomicBoolean(false);
     }
@@ -94,16 +170,18 @@ public class BufferedProducer implements Producer, Listener {
         //use clock that refers to the current time OR an offset time
         if(useOffset) {
             //clock utilizing optional offset
-            this.clock = new Clock(realTime, useOffset, normalizeOffsetTime(timeOffset));
+            this.clock = new HighResolutionClock(realTime, useOffset, normalizeOffsetTime(timeOffset));
         } 
         else {
             //clock without offset
-            this.clock = new Clock(realTime, new Date());
+            this.clock = new HighResolutionClock(realTime, new Date());
         }           
         this.lock = new ReentrantLock();
         this.notFull = lock.newCondition();
         this.notEmpty = lock.newCondition();
-        this.queue = new DelayQueue<DelayedEvent>();
+        this.queue = new TimingWheelEventQueue();
+        this.discreteClock = null;
+        this.maxQueueSize = Integer.MAX_VALUE;
         this.executor = Executors.newSingleThreadExecutor(Threads.createFactory("BufferedProducer"));
         this.active = new AtomicBoolean(false);
     }
@@ -111,6 +189,7 @@ public class BufferedProducer implements Producer, Listener {
     public void consume(final EventKey eventKey, final Object event) throws Exception {
 
         if(!active.get()) {
+            rejected.increment();
             throw new IllegalStateException("Producer is not active");
         }
 
@@ -119,10 +198,15 @@ public class BufferedProducer implements Producer, Listener {
 
             try {
 
-                final DelayedEvent newEntry  = new DelayedEvent(eventKey, (TimedEvent) event);
+                final long newTime = ScheduledEvent.getTimeMillis((TimedEvent) event);
 
-                // timed queue allows for all instrument events within the time window to be added to the queue
-                if ((newEntry.getEvent().getTime().getTime()-clock.currentTimeMillis()) > DEFAULT_TIMED_QUEUE_LENGTH) {
+                if (discreteClock != null) {
+                    awaitNotFull();
+                    if (newTime < clock.currentTimeMillis()) {
+                        late.increment();
+                    }
+                } else if ((newTime - clock.currentTimeMillis()) > DEFAULT_TIMED_QUEUE_LENGTH) {
+                    // timed queue allows for all instrument events within the time window to be added to the queue
                     try {
                         // wait for a maximum of 500 ms for event delay
                         // this prevents potentially waiting a long time for an illiquid symbol
@@ -137,17 +221,17 @@ public class BufferedProducer implements Producer, Listener {
                  * in case the producer was stopped while we were waiting for space on the queue
                  */
                 if(!active.get()) {
+                    dropped.increment();
+                    Listeners.release(event);
                     return;
                 }
                 
-                final DelayedEvent nextEntry = queue.peek();
+                final long nextTime = queue.nextEventTime();
 
-                final Long newDelay          = newEntry.getEndOfDelay();
-                final Long nextDelay         = nextEntry == null ? null : nextEntry.getEndOfDelay();
+                queue.put(eventKey, (TimedEvent) event);
+                queueSize = queue.size();
 
-                queue.put(newEntry);
-
-                if(nextDelay == null || newDelay < nextDelay) {
+                if(newTime < nextTime) {
                     //signal notEmpty. The new event is to be processed earlier than the current earliest event.
                     notEmpty.signalAll();
                 }
@@ -155,6 +239,7 @@ public class BufferedProducer implements Producer, Listener {
                 lock.unlock();
             }
         } else {
+            rejected.increment();
             throw new IllegalArgumentException("Event is not of type TimedEvent. " + event);
         }
     }
@@ -172,21 +257,28 @@ public class BufferedProducer implements Producer, Listener {
 
                     lock.lock();
                     try {
-                        DelayedEvent entry = queue.poll();
+                        final long now = advanceDiscreteClock();
+                        ScheduledEvent entry = queue.poll(now);
 
-                        if (entry != null) {
+                        if (entry != null && listener instanceof BatchListener) {
+                            dispatchBatch(entry, now);
+                        } else if (entry != null) {
                             try {
                                 listener.consume(entry.getEventKey(), entry.getEvent());
+                                published.increment();
                             } catch (Exception e) {
                                 LOG.error("Exception caught while dispatching event", e);
+                                Listeners.release(entry.getEvent());
                             } finally {
+                                queue.recycle(entry);
                                 notFull.signalAll();
                             }
                         } else {
-                            entry = queue.peek();
-                            waitOnEmpty(entry == null ? null : entry.getEndOfDelay());
+                            final long nextTime = queue.nextEventTime();
+                            waitOnEmpty(nextTime == Long.MAX_VALUE ? null : Math.max(0, nextTime - now));
                         }
                     } finally {
+                        queueSize = queue.size();
                         lock.unlock();
                     }
                 }
@@ -196,12 +288,48 @@ public class BufferedProducer implements Producer, Listener {
         });
     }
 
+    /**
+     * Publish the given entry with every other event due now as one batch. Must be called holding lock.
+     */
+    private void dispatchBatch(ScheduledEvent first, long now) {
+        int length = 0;
+        ScheduledEvent entry = first;
+        while (entry != null) {
+            batchKeys[length] = entry.getEventKey();
+            batchEvents[length] = entry.getEvent();
+            length++;
+            queue.recycle(entry);
+
+            entry = length < MAX_BATCH_SIZE ? queue.poll(now) : null;
+        }
+
+        try {
+            ((BatchListener) listener).consumeBatch(batchKeys, batchEvents, 0, length);
+            published.add(length);
+        } catch (Exception e) {
+            LOG.error("Exception caught while dispatching " + length + " events", e);
+            Listeners.release(batchEvents, 0, length);
+        } finally {
+            for (int i = 0; i < length; i++) {
+                batchKeys[i] = null;
+                batchEvents[i] = null;
+            }
+            notFull.signalAll();
+        }
+    }
+
     public void stop() throws Exception {
         active.compareAndSet(true, false);
 
         lock.lock();
         try {
-            queue.clear();
+            dropped.add(queue.size());
+            while (queue.size() > 0) {
+                ScheduledEvent entry = queue.poll(queue.nextEventTime());
+                Listeners.release(entry.getEvent());
+                queue.recycle(entry);
+            }
+            queueSize = 0;
             notFull.signalAll();
             notEmpty.signalAll();
         } finally {
@@ -209,94 +337,83 @@ public class BufferedProducer implements Producer, Listener {
         }
     }
 
-    @SuppressWarnings("AwaitNotInLoop")
-    private void waitOnEmpty(Long duration) {
-        try {
-            if(duration == null) {
-                notEmpty.await();
-            } else {
-                notEmpty.await(duration, TimeUnit.MILLISECONDS);
-            }
-        } catch (InterruptedException e) {
-            //ignore
-        }
+    public int getQueueSize() {
+        return queueSize;
     }
 
-    private Date normalizeOffsetTime(String timeOffset) {
-
-        SimpleDateFormat startTimeDataFormatter = new SimpleDateFormat("HH:mm:ss");
-        Date offsetTime = null;
-        try {
-            offsetTime = startTimeDataFormatter.parse(timeOffset);
-        } catch (ParseException e) {
-            e.printStackTrace();
-        }
-
-        Calendar now = Calendar.getInstance();
+    /**
+     * @return true in discrete event mode, where this producer sets its clock to the time of each event
+     */
+    public boolean isDiscrete() {
+        return discreteClock != null;
+    }
 
-        now.setTime(new Date());
+    public long getPublishedCount() {
+        return published.get();
+    }
 
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(offsetTime);
+    public long getRejectedCount() {
+        return rejected.get();
+    }
 
-        cal.set(Calendar.YEAR, now.get(Calendar.YEAR));
-        cal.set(Calendar.MONTH, now.get(Calendar.MONTH));
-        cal.set(Calendar.DATE, now.get(Calendar.DATE));
+    public long getDroppedCount() {
+        return dropped.get();
+    }
 
-        return cal.getTime();
+    public long getLateCount() {
+        return late.get();
     }
 
     /**
-     * {@link Delayed} implementation to wrap individual events
+     * In discrete event mode, set the clock to the time of the next event if it is ahead. Must be called holding lock.
+     *
+     * @return the current time
      */
-    private class DelayedEvent implements Delayed {
-
-        private final TimedEvent event;
-        private final EventKey eventKey;
-
-        private DelayedEvent(EventKey eventKey, TimedEvent event) {
-            this.eventKey = eventKey;
-            this.event = event;
-        }
-
-        private long getEndOfDelay() {
-            return Math.max(0, event.getTime().getTime() - clock.currentTimeMillis());
-        }
-
-        public long getDelay(TimeUnit unit) {
-            return unit.convert(getEndOfDelay(), TimeUnit.MILLISECONDS);
-        }
-
-        public int compareTo(Delayed o) {
-            return event.getTime().compareTo(((DelayedEvent) o).event.getTime());
-        }
-
-        public TimedEvent getEvent() {
-            return event;
+    private long advanceDiscreteClock() {
+        long now = clock.currentTimeMillis();
+        if(discreteClock != null) {
+            long nextTime = queue.nextEventTime();
+            if(nextTime != Long.MAX_VALUE && nextTime > now) {
+                discreteClock.setTime(nextTime);
+                now = nextTime;
+            }
         }
+        return now;
+    }
 
-        public EventKey getEventKey() {
-            return eventKey;
+    /**
+     * Wait until fewer than maxQueueSize events are queued or the producer is stopped. Must be called holding lock.
+     */
+    private void awaitNotFull() {
+        while(queue.size() >= maxQueueSize && active.get()) {
+            try {
+                notFull.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
         }
+    }
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-
-            final DelayedEvent that = (DelayedEvent) o;
-
-            return getEndOfDelay() == getEndOfDelay() &&
-                    !(event != null ? !event.equals(that.event) : that.event != null);
+    @SuppressWarnings("AwaitNotInLoop")
+    private void waitOnEmpty(Long duration) {
+        try {
+            if(duration == null) {
+                notEmpty.await();
+            } else {
+                notEmpty.await(duration, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            //ignore
         }
+    }
 
-        @Override
-        public int hashCode() {
-            long endOfDelay = getEndOfDelay();
-
-            int result = event != null ? event.hashCode() : 0;
-            result = 31 * result + (int) (endOfDelay ^ (endOfDelay >>> 32));
-            return result;
-        }
+    /**
+     * @param timeOffset the time of day in the HH:mm:ss format
+     * @return the time of day, today
+     */
+    private Date normalizeOffsetTime(String timeOffset) {
+        long timeOfDay = EpochDates.parseTimeOfDay(timeOffset);
+        return new Date(EpochDates.DEFAULT.getDayAt(System.currentTimeMillis(), timeOfDay));
     }
 }
@@ -0,0 +1,169 @@
+package com.proto.core.event;
+
+import com.proto.core.monitoring.StripedCounter;
+import com.proto.core.monitoring.TranslatorCacheMXBean;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link Translator} decorator caching the translations of event keys to subjects and back, so the set of
+ * subjects in use is translated once instead of on every message.
+ *
+ * Each direction is cached in a direct mapped table: a key or subject hashes to one entry, holding the last pair
+ * translated to that entry. A translation hashing to an occupied entry evicts it. Entries are immutable and
+ * replaced atomically, so lookups take no lock and a hit does not allocate. Events are translated by the
+ * underlying translator.
+ *
+ * The underlying translator must translate a key or subject to the same value every time.
+ *
+ * CachingTranslator is thread-safe if the underlying translator is.
+ *
+ * @author wfrancis
+ */
+public class CachingTranslator<T> implements Translator<T>, TranslatorCacheMXBean {
+
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+
+    private final Translator<T> translator;
+
+    private final AtomicReferenceArray<Entry> byKey;
+
+    private final AtomicReferenceArray<Entry> bySubject;
+
+    private final int mask;
+
+    private final StripedCounter keyHits = new StripedCounter();
+
+    private final StripedCounter keyMisses = new StripedCounter();
+
+    private final StripedCounter subjectHits = new StripedCounter();
+
+    private final StripedCounter subjectMisses = new StripedCounter();
+
+    private final StripedCounter evictions = new StripedCounter();
+
+    public CachingTranslator(Translator<T> translator) {
+        this(translator, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param translator the translator to cache
+     * @param cacheSize  the number of entries of each cache, rounded up to a power of two
+     */
+    public CachingTranslator(Translator<T> translator, int cacheSize) {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("Cache size must be positive: " + cacheSize);
+        }
+        int size = cacheSize == 1 ? 1 : Integer.highestOneBit(cacheSize - 1) << 1;
+        this.translator = translator;
+        this.byKey = new AtomicReferenceArray<Entry>(size);
+        this.bySubject = new AtomicReferenceArray<Entry>(size);
+        this.mask = size - 1;
+    }
+
+    public T translate(Object o) throws TranslationException {
+        return translator.translate(o);
+    }
+
+    public Object untranslate(T o) throws TranslationException {
+        return translator.untranslate(o);
+    }
+
+    public String translateEventKey(EventKey eventKey) throws TranslationException {
+        int index = index(eventKey.hashCode());
+        Entry entry = byKey.get(index);
+        if (entry != null && (entry.eventKey == eventKey || entry.eventKey.equals(eventKey))) {
+            keyHits.increment();
+            return entry.subject;
+        }
+
+        keyMisses.increment();
+        String subject = translator.translateEventKey(eventKey);
+        store(byKey, index, entry, new Entry(eventKey, subject));
+        return subject;
+    }
+
+    public EventKey untranslateEventKey(String subject) throws TranslationException {
+        int index = index(subject.hashCode());
+        Entry entry = bySubject.get(index);
+        if (entry != null && (entry.subject == subject || entry.subject.equals(subject))) {
+            subjectHits.increment();
+            return entry.eventKey;
+        }
+
+        subjectMisses.increment();
+        EventKey eventKey = translator.untranslateEventKey(subject);
+        store(bySubject, index, entry, new Entry(eventKey, subject));
+        return eventKey;
+    }
+
+    public int getVersion() {
+        return translator.getVersion();
+    }
+
+    public int getTranslationLifetime() {
+        return translator.getTranslationLifetime();
+    }
+
+    public boolean isUntranslatingViews() {
+        return translator.isUntranslatingViews();
+    }
+
+    /**
+     * Remove every cached translation, i.e. after the mapping of the underlying translator changed.
+     */
+    public void clear() {
+        for (int i = 0; i <= mask; i++) {
+            byKey.set(i, null);
+            bySubject.set(i, null);
+        }
+    }
+
+    public int getCacheSize() {
+        return mask + 1;
+    }
+
+    public long getKeyHitCount() {
+        return keyHits.get();
+    }
+
+    public long getKeyMissCount() {
+        return keyMisses.get();
+    }
+
+    public long getSubjectHitCount() {
+        return subjectHits.get();
+    }
+
+    public long getSubjectMissCount() {
+        return subjectMisses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private void store(AtomicReferenceArray<Entry> cache, int index, Entry previous, Entry entry) {
+        if (previous != null) {
+            evictions.increment();
+        }
+        cache.lazySet(index, entry);
+    }
+
+    private int index(int hashCode) {
+        int h = hashCode * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static final class Entry {
+
+        final EventKey eventKey;
+
+        final String subject;
+
+        Entry(EventKey eventKey, String subject) {
+            this.eventKey = eventKey;
+            this.subject = subject;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.proto.core.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Book-keeping of the channels and wildcard registrations behind a {@link ChannelManager}.
+ *
+ * Channels are found by interned event key id on the publishing path. Wildcard registrations and channels are
+ * also indexed by {@link SubscriptionTrie}, so creating a channel or registering a pattern only visits the
+ * patterns and channels that match.
+ *
+ * ChannelDirectory is not thread-safe, the owning manager must confine it to its dispatch thread. Only the
+ * gauges, {@link #getChannelCount()}, {@link #getListenerCount()} and {@link #getChannels()}, can be read from
+ * any thread: channels are appended to arrays published through a volatile count.
+ *
+ * @author wfrancis
+ */
+class ChannelDirectory {
+
+    /**
+     * Factory for the channel
+     */
+    private final ChannelFactory channelFactory;
+
+    /**
+     * The manager that owns the channels
+     */
+    private final Listener manager;
+
+    /**
+     * Interns event keys into the ids indexing channelsById
+     */
+    private final EventKeyRegistry registry;
+
+    /**
+     * Wildcard registration
+     */
+    private final SubscriptionTrie<Listener> wRegistrations = new SubscriptionTrie<Listener>();
+
+    /**
+     * Channels for each event key, indexed by subject for wildcard lookups
+     */
+    private final SubscriptionTrie<Channel> channels = new SubscriptionTrie<Channel>();
+
+    /**
+     * Channels for each event key, indexed by interned key id
+     */
+    private Channel[] channelsById = new Channel[0];
+
+    /**
+     * Number of channels, written after the channel is appended to createdKeys and createdChannels
+     */
+    private volatile int channelCount;
+
+    /**
+     * Number of listener registrations across the channels
+     */
+    private volatile int listenerCount;
+
+    /**
+     * Event keys and channels in the order they were created, the first channelCount entries are set
+     */
+    private volatile InternedEventKey[] createdKeys = new InternedEventKey[16];
+    private volatile Channel[] createdChannels = new Channel[16];
+
+    /**
+     * @param channelFactory factory used to create new channels
+     * @param manager        manager set on every channel a listener is registered to
+     * @param registry       registry interning the event keys
+     */
+    ChannelDirectory(ChannelFactory channelFactory, Listener manager, EventKeyRegistry registry) {
+        this.channelFactory = channelFactory;
+        this.manager = manager;
+        this.registry = registry;
+    }
+
+    /**
+     * Register a listener for a regular or a wildcard event key
+     */
+    void registerListener(EventKey eventKey, Listener listener) {
+        String eventKeyString = eventKey.toString();
+
+        if(!SubscriptionTrie.isPattern(eventKeyString)) {
+            Channel channel = getChannel(eventKey);
+            register(channel, listener);
+        }
+        else {
+            for(Channel channel : getChannels(eventKeyString)) {
+                register(channel, listener);
+            }
+            wRegistrations.add(eventKeyString, listener);
+        }
+    }
+
+    /**
+     * Unregister a listener from a regular or a wildcard event key
+     */
+    void unregisterListener(EventKey eventKey, Listener listener) {
+        String eventKeyString = eventKey.toString();
+
+        if(!SubscriptionTrie.isPattern(eventKeyString)) {
+            Channel channel = findChannel(eventKey);
+            if(channel != null) {
+                unregister(channel, listener);
+            }
+        }
+        else {
+            for(Channel channel : getChannels(eventKeyString)) {
+                unregister(channel, listener);
+            }
+            wRegistrations.remove(eventKeyString, listener);
+        }
+    }
+
+    /**
+     * Get a channel for a regular event key. Create if there isn't one existing.
+     * When creating a channel, search the wildcard registered listeners and include
+     * them into the channel if they matches the event key.
+     */
+    Channel getChannel(EventKey regularEventKey) {
+        InternedEventKey interned = registry.intern(regularEventKey);
+        int id = interned.getId();
+
+        Channel channel = id < channelsById.length ? channelsById[id] : null;
+        if(channel == null) {
+            String eventKeyString = regularEventKey.toString();
+            channel = channelFactory.allocate();
+            includeWildcardRegistration(channel, eventKeyString);
+            channels.add(eventKeyString, channel);
+            append(interned, channel);
+
+            if(id >= channelsById.length) {
+                channelsById = Arrays.copyOf(channelsById, Math.max(id + 1, registry.size()));
+            }
+            channelsById[id] = channel;
+        }
+        return channel;
+    }
+
+    /**
+     * Find the channel of a regular event key without interning the key or creating the channel.
+     *
+     * @return the channel, or null if there is none
+     */
+    Channel findChannel(EventKey regularEventKey) {
+        InternedEventKey interned = regularEventKey instanceof InternedEventKey
+                && ((InternedEventKey) regularEventKey).getRegistry() == registry
+                ? (InternedEventKey) regularEventKey
+                : registry.lookup(regularEventKey.toString());
+        if(interned == null || interned.getId() >= channelsById.length) {
+            return null;
+        }
+        return channelsById[interned.getId()];
+    }
+
+    /**
+     * @return the number of channels
+     */
+    int getChannelCount() {
+        return channelCount;
+    }
+
+    /**
+     * @return the number of listener registrations across the channels
+     */
+    int getListenerCount() {
+        return listenerCount;
+    }
+
+    /**
+     * @return every channel by event key, in the order they were created
+     */
+    Map<InternedEventKey, Channel> getChannels() {
+        int count = channelCount;
+        InternedEventKey[] keys = createdKeys;
+        Channel[] created = createdChannels;
+
+        Map<InternedEventKey, Channel> res = new LinkedHashMap<InternedEventKey, Channel>();
+        for(int i = 0; i < count; i++) {
+            res.put(keys[i], created[i]);
+        }
+        return res;
+    }
+
+    /**
+     * Append a new channel, growing the arrays before publishing the new count
+     */
+    private void append(InternedEventKey eventKey, Channel channel) {
+        int count = channelCount;
+        if(count == createdKeys.length) {
+            createdKeys = Arrays.copyOf(createdKeys, count * 2);
+            createdChannels = Arrays.copyOf(createdChannels, count * 2);
+        }
+        createdKeys[count] = eventKey;
+        createdChannels[count] = channel;
+        channelCount = count + 1;
+    }
+
+    /**
+     * Get a list of channels matching a wildcard event key.
+     */
+    private List<Channel> getChannels(String wildcardEventKey) {
+        List<Channel> res = new ArrayList<Channel>();
+        channels.collectMatching(wildcardEventKey, res);
+        return res;
+    }
+
+    /**
+     * Search in the wild card registration records, register them to the channel if
+     * they match a specific event key string
+     */
+    private void includeWildcardRegistration(Channel channel, String regularEventKey) {
+        List<Listener> listeners = new ArrayList<Listener>();
+        wRegistrations.collectMatches(regularEventKey, listeners);
+        for(Listener listener : listeners) {
+            register(channel, listener);
+        }
+    }
+
+    /**
+     * Register a listener to a channel
+     */
+    private void register(Channel channel, Listener listener) {
+        channel.setManager(manager);
+        if(channel.registerListener(listener) == ReturnValue.OK) {
+            listenerCount++;
+        }
+    }
+
+    /**
+     * Ungister a listener to a channel
+     */
+    private void unregister(Channel channel, Listener listener) {
+        channel.setManager(null);
+        if(channel.unregisterListener(listener) == ReturnValue.OK) {
+            listenerCount--;
+        }
+    }
+}
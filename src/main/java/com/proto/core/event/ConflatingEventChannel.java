@@ -0,0 +1,111 @@
+package com.proto.core.event;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An event channel that conflates events for its listeners, so a slow listener never backs up the
+ * channel manager thread.
+ *
+ * Each listener is wrapped in a {@link ConflatingListener} that keeps only the latest event per {@link EventKey}
+ * and delivers it on its own thread. Channels allocated from the same factory share the wrapper of a listener,
+ * so a listener registered on many keys has a single delivery thread and a single set of conflation counters.
+ * The wrapper counts the channels the listener is registered on, and is stopped when the last one unregisters it.
+ *
+ * To conflate only some listeners, register them wrapped in a {@link ConflatingListener} on a
+ * {@link SimpleEventChannel} instead.
+ *
+ * @author wfrancis
+ */
+public class ConflatingEventChannel extends SimpleEventChannel {
+
+    /**
+     * Conflating wrapper of each listener, shared by every channel allocated from the same factory.
+     * The map is the lock guarding the registration counts.
+     */
+    private final Map<Listener, Registration> registrations;
+
+    public ConflatingEventChannel() {
+        this(new HashMap<Listener, Registration>());
+    }
+
+    private ConflatingEventChannel(Map<Listener, Registration> registrations) {
+        this.registrations = registrations;
+    }
+
+    @Override
+    public ReturnValue registerListener(Listener listener) {
+        synchronized (registrations) {
+            Registration registration = registrations.get(listener);
+            if (registration == null) {
+                registration = new Registration(new ConflatingListener(listener));
+                registrations.put(listener, registration);
+            }
+
+            ReturnValue result = super.registerListener(registration.conflatingListener);
+            if (result == ReturnValue.OK) {
+                registration.channelCount++;
+            }
+            return result;
+        }
+    }
+
+    @Override
+    public ReturnValue unregisterListener(Listener listener) {
+        synchronized (registrations) {
+            Registration registration = registrations.get(listener);
+            if (registration == null) {
+                return ReturnValue.IGNORED;
+            }
+
+            ReturnValue result = super.unregisterListener(registration.conflatingListener);
+            if (result == ReturnValue.OK && --registration.channelCount == 0) {
+                registrations.remove(listener);
+                registration.conflatingListener.stop();
+            }
+            return result;
+        }
+    }
+
+    @Override
+    public Channel allocate() {
+        return new ConflatingEventChannel(registrations);
+    }
+
+    /**
+     * @return the conflating wrapper of a listener, holding its conflation counters, or null if the listener
+     * is not registered on any channel of this factory.
+     */
+    public ConflatingListener getConflatingListener(Listener listener) {
+        synchronized (registrations) {
+            Registration registration = registrations.get(listener);
+            return registration == null ? null : registration.conflatingListener;
+        }
+    }
+
+    /**
+     * Stop the delivery threads of every listener registered through this factory.
+     */
+    public void stop() {
+        synchronized (registrations) {
+            for (Registration registration : registrations.values()) {
+                registration.conflatingListener.stop();
+            }
+            registrations.clear();
+        }
+    }
+
+    /**
+     * The conflating wrapper of a listener and the number of channels it is registered on
+     */
+    private static final class Registration {
+
+        private final ConflatingListener conflatingListener;
+
+        private int channelCount;
+
+        private Registration(ConflatingListener conflatingListener) {
+            this.conflatingListener = conflatingListener;
+        }
+    }
+}
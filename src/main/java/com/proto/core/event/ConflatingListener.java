@@ -0,0 +1,223 @@
+package com.proto.core.event;
+
+import com.proto.utils.Pair;
+import com.proto.utils.Threads;
+import org.apache.log4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Listener} that shields a slow listener from a fast feed by keeping only the latest event per
+ * {@link EventKey}.
+ *
+ * Events are accepted without blocking and handed to the slow listener on a dedicated thread. While an event is
+ * waiting for the slow listener, a newer event for the same key replaces it and the replaced event is counted as
+ * dropped, so the backlog never exceeds one event per key. Keys are delivered in the order they first became
+ * pending. {@link ControlEvent}s are never conflated.
+ * A {@link ReferenceCounted} event is retained while pending and released once delivered or replaced, so the slow
+ * listener borrows it for its consume call, as it would from a channel. Once stopped, events are dropped without
+ * being retained.
+ *
+ * ConflatingListener is thread-safe.
+ *
+ * @author wfrancis
+ */
+public class ConflatingListener implements Listener {
+
+    private static final Logger LOG = Logger.getLogger(ConflatingListener.class);
+
+    /**
+     * The slow listener
+     */
+    private final Listener listener;
+
+    /**
+     * The latest undelivered event of each key
+     */
+    private final ConcurrentHashMap<EventKey, Object> pending = new ConcurrentHashMap<EventKey, Object>();
+
+    /**
+     * Keys with a pending event and control events, in delivery order
+     */
+    private final LinkedBlockingQueue<Object> ready = new LinkedBlockingQueue<Object>();
+
+    /**
+     * Dropped events per key
+     */
+    private final ConcurrentHashMap<EventKey, AtomicLong> droppedByKey = new ConcurrentHashMap<EventKey, AtomicLong>();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong delivered = new AtomicLong();
+
+    /**
+     * ConflatingListener uses executor as its delivery thread.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * true until the listener is stopped
+     */
+    private final AtomicBoolean active;
+
+    /**
+     * @param listener the slow listener
+     */
+    public ConflatingListener(Listener listener) {
+        this.listener = listener;
+        this.executor = Executors.newSingleThreadExecutor(Threads.createFactory("ConflatingListener", true));
+        this.active = new AtomicBoolean(true);
+
+        executor.submit(new Runnable() {
+            public void run() {
+                deliveryLoop();
+            }
+        });
+    }
+
+    public void consume(EventKey eventKey, Object event) throws Exception {
+        if (!active.get()) {
+            return;
+        }
+
+        if (event instanceof ControlEvent) {
+            ready.add(Pair.create(eventKey, event));
+            return;
+        }
+
+        Listeners.retain(event);
+        Object previous = pending.put(eventKey, event);
+        if (previous == null) {
+            ready.add(eventKey);
+        } else {
+            Listeners.release(previous);
+            dropped.incrementAndGet();
+            getDroppedCounter(eventKey).incrementAndGet();
+        }
+
+        // stopped meanwhile, release the event unless stop already discarded it
+        if (!active.get() && pending.remove(eventKey, event)) {
+            Listeners.release(event);
+        }
+    }
+
+    /**
+     * @return the slow listener
+     */
+    public Listener getListener() {
+        return listener;
+    }
+
+    /**
+     * @return the number of events replaced by a newer event before delivery
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the number of events of a key replaced by a newer event before delivery
+     */
+    public long getDroppedCount(EventKey eventKey) {
+        AtomicLong counter = droppedByKey.get(eventKey);
+        return counter == null ? 0 : counter.get();
+    }
+
+    /**
+     * @return a snapshot of the number of dropped events of every key that had at least one
+     */
+    public Map<EventKey, Long> getDroppedCounts() {
+        Map<EventKey, Long> counts = new HashMap<EventKey, Long>();
+        for (Map.Entry<EventKey, AtomicLong> entry : droppedByKey.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+
+    /**
+     * @return the number of events handed to the slow listener
+     */
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    /**
+     * @return the number of keys and control events waiting for the slow listener
+     */
+    public int getBacklog() {
+        return ready.size();
+    }
+
+    /**
+     * Stop delivering. Pending events are discarded, events consumed from now on are dropped.
+     */
+    public void stop() {
+        active.set(false);
+        executor.shutdown();
+        for (EventKey eventKey : pending.keySet()) {
+            Listeners.release(pending.remove(eventKey));
+        }
+    }
+
+    private AtomicLong getDroppedCounter(EventKey eventKey) {
+        AtomicLong counter = droppedByKey.get(eventKey);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = droppedByKey.putIfAbsent(eventKey, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void deliveryLoop() {
+        while (active.get()) {
+            Object item;
+            try {
+                item = ready.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (item == null) {
+                continue;
+            }
+
+            EventKey eventKey;
+            Object event;
+            if (item instanceof Pair) {
+                Pair<EventKey, Object> control = (Pair<EventKey, Object>) item;
+                eventKey = control.getA();
+                event = control.getB();
+            } else {
+                eventKey = (EventKey) item;
+                event = pending.remove(eventKey);
+                if (event == null) {
+                    continue;
+                }
+            }
+
+            try {
+                listener.consume(eventKey, event);
+                delivered.incrementAndGet();
+            } catch (Exception e) {
+                LOG.error("Error consume, eventKey: " + eventKey + ", event: " + event + ".", e);
+            } finally {
+                if (!(item instanceof Pair)) {
+                    Listeners.release(event);
+                }
+            }
+        }
+
+        LOG.info(Thread.currentThread().getName() + " Exiting delivery loop");
+    }
+}
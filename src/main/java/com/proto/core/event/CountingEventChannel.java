@@ -1,28 +1,35 @@
 package com.proto.core.event;
 
 import java.util.HashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Map;
 
 /**
+ * A {@link SimpleEventChannel} that only forwards the first subscription and the last unsubscription
+ * of each event key. A channel only sees the control events of its own key, so the counts are kept in a
+ * small map by subject that is emptied when the last subscription goes.
+ *
  * @author wfrancis
  */
 public class CountingEventChannel extends SimpleEventChannel {
-    HashMap<String, AtomicInteger> subscriptionCountMap = new HashMap<String, AtomicInteger>();
-
 
+    /**
+     * Number of live subscriptions by subject, only holds subjects with live subscriptions. Guarded by this.
+     */
+    private final Map<String, Integer> subscriptionCounts = new HashMap<String, Integer>(2);
 
     @Override
     protected void subscribe(EventKey eventKey, SubscriptionControlEvent ce) throws Exception {
-        AtomicInteger subscriptionCount = subscriptionCountMap.get(eventKey.toString());
-        if (subscriptionCount == null) {
-            subscriptionCount = new AtomicInteger(0);
-            subscriptionCountMap.put(eventKey.toString(), subscriptionCount);
-        }
+        String subject = eventKey.toString();
 
-        subscriptionCount.getAndIncrement();
+        int subscriptionCount;
+        synchronized (this) {
+            Integer count = subscriptionCounts.get(subject);
+            subscriptionCount = count == null ? 1 : count + 1;
+            subscriptionCounts.put(subject, subscriptionCount);
+        }
 
         //only subscribe for the initial subscription
-        if (subscriptionCount.get() == 1) {
+        if (subscriptionCount == 1) {
             super.subscribe(eventKey, ce);
         }
         else { //subscription already exists.  Do nothing else.
@@ -31,25 +38,38 @@ public class CountingEventChannel extends SimpleEventChannel {
 
     @Override
     protected void unsubscribe(EventKey eventKey, UnsubscriptionControlEvent ce) throws Exception {
-        AtomicInteger subscriptionCount = subscriptionCountMap.get(eventKey.toString());
-        if (subscriptionCount == null) {
-            return;
-        }
+        String subject = eventKey.toString();
 
-        if (subscriptionCount.get() > 0) {
-            subscriptionCount.decrementAndGet();
-            if (subscriptionCount.get() > 0) {
-                return; //Return at this point since subscription is still alive.
+        int subscriptionCount;
+        synchronized (this) {
+            Integer count = subscriptionCounts.get(subject);
+            if (count == null) {
+                return; //Ignored since there is no subscription for this Client.
             }
-            else { //unsubscribe from producer since there are no more clients interested.
-                super.unsubscribe(eventKey, ce);
+            subscriptionCount = count - 1;
+            if (subscriptionCount > 0) {
+                subscriptionCounts.put(subject, subscriptionCount);
+            } else {
+                subscriptionCounts.remove(subject);
             }
         }
-        else {
-            return; //Ignored since there is no subscription for this Client.
+
+        if (subscriptionCount > 0) {
+            return; //Return at this point since subscription is still alive.
+        }
+        else { //unsubscribe from producer since there are no more clients interested.
+            super.unsubscribe(eventKey, ce);
         }
     }
 
+    /**
+     * @return the number of live subscriptions for the event key
+     */
+    public synchronized int getSubscriptionCount(EventKey eventKey) {
+        Integer count = subscriptionCounts.get(eventKey.toString());
+        return count == null ? 0 : count;
+    }
+
     @Override
     public Channel allocate() {
         return new CountingEventChannel();
@@ -8,6 +8,7 @@ package com.proto.core.event;
 public interface EventKey {
 
     public static final String wildChar = ">";
+    public static final String segmentWildChar = "*";
     public static final String stringDelimiter= ".";
     /**
      * Check if the current key matches another key
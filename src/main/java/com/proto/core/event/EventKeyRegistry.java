@@ -0,0 +1,97 @@
+package com.proto.core.event;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns event keys into dense integer ids.
+ *
+ * Each distinct subject, i.e. {@link EventKey#toString()}, is interned once into an {@link InternedEventKey}
+ * carrying an id in [0, size). Channel managers use the id to find channels by array indexing instead of
+ * comparing strings. Publishers should intern their keys once and publish with the returned handle, which is
+ * then resolved without any lookup at all.
+ *
+ * EventKeyRegistry is thread-safe. Interned keys are never released, so a registry lives as long as the components
+ * sharing it: each channel manager, translator or feed interns into its own registry unless given a shared one.
+ *
+ * @author wfrancis
+ */
+public class EventKeyRegistry {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Interned keys by subject
+     */
+    private final ConcurrentHashMap<String, InternedEventKey> bySubject = new ConcurrentHashMap<String, InternedEventKey>();
+
+    /**
+     * Interned keys by id, replaced whenever a key is added
+     */
+    private volatile InternedEventKey[] byId = new InternedEventKey[INITIAL_CAPACITY];
+
+    /**
+     * Number of interned keys, guarded by this
+     */
+    private int size;
+
+    /**
+     * @return the handle of the event key, interning it if this is the first time its subject is seen.
+     */
+    public InternedEventKey intern(EventKey eventKey) {
+        if (eventKey instanceof InternedEventKey) {
+            InternedEventKey interned = (InternedEventKey) eventKey;
+            if (interned.getRegistry() == this) {
+                return interned;
+            }
+        }
+        return intern(eventKey.toString());
+    }
+
+    /**
+     * @return the handle of the subject, interning it if this is the first time it is seen.
+     */
+    public InternedEventKey intern(String subject) {
+        InternedEventKey interned = bySubject.get(subject);
+        if (interned != null) {
+            return interned;
+        }
+
+        synchronized (this) {
+            interned = bySubject.get(subject);
+            if (interned == null) {
+                InternedEventKey[] keys = byId;
+                if (size == keys.length) {
+                    keys = Arrays.copyOf(keys, keys.length * 2);
+                }
+                interned = new InternedEventKey(this, size, subject);
+                keys[size++] = interned;
+                byId = keys;
+                bySubject.put(subject, interned);
+            }
+            return interned;
+        }
+    }
+
+    /**
+     * @return the interned key of a subject, or null if the subject has never been interned.
+     */
+    public InternedEventKey lookup(String subject) {
+        return bySubject.get(subject);
+    }
+
+    /**
+     * @return the interned key with the given id, or null if there is none.
+     */
+    public InternedEventKey get(int id) {
+        InternedEventKey[] keys = byId;
+        return id >= 0 && id < keys.length ? keys[id] : null;
+    }
+
+    /**
+     * @return the number of interned keys, all ids are below this value.
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
@@ -0,0 +1,80 @@
+package com.proto.core.event;
+
+/**
+ * A pre-resolved event key handle produced by an {@link EventKeyRegistry}.
+ *
+ * Besides the subject it carries the dense id assigned by its registry and whether the subject
+ * is a wildcard, so channel managers resolve it without string operations.
+ *
+ * @author wfrancis
+ */
+public final class InternedEventKey implements EventKey {
+
+    private final EventKeyRegistry registry;
+    private final int id;
+    private final String s;
+    private final boolean wildcard;
+
+    InternedEventKey(EventKeyRegistry registry, int id, String s) {
+        if(s == null) {
+            throw new IllegalArgumentException("Not supporting null value in constructor");
+        }
+        this.registry = registry;
+        this.id = id;
+        this.s = s;
+        this.wildcard = SubscriptionTrie.isPattern(s);
+    }
+
+    /**
+     * @return the dense id assigned by the registry
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return the registry that interned this key
+     */
+    public EventKeyRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * @return true if the subject is a wildcard subject, which can only be used for registration
+     */
+    public boolean isWildcard() {
+        return wildcard;
+    }
+
+    public boolean matches(EventKey other) {
+        if (s.equals("*"))
+            return true;
+        if (other.toString().equals(("*")))
+            return true;
+        return s.equals(other.toString());
+    }
+
+    public String getNamespace() {
+        return "";
+    }
+
+    @Override
+    public String toString() {
+        return s;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        final InternedEventKey that = (InternedEventKey) o;
+
+        return s.equals(that.s);
+    }
+
+    @Override
+    public int hashCode() {
+        return s.hashCode();
+    }
+}
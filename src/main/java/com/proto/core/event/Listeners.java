@@ -0,0 +1,53 @@
+package com.proto.core.event;
+
+/**
+ * Utilities for delivering events to {@link Listener}s.
+ *
+ * @author wfrancis
+ */
+public final class Listeners {
+
+    private Listeners() {
+    }
+
+    /**
+     * Deliver a batch of events in one call if the listener is a {@link BatchListener}, otherwise one at a time.
+     * An exception thrown by the listener stops the delivery of the rest of the batch.
+     */
+    public static void deliver(Listener listener, EventKey[] eventKeys, Object[] events, int offset, int length) throws Exception {
+        if (listener instanceof BatchListener) {
+            ((BatchListener) listener).consumeBatch(eventKeys, events, offset, length);
+        } else {
+            for (int i = offset; i < offset + length; i++) {
+                listener.consume(eventKeys[i], events[i]);
+            }
+        }
+    }
+
+    /**
+     * Add a reference to an event if it is {@link ReferenceCounted}
+     */
+    public static void retain(Object event) {
+        if (event instanceof ReferenceCounted) {
+            ((ReferenceCounted) event).retain();
+        }
+    }
+
+    /**
+     * Drop a reference to an event if it is {@link ReferenceCounted}
+     */
+    public static void release(Object event) {
+        if (event instanceof ReferenceCounted) {
+            ((ReferenceCounted) event).release();
+        }
+    }
+
+    /**
+     * Drop a reference to each event of a batch that is {@link ReferenceCounted}
+     */
+    public static void release(Object[] events, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            release(events[i]);
+        }
+    }
+}
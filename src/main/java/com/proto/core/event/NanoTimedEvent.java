@@ -0,0 +1,15 @@
+package com.proto.core.event;
+
+/**
+ * A {@link TimedEvent} that also carries its time as a primitive, so it can be scheduled
+ * without allocating a {@link java.util.Date}.
+ *
+ * @author wfrancis
+ */
+public interface NanoTimedEvent extends TimedEvent {
+
+    /**
+     * @return the time of the event in nanoseconds since the epoch
+     */
+    long getTimeNanos();
+}
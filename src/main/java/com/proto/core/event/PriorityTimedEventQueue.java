@@ -0,0 +1,58 @@
+package com.proto.core.event;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * {@link TimedEventQueue} backed by a binary heap. Insertion and removal cost O(log n).
+ *
+ * @author wfrancis
+ */
+public class PriorityTimedEventQueue implements TimedEventQueue {
+
+    private static final Comparator<ScheduledEvent> ORDER = new Comparator<ScheduledEvent>() {
+        public int compare(ScheduledEvent a, ScheduledEvent b) {
+            if (a.getTime() != b.getTime()) {
+                return a.getTime() < b.getTime() ? -1 : 1;
+            }
+            return a.sequence < b.sequence ? -1 : (a.sequence == b.sequence ? 0 : 1);
+        }
+    };
+
+    private final PriorityQueue<ScheduledEvent> queue = new PriorityQueue<ScheduledEvent>(64, ORDER);
+
+    private long sequence;
+
+    public void put(EventKey eventKey, TimedEvent event) {
+        ScheduledEvent entry = new ScheduledEvent(eventKey, event);
+        entry.sequence = sequence++;
+        queue.add(entry);
+    }
+
+    public ScheduledEvent poll(long now) {
+        ScheduledEvent entry = queue.peek();
+        if (entry == null || entry.getTime() > now) {
+            return null;
+        }
+        return queue.poll();
+    }
+
+    /**
+     * Entries are not reused.
+     */
+    public void recycle(ScheduledEvent entry) {
+    }
+
+    public long nextEventTime() {
+        ScheduledEvent entry = queue.peek();
+        return entry == null ? Long.MAX_VALUE : entry.getTime();
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    public void clear() {
+        queue.clear();
+    }
+}
@@ -1,28 +1,126 @@
 package com.proto.core.event;
 
+import com.proto.core.monitoring.LatencyMonitor;
+import com.proto.utils.Sequencer;
+import com.proto.utils.Threads;
+import org.apache.log4j.Logger;
+
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * A receiver support receiving typed object, and translated to object that consumed by one listener.
+ * With a {@link LatencyMonitor} set, the latency of each translated event is recorded at the
+ * {@link LatencyMonitor.Stage#RECEIVE} stage.
+ *
+ * By default received objects are translated and consumed one at a time on a single thread. With decode threads,
+ * objects are translated in parallel on a pool of that many threads, then consumed on a single delivery thread in
+ * the order they were received: each received object claims a slot of a reorder window, see {@link Sequencer},
+ * and the delivery thread consumes the slots in sequence as their translation completes. Receiving waits for room
+ * when the whole window is awaiting translation or delivery. Objects that fail to translate are logged and skipped.
+ * A translator untranslating into views, see {@link Translator#isUntranslatingViews()}, is rejected with decode
+ * threads.
  *
  * @author wfrancis
  */
 public abstract class Receiver<T> implements Producer {
 
+    private static final Logger LOG = Logger.getLogger(Receiver.class);
+
+    /**
+     * The default number of received objects that may await translation or delivery with decode threads
+     */
+    public static final int DEFAULT_REORDER_WINDOW = 1 << 14;
+
+    /**
+     * Time receiving parks while the reorder window is full
+     */
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+    /**
+     * Max time the delivery thread parks before checking whether the receiver was shut down
+     */
+    private static final long DELIVERY_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
     private final Translator<T> translator;
 
     private final AtomicReference<Listener> listenerRef = new AtomicReference<Listener>();
 
+    private volatile LatencyMonitor latencyMonitor;
+
     /**
      * Executor to run receiver
-     * This brings the tib message into the application     
+     * This brings the tib message into the application
+     * With decode threads, the pool translating received objects.
+     */
+    private final ExecutorService executorService;
+
+    /**
+     * Reorder window of translated events, null without decode threads
+     */
+    private final Sequencer reorder;
+
+    private final EventKey[] decodedKeys;
+
+    private final Object[] decodedEvents;
+
+    /**
+     * Thread consuming the translated events in order, null without decode threads
      */
-    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private final ExecutorService deliveryExecutor;
+
+    private volatile boolean shutdown;
 
     public Receiver(Translator<T> translator) {
+        this(translator, 0);
+    }
+
+    /**
+     * @param translator    translator to use for translating T to Object
+     * @param decodeThreads the number of threads translating in parallel, 0 to translate and consume on one thread
+     */
+    public Receiver(Translator<T> translator, int decodeThreads) {
+        this(translator, decodeThreads, DEFAULT_REORDER_WINDOW);
+    }
+
+    /**
+     * @param translator    translator to use for translating T to Object
+     * @param decodeThreads the number of threads translating in parallel, 0 to translate and consume on one thread
+     * @param reorderWindow the number of received objects that may await translation or delivery,
+     *                      must be a power of two
+     */
+    public Receiver(Translator<T> translator, int decodeThreads, int reorderWindow) {
+        if (decodeThreads < 0) {
+            throw new IllegalArgumentException("Decode threads must not be negative: " + decodeThreads);
+        }
+        // the reorder window holds several untranslated events of a decode thread
+        if (decodeThreads > 0 && translator.isUntranslatingViews()) {
+            throw new IllegalArgumentException("Views cannot be untranslated by " + decodeThreads + " decode threads");
+        }
         this.translator = translator;
+
+        if (decodeThreads == 0) {
+            this.executorService = Executors.newSingleThreadExecutor();
+            this.reorder = null;
+            this.decodedKeys = null;
+            this.decodedEvents = null;
+            this.deliveryExecutor = null;
+        } else {
+            this.executorService = Executors.newFixedThreadPool(decodeThreads, Threads.createFactory("ReceiverDecode", true));
+            this.reorder = new Sequencer(reorderWindow);
+            this.decodedKeys = new EventKey[reorderWindow];
+            this.decodedEvents = new Object[reorderWindow];
+            this.deliveryExecutor = Executors.newSingleThreadExecutor(Threads.createFactory("ReceiverDelivery", true));
+            deliveryExecutor.submit(new Runnable() {
+                public void run() {
+                    deliveryLoop();
+                }
+            });
+        }
     }
 
     @Override
@@ -30,8 +128,20 @@ public abstract class Receiver<T> implements Producer {
         this.listenerRef.set(listener);
     }
 
+    /**
+     * @param latencyMonitor the monitor recording the latency of received events, null to stop recording
+     */
+    public void setLatencyMonitor(LatencyMonitor latencyMonitor) {
+        this.latencyMonitor = latencyMonitor;
+    }
+
     public void receive(final String key, final T o) throws Exception {
 
+        if(reorder != null) {
+            receiveParallel(key, o);
+            return;
+        }
+
         executorService.submit(new Runnable() {
             @Override
             public void run() {
@@ -41,6 +151,11 @@ public abstract class Receiver<T> implements Producer {
                     eventKey = translator.untranslateEventKey(key);
                     untranslated = translator.untranslate(o);
 
+                    LatencyMonitor monitor = latencyMonitor;
+                    if(monitor != null) {
+                        monitor.record(LatencyMonitor.Stage.RECEIVE, eventKey, untranslated);
+                    }
+
                     Listener listener = listenerRef.get();
                     if(listener != null) {
                         listener.consume(eventKey, untranslated);
@@ -55,4 +170,110 @@ public abstract class Receiver<T> implements Producer {
 
     }
 
+    /**
+     * Stop translating and consuming received objects. Objects received afterwards are rejected, or dropped with
+     * decode threads.
+     */
+    public void shutdown() {
+        shutdown = true;
+        executorService.shutdown();
+        if(reorder != null) {
+            reorder.wakeUp();
+            deliveryExecutor.shutdown();
+        }
+    }
+
+    /**
+     * @return the number of received objects awaiting translation or delivery, 0 without decode threads
+     */
+    public long getBacklog() {
+        return reorder == null ? 0 : reorder.getBacklog();
+    }
+
+    private void receiveParallel(final String key, final T o) {
+        if(shutdown) {
+            return;
+        }
+
+        long claimed;
+        while((claimed = reorder.tryNext()) < 0) {
+            if(shutdown) {
+                return;
+            }
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+
+        final long sequence = claimed;
+        try {
+            executorService.execute(new Runnable() {
+                public void run() {
+                    decode(sequence, key, o);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // shut down since the slot was claimed, published empty so it is skipped
+            reorder.publish(sequence);
+        }
+    }
+
+    /**
+     * Translate a received object into its slot of the reorder window, on a decode thread.
+     */
+    private void decode(long sequence, String key, T o) {
+        int index = reorder.index(sequence);
+        try {
+            EventKey eventKey = translator.untranslateEventKey(key);
+            Object untranslated = translator.untranslate(o);
+
+            LatencyMonitor monitor = latencyMonitor;
+            if(monitor != null) {
+                monitor.record(LatencyMonitor.Stage.RECEIVE, eventKey, untranslated);
+            }
+
+            decodedKeys[index] = eventKey;
+            decodedEvents[index] = untranslated;
+        } catch (Exception e) {
+            LOG.error("Error un-translating, eventKey: " + key + ", event: " + o + ".", e);
+        } finally {
+            reorder.publish(sequence);
+        }
+    }
+
+    /**
+     * Consume the translated events in the order they were received, on the delivery thread.
+     */
+    private void deliveryLoop() {
+        long next = reorder.getReleased() + 1;
+
+        while(!shutdown) {
+            long available = reorder.getHighestAvailable(next);
+            if(available < next) {
+                reorder.waitFor(next, DELIVERY_PARK_NANOS);
+                continue;
+            }
+
+            Listener listener = listenerRef.get();
+            for(long sequence = next; sequence <= available; sequence++) {
+                int index = reorder.index(sequence);
+                EventKey eventKey = decodedKeys[index];
+                Object event = decodedEvents[index];
+                decodedKeys[index] = null;
+                decodedEvents[index] = null;
+
+                // skipped if the translation failed
+                if(eventKey != null && listener != null) {
+                    try {
+                        listener.consume(eventKey, event);
+                    } catch (Exception e) {
+                        LOG.error("Error consuming, eventKey: " + eventKey + ", event: " + event + ".", e);
+                    }
+                }
+            }
+            reorder.release(available);
+            next = available + 1;
+        }
+
+        LOG.info(Thread.currentThread().getName() + " Exiting delivery loop");
+    }
+
 }
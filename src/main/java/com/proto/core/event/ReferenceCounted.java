@@ -0,0 +1,30 @@
+package com.proto.core.event;
+
+/**
+ * An event whose storage is reused once its last reference is released, i.e. a pooled event.
+ *
+ * A reference is passed along with the event as it is published. Channel managers and {@link BufferedProducer}
+ * take over the reference of the events they accept: the producer hands it on to its listener, and a manager
+ * releases it once the event has been dispatched to its channel. The listeners of a channel only borrow the event
+ * for the duration of their consume call, a listener keeping the event past that call must {@link #retain} it and
+ * release it when done. A listener consuming events straight from their publisher owns the reference and must
+ * release it. When consume throws, the reference stays with the caller.
+ *
+ * @author wfrancis
+ */
+public interface ReferenceCounted {
+
+    /**
+     * Add a reference to the event
+     *
+     * @throws IllegalStateException if the event has already been released
+     */
+    void retain();
+
+    /**
+     * Drop a reference to the event, reusing its storage when it was the last one
+     *
+     * @throws IllegalStateException if the event has already been released
+     */
+    void release();
+}
@@ -0,0 +1,286 @@
+package com.proto.core.event;
+
+import com.proto.utils.Sequencer;
+import com.proto.utils.Threads;
+import org.apache.log4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A channel manager that dispatches everything on a single thread, like {@link SimpleChannelManager},
+ * but hands events to that thread through a pre-allocated ring buffer instead of an executor queue.
+ *
+ * Publishers claim a slot, write the event key and event in place and publish the slot. The dispatch thread
+ * drains the published slots in order. Nothing is allocated per event and publishers never contend on a queue lock.
+ * When the ring is full publishers wait for the dispatch thread to catch up.
+ *
+ * Registrations travel through the same ring, so they are applied in order with the events around them.
+ * Registration, unregistration and wildcard semantics are the same as {@link SimpleChannelManager}, and so is the
+ * release of {@link ReferenceCounted} events once dispatched.
+ *
+ * Once stopped, publishing fails with an {@link IllegalStateException} and the event stays with the publisher.
+ * A slot claimed while the manager was being stopped is published empty instead, so the dispatch thread exits
+ * only once every claimed slot has been dispatched or skipped, and no published event is left behind.
+ *
+ * RingBufferChannelManager is thread-safe.
+ *
+ * @author wfrancis
+ */
+public class RingBufferChannelManager implements ManagedChannelManager {
+
+    private static final Logger LOG = Logger.getLogger(RingBufferChannelManager.class);
+
+    /**
+     * The default number of slots in the ring
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Maximum time the dispatch thread parks before checking whether it has been stopped
+     */
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Factory for the channel
+     */
+    protected final ChannelFactory channelFactory;
+
+    /**
+     * Channels and wildcard registrations, only touched from the dispatch thread
+     */
+    private final ChannelDirectory directory;
+
+    /**
+     * Coordinates publishers and the dispatch thread over the slots
+     */
+    private final Sequencer sequencer;
+
+    /**
+     * Event key slots
+     */
+    private final EventKey[] keys;
+
+    /**
+     * Event slots
+     */
+    private final Object[] events;
+
+    /**
+     * RingBufferChannelManager uses executor as its dispatch thread.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * true until the manager is stopped
+     */
+    private final AtomicBoolean active;
+
+    /**
+     * @param channelFactory factory used to create new channels
+     */
+    public RingBufferChannelManager(ChannelFactory channelFactory) {
+        this(channelFactory, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param channelFactory factory used to create new channels
+     * @param bufferSize     number of slots in the ring, must be a power of two
+     */
+    public RingBufferChannelManager(ChannelFactory channelFactory, int bufferSize) {
+        this(channelFactory, bufferSize, new EventKeyRegistry());
+    }
+
+    /**
+     * @param channelFactory factory used to create new channels
+     * @param bufferSize     number of slots in the ring, must be a power of two
+     * @param registry       registry interning the event keys, publishers get the fastest lookup
+     *                       when publishing with keys interned by this registry
+     */
+    public RingBufferChannelManager(ChannelFactory channelFactory, int bufferSize, EventKeyRegistry registry) {
+        this.channelFactory = channelFactory;
+        this.directory = new ChannelDirectory(channelFactory, this, registry);
+        this.sequencer = new Sequencer(bufferSize);
+        this.keys = new EventKey[bufferSize];
+        this.events = new Object[bufferSize];
+        this.executor = Executors.newSingleThreadExecutor(Threads.createFactory("RingBufferChannelManager"));
+        this.active = new AtomicBoolean(true);
+
+        executor.submit(new Runnable() {
+            public void run() {
+                dispatchLoop();
+            }
+        });
+    }
+
+    public void registerListener(final EventKey eventKey, final Listener listener) {
+        publish(eventKey, new Registration(listener, true));
+    }
+
+    public void unregisterListener(final EventKey eventKey, final Listener listener) {
+        publish(eventKey, new Registration(listener, false));
+    }
+
+    /**
+     * @throws IllegalArgumentException if eventKey is a wildcard key determined by isWildcard()
+     * @throws IllegalStateException if the manager has been stopped
+     */
+    public void consume(final EventKey eventKey, final Object event) throws Exception {
+
+        if (SimpleChannelManager.isWildcard(eventKey)) {
+            throw new IllegalArgumentException("Wildcard EventKeys are not supported when publishing.");
+        }
+
+        publish(eventKey, event);
+    }
+
+    public void unregisterManagedListener(ManagedListener mListener) {
+        List<EventKey> keys = mListener.getListenerEventKeys();
+        if (keys == null) {
+            return;
+        }
+        for (EventKey eventKey : keys) {
+            unregisterListener(eventKey, mListener);
+        }
+    }
+
+    public void registerManagedListener(ManagedListener mListener) {
+        List<EventKey> keys = mListener.getListenerEventKeys();
+        if (keys == null) {
+            return;
+        }
+        for (EventKey eventKey : keys) {
+            registerListener(eventKey, mListener);
+        }
+    }
+
+    /**
+     * Stop accepting events. Events already published are still dispatched before the dispatch thread exits.
+     */
+    public void stop() throws Exception {
+        active.set(false);
+        sequencer.wakeUp();
+        executor.shutdown();
+    }
+
+    /**
+     * Claim a slot, write the key and event in place and publish it to the dispatch thread.
+     *
+     * @throws IllegalStateException if the manager has been stopped, the event is not published
+     */
+    private void publish(EventKey eventKey, Object event) {
+        long sequence = claim();
+
+        if (!active.get()) {
+            // claimed while stopping, the dispatch thread may already have seen the last event it dispatches
+            sequencer.publish(sequence);
+            throw new IllegalStateException("Channel manager is not active");
+        }
+
+        int index = sequencer.index(sequence);
+        keys[index] = eventKey;
+        events[index] = event;
+
+        sequencer.publish(sequence);
+    }
+
+    /**
+     * Claim the next slot, waiting for the dispatch thread if the ring is full.
+     */
+    private long claim() {
+        int attempt = 0;
+        while (true) {
+            if (!active.get()) {
+                throw new IllegalStateException("Channel manager is not active");
+            }
+
+            long sequence = sequencer.tryNext();
+            if (sequence >= 0) {
+                return sequence;
+            }
+
+            if (++attempt < 100) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(1000L);
+            }
+        }
+    }
+
+    private void dispatchLoop() {
+        long next = sequencer.getReleased() + 1;
+
+        while (true) {
+            long available = sequencer.getHighestAvailable(next);
+
+            if (available >= next) {
+                for (long sequence = next; sequence <= available; sequence++) {
+                    dispatch(sequencer.index(sequence));
+                }
+                sequencer.release(available);
+                next = available + 1;
+            } else if (active.get() || sequencer.getClaimed() >= next) {
+                // once stopped, the slots claimed so far are still published
+                sequencer.waitFor(next, PARK_NANOS);
+            } else if (sequencer.getHighestAvailable(next) < next) {
+                // nothing was published before the manager was stopped
+                break;
+            }
+        }
+
+        LOG.info(Thread.currentThread().getName() + " Exiting dispatch loop");
+    }
+
+    /**
+     * Dispatch the content of a slot and clear it.
+     */
+    private void dispatch(int index) {
+        EventKey eventKey = keys[index];
+        Object event = events[index];
+        if (eventKey == null) {
+            // claimed while stopping, published empty
+            return;
+        }
+
+        keys[index] = null;
+        events[index] = null;
+
+        try {
+            if (event instanceof Registration) {
+                Registration registration = (Registration) event;
+                if (registration.register) {
+                    directory.registerListener(eventKey, registration.listener);
+                } else {
+                    directory.unregisterListener(eventKey, registration.listener);
+                }
+            } else {
+                try {
+                    Channel channel = directory.getChannel(eventKey);
+                    channel.consume(eventKey, event);
+                } finally {
+                    Listeners.release(event);
+                }
+            }
+        } catch (Exception e) {
+            LOG.error("Error consume, eventKey: " + eventKey + ", event: " + event + ".", e);
+        }
+    }
+
+    /**
+     * A registration or unregistration travelling through the ring
+     */
+    private static final class Registration {
+
+        private final Listener listener;
+        private final boolean register;
+
+        private Registration(Listener listener, boolean register) {
+            this.listener = listener;
+            this.register = register;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.proto.core.event;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An event held by a {@link TimedEventQueue}, with the time of the event read once when it was added.
+ *
+ * Entries may be reused by the queue once handed back through {@link TimedEventQueue#recycle}.
+ *
+ * @author wfrancis
+ */
+public final class ScheduledEvent {
+
+    private EventKey eventKey;
+    private TimedEvent event;
+    private long time;
+
+    /**
+     * Order in which the event was added, for queues that need it to keep events with the same time in order
+     */
+    long sequence;
+
+    /**
+     * Links of the intrusive lists of the queue holding the event
+     */
+    ScheduledEvent next;
+    ScheduledEvent prev;
+
+    ScheduledEvent() {
+    }
+
+    ScheduledEvent(EventKey eventKey, TimedEvent event) {
+        set(eventKey, event);
+    }
+
+    void set(EventKey eventKey, TimedEvent event) {
+        this.eventKey = eventKey;
+        this.event = event;
+        this.time = getTimeMillis(event);
+    }
+
+    void clear() {
+        eventKey = null;
+        event = null;
+        next = null;
+        prev = null;
+    }
+
+    public EventKey getEventKey() {
+        return eventKey;
+    }
+
+    public TimedEvent getEvent() {
+        return event;
+    }
+
+    /**
+     * @return the time of the event in milliseconds
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return the time of an event in milliseconds, without allocating for a {@link NanoTimedEvent}
+     */
+    static long getTimeMillis(TimedEvent event) {
+        if (event instanceof NanoTimedEvent) {
+            return TimeUnit.NANOSECONDS.toMillis(((NanoTimedEvent) event).getTimeNanos());
+        }
+        return event.getTime().getTime();
+    }
+}
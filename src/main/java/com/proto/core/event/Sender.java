@@ -1,37 +1,130 @@
 package com.proto.core.event;
 
-import com.proto.utils.Pair;
+import com.proto.core.monitoring.SenderMXBean;
+import com.proto.core.monitoring.StripedCounter;
 
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A sender supports consuming object, translate to typed object.
  * Or consume typed object directly by-passing the translation
+ * The sender thread drains everything queued, up to a batch size, in one queue operation. When a linger time is set
+ * it keeps draining until the batch is full or the linger time since the first event has elapsed.
+ * The batch is translated in one pass and handed to {@link #nativeConsumeBatch(List, List)}, which subclasses
+ * may override to coalesce their writes.
+ * Queued and sent events are counted for the {@link SenderMXBean} metrics.
+ * The translated events must stay valid for a whole batch, see {@link Translator#getTranslationLifetime()}:
+ * a batch size beyond the lifetime of the translator is rejected.
+ * A queued {@link ReferenceCounted} event is retained until its batch is sent, so a sender behind a channel may
+ * be handed pooled events.
+ *
+ * Events wait for the sender thread in a {@link BoundedEventQueue}, so a stalled downstream costs a fixed amount
+ * of memory. By default the queue holds {@link #DEFAULT_CAPACITY} events and blocks the producing thread
+ * when full, other overflow policies drop or conflate events and count them.
+ * Once the sender thread is gone, stopped or failed on an exception, the queue is closed: the events queued and
+ * those consumed afterwards are dropped and counted, so a producer never blocks on a sender that is not running.
  *
  * @author wfrancis
  */
-public abstract class Sender<T> implements Listener {
+public abstract class Sender<T> implements BatchListener, SenderMXBean {
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
 
     private final Translator<T> translator;
 
-    private final LinkedBlockingQueue<Pair<EventKey, Object>> queue;
+    private final BoundedEventQueue queue;
+
+    /**
+     * The default max number of queued events drained at once by the sender thread
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    /**
+     * The max number of events sent as one batch
+     */
+    private final int maxBatchSize;
+
+    /**
+     * Max time to wait for a batch to fill, 0 to send whatever is queued
+     */
+    private final long lingerNanos;
 
     private final AtomicBoolean running = new AtomicBoolean(false);
 
+    private final StripedCounter queued = new StripedCounter();
+
+    private final StripedCounter sent = new StripedCounter();
+
     private Thread senderThread;
 
     /**
      * @param translator translator to use for translating Object to T
      */
     public Sender(Translator<T> translator) {
+        this(translator, DEFAULT_CAPACITY, BoundedEventQueue.OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * @param translator translator to use for translating Object to T
+     * @param capacity   the max number of events waiting for the sender thread
+     * @param policy     what to do with an event consumed when capacity events are waiting
+     */
+    public Sender(Translator<T> translator, int capacity, BoundedEventQueue.OverflowPolicy policy) {
+        this(translator, capacity, policy, DEFAULT_BATCH_SIZE, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param translator   translator to use for translating Object to T
+     * @param capacity     the max number of events waiting for the sender thread
+     * @param policy       what to do with an event consumed when capacity events are waiting
+     * @param maxBatchSize the max number of events sent as one batch
+     * @param linger       max time to wait for a batch to fill after its first event, 0 not to wait
+     * @param unit         the unit of linger
+     */
+    public Sender(Translator<T> translator, int capacity, BoundedEventQueue.OverflowPolicy policy,
+                  int maxBatchSize, long linger, TimeUnit unit) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + maxBatchSize);
+        }
+        // a batch is translated before it is sent
+        if (translator.getTranslationLifetime() < maxBatchSize) {
+            throw new IllegalArgumentException("Batch size " + maxBatchSize + " exceeds the "
+                    + translator.getTranslationLifetime() + " translations a translated event stays valid for");
+        }
         this.translator = translator;
-        this.queue = new LinkedBlockingQueue<Pair<EventKey, Object>>();
+        this.queue = new BoundedEventQueue(capacity, policy);
+        this.maxBatchSize = maxBatchSize;
+        this.lingerNanos = unit.toNanos(linger);
     }
 
+    /**
+     * If interrupted while waiting for room in the queue the event is dropped, and the interrupt status kept.
+     * The event is dropped if the sender thread is not running.
+     */
     public void consume(EventKey eventKey, Object o) {
         //event data in queue
-        queue.add(new Pair(eventKey, o));
+        try {
+            if (queue.offer(eventKey, o)) {
+                queued.increment();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The batch is queued under one lock. If interrupted while waiting for room in the queue the rest of the batch
+     * is dropped, and the interrupt status kept.
+     */
+    public void consumeBatch(EventKey[] eventKeys, Object[] events, int offset, int length) {
+        try {
+            queued.add(length - queue.offerAll(eventKeys, events, offset, length));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     //start Tib sender thread
@@ -41,18 +134,44 @@ public abstract class Sender<T> implements Listener {
         senderThread = new Thread(new Runnable() {
             @Override
             public void run() {
+                EventKey[] drainedKeys = new EventKey[maxBatchSize];
+                Object[] drainedEvents = new Object[maxBatchSize];
+                List<String> keys = new ArrayList<String>(maxBatchSize);
+                List<T> values = new ArrayList<T>(maxBatchSize);
                 try {
                     while (running.get()) {
-                        Pair<EventKey, Object> eventData = queue.take();
-                        sendEvent(eventData);
+                        int drained = drain(drainedKeys, drainedEvents);
+                        if (drained == 0) {
+                            // the queue was closed
+                            continue;
+                        }
+                        try {
+                            for (int i = 0; i < drained; i++) {
+                                values.add(translator.translate(drainedEvents[i]));
+                                keys.add(translator.translateEventKey(drainedKeys[i]));
+                            }
+                            nativeConsumeBatch(keys, values);
+                            sent.add(drained);
+                        } finally {
+                            for (int i = 0; i < drained; i++) {
+                                Listeners.release(drainedEvents[i]);
+                                drainedKeys[i] = null;
+                                drainedEvents[i] = null;
+                            }
+                            keys.clear();
+                            values.clear();
+                        }
                     }
                 } catch (Exception e) {
+                    running.set(false);
+                    queue.close();
                     throw new RuntimeException("Sending of eventData failed", e);
                 }
             }
         });
 
         // Now start everything
+        queue.open();
         running.set(true);
         senderThread.start();
     }
@@ -60,13 +179,74 @@ public abstract class Sender<T> implements Listener {
     //stop Tib sender thread
     public void stop() throws Exception {
         running.set(false);
+        queue.close();
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getQueueCapacity() {
+        return queue.getCapacity();
+    }
+
+    public long getQueuedCount() {
+        return queued.get();
+    }
+
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    public long getDroppedCount() {
+        return queue.getDroppedCount();
     }
 
-    //send Tib event data
-    private void sendEvent(Pair<EventKey, Object> eventData) throws Exception {
-        T res = translator.translate(eventData.getB());
-        String key = translator.translateEventKey(eventData.getA());
-        nativeConsume(key, res);
+    public long getConflatedCount() {
+        return queue.getConflatedCount();
+    }
+
+    public long getBlockedCount() {
+        return queue.getBlockedCount();
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Wait for a first event, then drain up to a full batch, lingering for more if set.
+     *
+     * @return the number of events drained, 0 if the queue was closed
+     */
+    private int drain(EventKey[] drainedKeys, Object[] drainedEvents) throws InterruptedException {
+        int drained = queue.take(drainedKeys, drainedEvents, maxBatchSize);
+        if (drained == 0) {
+            return 0;
+        }
+        if (lingerNanos > 0) {
+            long deadline = System.nanoTime() + lingerNanos;
+            long remaining = lingerNanos;
+            while (drained < maxBatchSize && remaining > 0) {
+                drained += queue.poll(drainedKeys, drainedEvents, drained, maxBatchSize - drained,
+                        remaining, TimeUnit.NANOSECONDS);
+                remaining = deadline - System.nanoTime();
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Send a batch of translated events. Sends each event with {@link #nativeConsume(String, Object)} unless
+     * overridden, i.e. to write the whole batch at once. The lists are reused after this returns.
+     *
+     * @param keys   the translated keys
+     * @param values the translated events, in the same order as their keys
+     */
+    protected void nativeConsumeBatch(List<String> keys, List<T> values) throws Exception {
+        for (int i = 0; i < keys.size(); i++) {
+            nativeConsume(keys.get(i), values.get(i));
+        }
     }
 
     /**
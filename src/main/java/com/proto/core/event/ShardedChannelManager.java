@@ -0,0 +1,129 @@
+package com.proto.core.event;
+
+import java.util.List;
+
+/**
+ * A channel manager that spreads event keys over several {@link SimpleChannelManager} shards, each running
+ * on its own dispatch thread and owning the channels of the keys hashed to it.
+ *
+ * Every event and registration for a regular event key goes to the shard of that key, so events for one key
+ * are dispatched in order. Wildcard registrations are fanned out to every shard, so they reach the matching
+ * channels of each shard as well as the channels each shard creates later.
+ *
+ * Wildcard semantics are the same as {@link SimpleChannelManager}.
+ * ShardedChannelManager is thread-safe, but a listener registered on keys of different shards may be
+ * called from several threads concurrently.
+ *
+ * @author wfrancis
+ */
+public class ShardedChannelManager implements ManagedChannelManager {
+
+    /**
+     * The shards, each with its own dispatch thread and channels
+     */
+    private final SimpleChannelManager[] shards;
+
+    /**
+     * Create one shard per available processor
+     *
+     * @param channelFactory factory used to create new channels
+     */
+    public ShardedChannelManager(ChannelFactory channelFactory) {
+        this(channelFactory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param channelFactory factory used to create new channels
+     * @param shardCount     number of shards and dispatch threads
+     */
+    public ShardedChannelManager(ChannelFactory channelFactory, int shardCount) {
+        this(channelFactory, shardCount, new EventKeyRegistry());
+    }
+
+    /**
+     * @param channelFactory factory used to create new channels
+     * @param shardCount     number of shards and dispatch threads
+     * @param registry       registry interning the event keys, shared by every shard
+     */
+    public ShardedChannelManager(ChannelFactory channelFactory, int shardCount, EventKeyRegistry registry) {
+        if(shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        }
+        this.shards = new SimpleChannelManager[shardCount];
+        for(int i = 0; i < shardCount; i++) {
+            shards[i] = new SimpleChannelManager(channelFactory, registry);
+        }
+    }
+
+    public void registerListener(EventKey eventKey, Listener listener) {
+        if(!SimpleChannelManager.isWildcard(eventKey)) {
+            shardFor(eventKey.toString()).registerListener(eventKey, listener);
+        }
+        else {
+            for(SimpleChannelManager shard : shards) {
+                shard.registerListener(eventKey, listener);
+            }
+        }
+    }
+
+    public void unregisterListener(EventKey eventKey, Listener listener) {
+        if(!SimpleChannelManager.isWildcard(eventKey)) {
+            shardFor(eventKey.toString()).unregisterListener(eventKey, listener);
+        }
+        else {
+            for(SimpleChannelManager shard : shards) {
+                shard.unregisterListener(eventKey, listener);
+            }
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if eventKey is a wildcard key determined by isWildcard()
+     */
+    public void consume(EventKey eventKey, Object event) throws Exception {
+        shardFor(eventKey.toString()).consume(eventKey, event);
+    }
+
+    public void unregisterManagedListener(ManagedListener mListener) {
+        List<EventKey> keys = mListener.getListenerEventKeys();
+        if (keys == null) {
+            return;
+        }
+        for (EventKey eventKey : keys) {
+            unregisterListener(eventKey, mListener);
+        }
+    }
+
+    public void registerManagedListener(ManagedListener mListener) {
+        List<EventKey> keys = mListener.getListenerEventKeys();
+        if (keys == null) {
+            return;
+        }
+        for (EventKey eventKey : keys) {
+            registerListener(eventKey, mListener);
+        }
+    }
+
+    public void stop() throws Exception {
+        for(SimpleChannelManager shard : shards) {
+            shard.stop();
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * @return the index of the shard owning a regular event key
+     */
+    protected int shardIndex(String eventKeyString) {
+        int h = eventKeyString.hashCode();
+        h ^= (h >>> 16);
+        return (h & 0x7fffffff) % shards.length;
+    }
+
+    private SimpleChannelManager shardFor(String eventKeyString) {
+        return shards[shardIndex(eventKeyString)];
+    }
+}
@@ -1,30 +1,46 @@
 package com.proto.core.event;;
 
+import com.proto.core.monitoring.ChannelManagerMXBean;
+import com.proto.core.monitoring.EventRateMeter;
+import com.proto.core.monitoring.LatencyMonitor;
+import com.proto.core.monitoring.StripedCounter;
 import org.apache.log4j.Logger;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map.Entry;
-import java.util.NavigableMap;
+import java.util.Map;
 import java.util.TreeMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A manager for different event channel of the client simulation. Run everything on a single thread
  * without blocking the producer thread.
  *
  * SimpleChannelManager is thread-safe.
- * It has limited support for wild card EventKeys.
+ * It supports wild card EventKeys split into segments on {@link EventKey#stringDelimiter}:
+ *  a {@link EventKey#segmentWildChar} segment matches exactly one segment, i.e. FX.*.EURUSD,
+ *  and {@link EventKey#wildChar} matches the rest of the key, i.e. FX.> or FX.EU>.
  * Wild card will override any specific value.
- *  i.e. FOO*RANDOMSTRING is same as FOO*
+ *  i.e. FOO>RANDOMSTRING is same as FOO>
  * Wild cards are only supported for registration/subscription.
  * Any producer of data must specify a full EventKey with no wildcards.
  * Unsubscriptions and registration must be on EventKeys that exactly match the original subscriptions and registration.
+ * A batch of events is dispatched as a single task, each run of events with the same EventKey reaching its channel
+ * as one batch.
+ * With a {@link LatencyMonitor} set, the latency of each event is recorded when it is handed to the manager,
+ * {@link LatencyMonitor.Stage#ENQUEUE}, and when it is dispatched to its channel, {@link LatencyMonitor.Stage#DISPATCH}.
+ * A {@link ReferenceCounted} event is released once dispatched to its channel, the listeners of the channel only
+ * borrow it for their consume call.
+ * Publishing and dispatching are counted in {@link StripedCounter}s for the {@link ChannelManagerMXBean} metrics.
+ * Metrics about channels and listeners are read from gauges the dispatch thread maintains, without queuing behind
+ * the pending events.
  *
  * @author wfrancis
  */
-public class SimpleChannelManager implements ManagedChannelManager {
+public class SimpleChannelManager implements ManagedChannelManager, BatchListener, ChannelManagerMXBean {
     
     private static final Logger LOG = Logger.getLogger(SimpleChannelManager.class);
 
@@ -34,25 +50,43 @@ public class SimpleChannelManager implements ManagedChannelManager {
     protected final ChannelFactory channelFactory;
 
     /**
-     * Wildcard registration
+     * Channels and wildcard registrations, only touched from the executor thread but for its gauges
      */
-    private final NavigableMap<String, List<Listener>> wRegistrations = new TreeMap<String, List<Listener>>();
+    private final ChannelDirectory directory;
 
     /**
-     * Channels for each event key
+     * executor service to run everything on, its queue holds the backlog
      */
-    private final NavigableMap<String, Channel> channels = new TreeMap<String, Channel>();
+    private final ThreadPoolExecutor executorService =
+            new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+
+    private volatile LatencyMonitor latencyMonitor;
+
+    private final StripedCounter published = new StripedCounter();
+
+    private final StripedCounter dispatched = new StripedCounter();
+
+    private final StripedCounter rejected = new StripedCounter();
+
+    private final StripedCounter errors = new StripedCounter();
+
+    private final EventRateMeter rates = new EventRateMeter();
 
     /**
-     * executor service to run everything on
+     * @param channelFactory factory used to create new channels
      */
-    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    public SimpleChannelManager(ChannelFactory channelFactory) {
+        this(channelFactory, new EventKeyRegistry());
+    }
 
     /**
      * @param channelFactory factory used to create new channels
+     * @param registry       registry interning the event keys, publishers get the fastest lookup
+     *                       when publishing with keys interned by this registry
      */
-    public SimpleChannelManager(ChannelFactory channelFactory) {
+    public SimpleChannelManager(ChannelFactory channelFactory, EventKeyRegistry registry) {
         this.channelFactory = channelFactory;
+        this.directory = new ChannelDirectory(channelFactory, this, registry);
     }
 
     public void registerListener(final EventKey eventKey, final Listener listener) {
@@ -60,19 +94,7 @@ public class SimpleChannelManager implements ManagedChannelManager {
 
             @Override
             public void run() {
-                String eventKeyString = eventKey.toString();
-                String wildCardRoot = extractWildRoot(eventKeyString);
-
-                if(wildCardRoot == null) {
-                    Channel channel = getChannel(eventKeyString);
-                    register(channel, listener);
-                }
-                else {
-                    for(Channel channel : getChannels(wildCardRoot)) {
-                        register(channel, listener);
-                    }
-                    getWildcardRegistration(wildCardRoot).add(listener);
-                }
+                directory.registerListener(eventKey, listener);
             }
 
         });
@@ -83,46 +105,176 @@ public class SimpleChannelManager implements ManagedChannelManager {
 
             @Override
             public void run() {
-                String eventKeyString = eventKey.toString();
-                String wildCardRoot = extractWildRoot(eventKeyString);
-
-                if(wildCardRoot == null) {
-                    Channel channel = getChannel(eventKeyString);
-                    unregister(channel, listener);
-                }
-                else {
-                    for(Channel channel : getChannels(wildCardRoot)) {
-                        unregister(channel, listener);
-                    }
-                    getWildcardRegistration(wildCardRoot).remove(listener);
-                }
+                directory.unregisterListener(eventKey, listener);
             }
 
         });
     }
 
     /**
-     * @throws IllegalArgumentException if eventKey is a wildcard key determined by extractWildRoot()
+     * @throws IllegalArgumentException if eventKey is a wildcard key determined by isWildcard()
      */
     public void consume(final EventKey eventKey, final Object event) throws Exception {
 
-        if (SimpleChannelManager.extractWildRoot(eventKey.toString()) != null) {
+        if (SimpleChannelManager.isWildcard(eventKey)) {
             throw new IllegalArgumentException("Wildcard EventKeys are not supported when publishing.");
         }
 
-        executorService.submit(new Runnable() {
+        final LatencyMonitor monitor = latencyMonitor;
+        if (monitor != null) {
+            monitor.record(LatencyMonitor.Stage.ENQUEUE, eventKey, event);
+        }
+        published.increment();
+        rates.mark(eventKey);
+
+        execute(new Runnable() {
             @Override
             public void run() {
                 try {
-                    String eventKeyString = eventKey.toString();
-                    Channel channel = getChannel(eventKeyString);
+                    Channel channel = directory.getChannel(eventKey);
+                    if (monitor != null) {
+                        monitor.record(LatencyMonitor.Stage.DISPATCH, eventKey, event);
+                    }
                     channel.consume(eventKey, event);
+                    dispatched.increment();
 
                 } catch (Exception e) {
+                    errors.increment();
                     LOG.error("Error consume, eventKey: " + eventKey + ", event: " + event + ".", e);
+                } finally {
+                    Listeners.release(event);
                 }
             }
-        });
+        }, 1);
+    }
+
+    /**
+     * The batch is copied, the arrays may be reused as soon as this returns.
+     *
+     * @throws IllegalArgumentException if any event key is a wildcard key determined by isWildcard()
+     */
+    public void consumeBatch(EventKey[] eventKeys, Object[] events, int offset, int length) throws Exception {
+
+        for (int i = offset; i < offset + length; i++) {
+            if (SimpleChannelManager.isWildcard(eventKeys[i])) {
+                throw new IllegalArgumentException("Wildcard EventKeys are not supported when publishing.");
+            }
+        }
+
+        final EventKey[] batchKeys = Arrays.copyOfRange(eventKeys, offset, offset + length);
+        final Object[] batchEvents = Arrays.copyOfRange(events, offset, offset + length);
+
+        final LatencyMonitor monitor = latencyMonitor;
+        if (monitor != null) {
+            for (int i = 0; i < batchKeys.length; i++) {
+                monitor.record(LatencyMonitor.Stage.ENQUEUE, batchKeys[i], batchEvents[i]);
+            }
+        }
+        published.add(length);
+        for (int i = 0; i < batchKeys.length; i++) {
+            rates.mark(batchKeys[i]);
+        }
+
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                int start = 0;
+                while (start < batchKeys.length) {
+                    EventKey eventKey = batchKeys[start];
+                    int end = start + 1;
+                    while (end < batchKeys.length && batchKeys[end].equals(eventKey)) {
+                        end++;
+                    }
+
+                    try {
+                        Channel channel = directory.getChannel(eventKey);
+                        if (monitor != null) {
+                            for (int i = start; i < end; i++) {
+                                monitor.record(LatencyMonitor.Stage.DISPATCH, eventKey, batchEvents[i]);
+                            }
+                        }
+                        Listeners.deliver(channel, batchKeys, batchEvents, start, end - start);
+                        dispatched.add(end - start);
+
+                    } catch (Exception e) {
+                        errors.add(end - start);
+                        LOG.error("Error consume, eventKey: " + eventKey + ", events: " + (end - start) + ".", e);
+                    } finally {
+                        Listeners.release(batchEvents, start, end - start);
+                    }
+                    start = end;
+                }
+            }
+        }, length);
+    }
+
+    /**
+     * @param latencyMonitor the monitor recording the latency of published events, null to stop recording.
+     *                       Events already published are recorded with the monitor set when they were published.
+     */
+    public void setLatencyMonitor(LatencyMonitor latencyMonitor) {
+        this.latencyMonitor = latencyMonitor;
+    }
+
+    public int getQueueDepth() {
+        return executorService.getQueue().size();
+    }
+
+    public int getChannelCount() {
+        return directory.getChannelCount();
+    }
+
+    public int getListenerCount() {
+        return directory.getListenerCount();
+    }
+
+    public Map<String, Integer> getSubscriptionCounts() {
+        Map<String, Integer> counts = new TreeMap<String, Integer>();
+        for (Map.Entry<InternedEventKey, Channel> entry : directory.getChannels().entrySet()) {
+            if (entry.getValue() instanceof CountingEventChannel) {
+                int count = ((CountingEventChannel) entry.getValue()).getSubscriptionCount(entry.getKey());
+                if (count > 0) {
+                    counts.put(entry.getKey().toString(), count);
+                }
+            }
+        }
+        return counts;
+    }
+
+    public long getPublishedCount() {
+        return published.get();
+    }
+
+    public long getDispatchedCount() {
+        return dispatched.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getErrorCount() {
+        return errors.get();
+    }
+
+    public Map<String, Long> getEventCounts() {
+        return rates.getCounts();
+    }
+
+    public Map<String, Double> getEventRates() {
+        return rates.getRates();
+    }
+
+    /**
+     * Run a task dispatching events, counting the events rejected once the manager is stopped.
+     */
+    private void execute(Runnable task, int eventCount) {
+        try {
+            executorService.execute(task);
+        } catch (RejectedExecutionException e) {
+            rejected.add(eventCount);
+            throw e;
+        }
     }
 
     public void unregisterManagedListener(ManagedListener mListener) {
@@ -155,84 +307,13 @@ public class SimpleChannelManager implements ManagedChannelManager {
     }
 
     /**
-     * Get a channel for a regular event key. Create if there isn't one existing.
-     * When creating a channel, search the wildcard registered listeners and include
-     * them into the channel if they matches the event key.
+     * @return true if the event key is a wild card key, without allocating for interned keys.
      */
-    private Channel getChannel(String regularEventKey) {
-        Channel channel = channels.get(regularEventKey);
-        if(channel == null) {
-            channel = channelFactory.allocate();
-            includeWildcardRegistration(channel, regularEventKey);
-            channels.put(regularEventKey, channel);
+    protected static boolean isWildcard(EventKey eventKey) {
+        if (eventKey instanceof InternedEventKey) {
+            return ((InternedEventKey) eventKey).isWildcard();
         }
-        return channel;
-    }
-
-    /**
-     * Get a list of channels for a wildcard event key root.
-     */
-    private List<Channel> getChannels(String wildCardRoot) {
-        List<Channel> res = new ArrayList<Channel>();
-        Entry<String, Channel> higher = channels.higherEntry(wildCardRoot);
-        while(higher != null && higher.getKey().startsWith(wildCardRoot)) {
-            res.add(higher.getValue());
-            higher = channels.higherEntry(higher.getKey());
-        }
-        return res;
-    }
-
-    /**
-     * Get a list of listeners who registered for specific wild card root.
-     */
-    private List<Listener> getWildcardRegistration(String wildCardRoot) {
-        List<Listener> listeners = wRegistrations.get(wildCardRoot);
-        if(listeners == null) {
-            listeners = new ArrayList<Listener>();
-            wRegistrations.put(wildCardRoot, listeners);
-        }
-        return listeners;
-    }
-
-    /**
-     * Search in the wild card registration records, register them to the channel if
-     * they match a specific event key string
-     */
-    private void includeWildcardRegistration(Channel channel, String regularEventKey) {
-
-        // Search higher
-        Entry<String, List<Listener>> higher = wRegistrations.higherEntry(regularEventKey);
-        while(higher != null && regularEventKey.startsWith(higher.getKey())) {
-            for(Listener listener : higher.getValue()) {
-                register(channel, listener);
-            }
-            higher = wRegistrations.higherEntry(higher.getKey());
-        }
-
-        // Search lower
-        Entry<String, List<Listener>> lower = wRegistrations.lowerEntry(regularEventKey);
-        while(lower != null && regularEventKey.startsWith(lower.getKey())) {
-            for(Listener listener : lower.getValue()) {
-                register(channel, listener);
-            }
-            lower = wRegistrations.lowerEntry(lower.getKey());
-        }
-    }
-
-    /**
-     * Register a listener to a channel
-     */
-    private void register(Channel channel, Listener listener) {
-        channel.setManager(this);
-        channel.registerListener(listener);
-    }
-
-    /**
-     * Ungister a listener to a channel
-     */
-    private void unregister(Channel channel, Listener listener) {
-        channel.setManager(null);
-        channel.unregisterListener(listener);
+        return SubscriptionTrie.isPattern(eventKey.toString());
     }
 
     public void stop() throws Exception {
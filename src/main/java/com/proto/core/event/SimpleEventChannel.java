@@ -1,22 +1,28 @@
 package com.proto.core.event;
 
-import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A simple event channel
  *
+ * The registered listeners are kept in an immutable array that is replaced atomically on registration
+ * and unregistration, so dispatching is a plain indexed loop over a snapshot of the listeners.
+ * Registration, unregistration and dispatch are thread-safe, events may be published from any thread.
+ * Batches of data events are passed on as batches to listeners supporting them.
+ *
  * @author wfrancis
  */
-public class SimpleEventChannel implements Channel, ChannelFactory {
+public class SimpleEventChannel implements Channel, ChannelFactory, BatchListener {
+
+    private static final Listener[] NO_LISTENERS = new Listener[0];
 
-    private final HashSet<Listener> registeredConsumers = new HashSet<Listener>();
-    protected Listener manager;
+    private final AtomicReference<Listener[]> registeredConsumers = new AtomicReference<Listener[]>(NO_LISTENERS);
+    protected volatile Listener manager;
 
     protected void sendControlEvent(EventKey eventKey, ControlEvent ce) throws Exception{
-        if (registeredConsumers.isEmpty())
-            return;
-        for(Listener consumer : registeredConsumers) {
-            consumer.consume(eventKey, ce);
+        Listener[] consumers = registeredConsumers.get();
+        for(int i = 0; i < consumers.length; i++) {
+            consumers[i].consume(eventKey, ce);
         }
     }
 
@@ -36,11 +42,17 @@ public class SimpleEventChannel implements Channel, ChannelFactory {
     }
 
     public ReturnValue unregisterListener(Listener producer) {
-        if (!registeredConsumers.contains(producer))
-            return ReturnValue.IGNORED;
-        else {
-            registeredConsumers.remove(producer);
-            return ReturnValue.OK;
+        while (true) {
+            Listener[] current = registeredConsumers.get();
+            int index = indexOf(current, producer);
+            if (index < 0)
+                return ReturnValue.IGNORED;
+
+            Listener[] updated = new Listener[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, index);
+            System.arraycopy(current, index + 1, updated, index, current.length - index - 1);
+            if (registeredConsumers.compareAndSet(current, updated))
+                return ReturnValue.OK;
         }
     }
 
@@ -49,11 +61,16 @@ public class SimpleEventChannel implements Channel, ChannelFactory {
     }
 
     public ReturnValue registerListener(Listener producer) {
-        if (registeredConsumers.contains(producer))
-            return ReturnValue.IGNORED;
-        else {
-            registeredConsumers.add(producer);
-            return ReturnValue.OK;
+        while (true) {
+            Listener[] current = registeredConsumers.get();
+            if (indexOf(current, producer) >= 0)
+                return ReturnValue.IGNORED;
+
+            Listener[] updated = new Listener[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, current.length);
+            updated[current.length] = producer;
+            if (registeredConsumers.compareAndSet(current, updated))
+                return ReturnValue.OK;
         }
     }
 
@@ -68,13 +85,53 @@ public class SimpleEventChannel implements Channel, ChannelFactory {
             }
         }
         else {
-            for(Listener consumer : registeredConsumers) {
-                consumer.consume(eventKey, event);
+            Listener[] consumers = registeredConsumers.get();
+            for(int i = 0; i < consumers.length; i++) {
+                consumers[i].consume(eventKey, event);
             }
         }
     }
 
+    public void consumeBatch(EventKey[] eventKeys, Object[] events, int offset, int length) throws Exception {
+        int end = offset + length;
+        int start = offset;
+        while (start < end) {
+            if (events[start] instanceof ControlEvent) {
+                consume(eventKeys[start], events[start]);
+                start++;
+                continue;
+            }
+
+            // deliver the run of data events up to the next control event
+            int runEnd = start + 1;
+            while (runEnd < end && !(events[runEnd] instanceof ControlEvent)) {
+                runEnd++;
+            }
+
+            Listener[] consumers = registeredConsumers.get();
+            for(int i = 0; i < consumers.length; i++) {
+                Listeners.deliver(consumers[i], eventKeys, events, start, runEnd - start);
+            }
+            start = runEnd;
+        }
+    }
+
     public void setManager(Listener manager) {
         this.manager = manager;
     }
+
+    /**
+     * @return the number of registered listeners
+     */
+    public int getListenerCount() {
+        return registeredConsumers.get().length;
+    }
+
+    private static int indexOf(Listener[] listeners, Listener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i].equals(listener))
+                return i;
+        }
+        return -1;
+    }
 }
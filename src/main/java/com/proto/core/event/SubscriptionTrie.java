@@ -0,0 +1,315 @@
+package com.proto.core.event;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of values by subject, where subjects are split into segments on {@link EventKey#stringDelimiter}.
+ *
+ * A subject is either a regular subject or a pattern. In a pattern:
+ * <ul>
+ *     <li>a {@link EventKey#segmentWildChar} segment matches exactly one segment, i.e. FX.*.EURUSD</li>
+ *     <li>a segment ending with {@link EventKey#wildChar} matches the rest of any subject starting with the
+ *     characters before the wild char, provided at least one character follows them, i.e. FX.&gt; or FX.EU&gt;.
+ *     Anything after the wild char is ignored.</li>
+ * </ul>
+ *
+ * The trie answers two questions: which stored patterns match a regular subject ({@link #collectMatches}), at a
+ * cost that depends on the depth of the subject and not on the number of stored patterns, and which stored regular
+ * subjects match a pattern ({@link #collectMatching}), at a cost that depends on the number of subjects matched.
+ *
+ * SubscriptionTrie is not thread-safe.
+ *
+ * @author wfrancis
+ */
+class SubscriptionTrie<V> {
+
+    private final Node<V> root = new Node<V>();
+
+    /**
+     * @return true if the subject is a pattern rather than a regular subject.
+     */
+    static boolean isPattern(String subject) {
+        if (subject.indexOf(EventKey.wildChar) >= 0) {
+            return true;
+        }
+
+        int start = 0;
+        int length = subject.length();
+        while (start <= length) {
+            int end = subject.indexOf(EventKey.stringDelimiter, start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end - start == EventKey.segmentWildChar.length() && subject.startsWith(EventKey.segmentWildChar, start)) {
+                return true;
+            }
+            start = end + EventKey.stringDelimiter.length();
+        }
+        return false;
+    }
+
+    /**
+     * Split a subject into its segments. Patterns are cut after their first wild char.
+     */
+    static List<String> split(String subject) {
+        List<String> segments = new ArrayList<String>();
+        int start = 0;
+        while (true) {
+            int end = subject.indexOf(EventKey.stringDelimiter, start);
+            String segment = end < 0 ? subject.substring(start) : subject.substring(start, end);
+
+            int wildCardIndex = segment.indexOf(EventKey.wildChar);
+            if (wildCardIndex >= 0) {
+                segments.add(segment.substring(0, wildCardIndex + EventKey.wildChar.length()));
+                return segments;
+            }
+
+            segments.add(segment);
+            if (end < 0) {
+                return segments;
+            }
+            start = end + EventKey.stringDelimiter.length();
+        }
+    }
+
+    /**
+     * Add a value under a regular subject or a pattern.
+     */
+    void add(String subject, V value) {
+        List<String> segments = split(subject);
+        Node<V> node = root;
+        for (String segment : segments) {
+            if (isTail(segment)) {
+                node.getTail(tailPrefix(segment), true).add(value);
+                return;
+            }
+            node = node.getChild(segment, true);
+        }
+        node.getValues(true).add(value);
+    }
+
+    /**
+     * Remove one occurrence of a value stored under a regular subject or a pattern.
+     *
+     * @return true if the value was found.
+     */
+    boolean remove(String subject, V value) {
+        List<String> segments = split(subject);
+        Node<V> node = root;
+        for (String segment : segments) {
+            if (isTail(segment)) {
+                List<V> values = node.getTail(tailPrefix(segment), false);
+                return values != null && values.remove(value);
+            }
+            node = node.getChild(segment, false);
+            if (node == null) {
+                return false;
+            }
+        }
+        List<V> values = node.getValues(false);
+        return values != null && values.remove(value);
+    }
+
+    /**
+     * Add to result every value stored under a pattern or a regular subject matching the given regular subject.
+     */
+    void collectMatches(String subject, Collection<V> result) {
+        collectMatches(root, split(subject), 0, result);
+    }
+
+    /**
+     * Add to result every value stored under a regular subject matching the given pattern.
+     * Values stored under patterns are ignored.
+     */
+    void collectMatching(String pattern, Collection<V> result) {
+        collectMatching(root, split(pattern), 0, result);
+    }
+
+    private void collectMatches(Node<V> node, List<String> segments, int depth, Collection<V> result) {
+        if (depth == segments.size()) {
+            if (node.values != null) {
+                result.addAll(node.values);
+            }
+            return;
+        }
+
+        String segment = segments.get(depth);
+        boolean hasMore = depth + 1 < segments.size();
+
+        // patterns ending with a wild char at this depth, walked character by character
+        PrefixNode<V> prefix = node.tails;
+        for (int i = 0; prefix != null; i++) {
+            if (prefix.values != null && (i < segment.length() || hasMore)) {
+                result.addAll(prefix.values);
+            }
+            if (i == segment.length() || prefix.next == null) {
+                break;
+            }
+            prefix = prefix.next.get(segment.charAt(i));
+        }
+
+        if (node.children != null) {
+            Node<V> child = node.children.get(segment);
+            if (child != null) {
+                collectMatches(child, segments, depth + 1, result);
+            }
+        }
+        if (node.anySegment != null) {
+            collectMatches(node.anySegment, segments, depth + 1, result);
+        }
+    }
+
+    private void collectMatching(Node<V> node, List<String> segments, int depth, Collection<V> result) {
+        if (depth == segments.size()) {
+            if (node.values != null) {
+                result.addAll(node.values);
+            }
+            return;
+        }
+        if (node.children == null) {
+            return;
+        }
+
+        String segment = segments.get(depth);
+        if (isTail(segment)) {
+            String prefix = tailPrefix(segment);
+            for (Map.Entry<String, Node<V>> entry : node.children.entrySet()) {
+                if (entry.getKey().startsWith(prefix)) {
+                    Node<V> child = entry.getValue();
+                    if (entry.getKey().length() > prefix.length() && child.values != null) {
+                        result.addAll(child.values);
+                    }
+                    collectBelow(child, result);
+                }
+            }
+        } else if (EventKey.segmentWildChar.equals(segment)) {
+            for (Node<V> child : node.children.values()) {
+                collectMatching(child, segments, depth + 1, result);
+            }
+        } else {
+            Node<V> child = node.children.get(segment);
+            if (child != null) {
+                collectMatching(child, segments, depth + 1, result);
+            }
+        }
+    }
+
+    /**
+     * Add the values stored under regular subjects strictly below a node
+     */
+    private void collectBelow(Node<V> node, Collection<V> result) {
+        if (node.children == null) {
+            return;
+        }
+        for (Node<V> child : node.children.values()) {
+            if (child.values != null) {
+                result.addAll(child.values);
+            }
+            collectBelow(child, result);
+        }
+    }
+
+    private static boolean isTail(String segment) {
+        return segment.endsWith(EventKey.wildChar);
+    }
+
+    private static String tailPrefix(String segment) {
+        return segment.substring(0, segment.length() - EventKey.wildChar.length());
+    }
+
+    /**
+     * A segment of the trie
+     */
+    private static final class Node<V> {
+
+        /**
+         * Regular segments below this node
+         */
+        private Map<String, Node<V>> children;
+
+        /**
+         * The single segment wildcard below this node
+         */
+        private Node<V> anySegment;
+
+        /**
+         * Patterns whose last segment ends with a wild char at this depth, by the characters before it
+         */
+        private PrefixNode<V> tails;
+
+        /**
+         * Values of the subjects ending at this node
+         */
+        private List<V> values;
+
+        private Node<V> getChild(String segment, boolean create) {
+            if (EventKey.segmentWildChar.equals(segment)) {
+                if (anySegment == null && create) {
+                    anySegment = new Node<V>();
+                }
+                return anySegment;
+            }
+
+            Node<V> child = children == null ? null : children.get(segment);
+            if (child == null && create) {
+                if (children == null) {
+                    children = new HashMap<String, Node<V>>();
+                }
+                child = new Node<V>();
+                children.put(segment, child);
+            }
+            return child;
+        }
+
+        private List<V> getValues(boolean create) {
+            if (values == null && create) {
+                values = new ArrayList<V>();
+            }
+            return values;
+        }
+
+        private List<V> getTail(String prefix, boolean create) {
+            if (tails == null) {
+                if (!create) {
+                    return null;
+                }
+                tails = new PrefixNode<V>();
+            }
+
+            PrefixNode<V> node = tails;
+            for (int i = 0; i < prefix.length(); i++) {
+                PrefixNode<V> next = node.next == null ? null : node.next.get(prefix.charAt(i));
+                if (next == null) {
+                    if (!create) {
+                        return null;
+                    }
+                    if (node.next == null) {
+                        node.next = new HashMap<Character, PrefixNode<V>>();
+                    }
+                    next = new PrefixNode<V>();
+                    node.next.put(prefix.charAt(i), next);
+                }
+                node = next;
+            }
+
+            if (node.values == null && create) {
+                node.values = new ArrayList<V>();
+            }
+            return node.values;
+        }
+    }
+
+    /**
+     * A character of the prefix of a pattern segment ending with a wild char
+     */
+    private static final class PrefixNode<V> {
+
+        private Map<Character, PrefixNode<V>> next;
+
+        private List<V> values;
+    }
+}
@@ -0,0 +1,42 @@
+package com.proto.core.event;
+
+/**
+ * Pending {@link TimedEvent}s ordered by time of publication, as buffered by {@link BufferedProducer}.
+ *
+ * The time of an event is read once when it is added. The queue never reads a clock; callers pass the current time
+ * of whichever clock they use, so simulated clocks may jump forward or stand still.
+ * Events with the same time are released in the order they were added.
+ *
+ * Implementations are not thread-safe.
+ *
+ * @author wfrancis
+ */
+public interface TimedEventQueue {
+
+    /**
+     * Add an event to be released at the time of the event.
+     */
+    void put(EventKey eventKey, TimedEvent event);
+
+    /**
+     * Remove the earliest event due at the given time.
+     *
+     * @param now the current time in milliseconds
+     * @return the earliest event whose time is not after now, or null if no event is due.
+     */
+    ScheduledEvent poll(long now);
+
+    /**
+     * @return the time in milliseconds of the earliest event, or {@link Long#MAX_VALUE} if the queue is empty.
+     */
+    long nextEventTime();
+
+    /**
+     * Hand back an entry returned by {@link #poll} once it is no longer used, so the queue may reuse it.
+     */
+    void recycle(ScheduledEvent entry);
+
+    int size();
+
+    void clear();
+}
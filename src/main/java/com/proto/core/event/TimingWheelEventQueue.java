@@ -0,0 +1,301 @@
+package com.proto.core.event;
+
+import java.util.Arrays;
+
+/**
+ * {@link TimedEventQueue} backed by a hierarchical timing wheel with a resolution of one millisecond.
+ *
+ * Each level has 64 slots. Level 0 holds the events of the current 64 ms block, one slot per millisecond;
+ * level n holds events further away, one slot per 64^n ms. An event is added to the lowest level whose slot
+ * range contains it, in O(1). As the wheel time moves into the range of a higher level slot, that slot is
+ * cascaded into the lower levels. Occupancy bitmaps let the wheel jump over empty slots, so a clock jumping
+ * hours ahead costs a few bit scans per level rather than a walk over every millisecond.
+ *
+ * Expired events move to a ready list in time order. Events added with a time the wheel has already passed
+ * are sorted into the ready list directly. Events with the same time keep the order they were added in.
+ *
+ * Times are expected to be non-negative, i.e. milliseconds since the epoch. Earlier times are released immediately.
+ *
+ * Recycled entries are kept for reuse, so once the queue has grown to its working size adding an event
+ * does not allocate.
+ *
+ * TimingWheelEventQueue is not thread-safe.
+ *
+ * @author wfrancis
+ */
+public class TimingWheelEventQueue implements TimedEventQueue {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = (Long.SIZE + SLOT_BITS - 1) / SLOT_BITS;
+
+    /**
+     * Events of each slot, in the order they were added
+     */
+    private final ScheduledEvent[][] heads = new ScheduledEvent[LEVELS][SLOTS];
+    private final ScheduledEvent[][] tails = new ScheduledEvent[LEVELS][SLOTS];
+
+    /**
+     * Earliest event time of each slot, valid while the slot is occupied
+     */
+    private final long[][] slotMinimums = new long[LEVELS][SLOTS];
+
+    /**
+     * One bit per occupied slot of each level
+     */
+    private final long[] occupied = new long[LEVELS];
+
+    /**
+     * Expired events in time order
+     */
+    private ScheduledEvent readyHead;
+    private ScheduledEvent readyTail;
+
+    /**
+     * Recycled entries, linked through next
+     */
+    private ScheduledEvent free;
+
+    /**
+     * Wheel time. Every event earlier than current is in the ready list.
+     */
+    private long current;
+
+    private int size;
+
+    public void put(EventKey eventKey, TimedEvent event) {
+        ScheduledEvent entry = free;
+        if (entry == null) {
+            entry = new ScheduledEvent();
+        } else {
+            free = entry.next;
+            entry.next = null;
+        }
+        entry.set(eventKey, event);
+
+        if (entry.getTime() < current) {
+            insertReady(entry);
+        } else {
+            insert(entry);
+        }
+        size++;
+    }
+
+    public ScheduledEvent poll(long now) {
+        advance(now);
+
+        ScheduledEvent entry = readyHead;
+        if (entry == null || entry.getTime() > now) {
+            return null;
+        }
+
+        readyHead = entry.next;
+        if (readyHead == null) {
+            readyTail = null;
+        } else {
+            readyHead.prev = null;
+        }
+        entry.next = null;
+        size--;
+        return entry;
+    }
+
+    public void recycle(ScheduledEvent entry) {
+        entry.clear();
+        entry.next = free;
+        free = entry;
+    }
+
+    public long nextEventTime() {
+        if (readyHead != null) {
+            return readyHead.getTime();
+        }
+
+        long bits = occupied[0] & (-1L << digit(current, 0));
+        if (bits != 0) {
+            return (current & ~SLOT_MASK) | Long.numberOfTrailingZeros(bits);
+        }
+
+        for (int level = 1; level < LEVELS; level++) {
+            bits = slotsAfter(level, digit(current, level));
+            if (bits != 0) {
+                return slotMinimums[level][Long.numberOfTrailingZeros(bits)];
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        for (int level = 0; level < LEVELS; level++) {
+            Arrays.fill(heads[level], null);
+            Arrays.fill(tails[level], null);
+        }
+        Arrays.fill(occupied, 0L);
+        readyHead = null;
+        readyTail = null;
+        size = 0;
+    }
+
+    /**
+     * Move the wheel time past target, expiring every event up to target into the ready list.
+     */
+    private void advance(long target) {
+        if (target < current) {
+            return;
+        }
+        if (target == Long.MAX_VALUE) {
+            target--;
+        }
+
+        while (true) {
+            long bits = occupied[0] & (-1L << digit(current, 0));
+            if (bits != 0) {
+                int slot = Long.numberOfTrailingZeros(bits);
+                long time = (current & ~SLOT_MASK) | slot;
+                if (time > target) {
+                    current = target + 1;
+                    return;
+                }
+
+                expire(slot);
+                current = time + 1;
+                cascade();
+                continue;
+            }
+
+            // the current block of level 0 is empty, jump to the next occupied slot of a higher level
+            long start = Long.MAX_VALUE;
+            for (int level = 1; level < LEVELS; level++) {
+                bits = slotsAfter(level, digit(current, level));
+                if (bits != 0) {
+                    int shift = SLOT_BITS * level;
+                    long higher = shift + SLOT_BITS >= Long.SIZE ? 0 : current & (-1L << (shift + SLOT_BITS));
+                    start = higher | ((long) Long.numberOfTrailingZeros(bits) << shift);
+                    break;
+                }
+            }
+
+            if (start > target) {
+                // target + 1 may be the start of the slot found
+                current = target + 1;
+                cascade();
+                return;
+            }
+            current = start;
+            cascade();
+        }
+    }
+
+    /**
+     * Redistribute the higher level slots whose range now contains the wheel time, highest level first
+     * so events can fall through several levels.
+     */
+    private void cascade() {
+        for (int level = LEVELS - 1; level > 0; level--) {
+            int slot = digit(current, level);
+            if ((occupied[level] & (1L << slot)) == 0) {
+                continue;
+            }
+
+            ScheduledEvent entry = heads[level][slot];
+            heads[level][slot] = null;
+            tails[level][slot] = null;
+            occupied[level] &= ~(1L << slot);
+
+            while (entry != null) {
+                ScheduledEvent next = entry.next;
+                entry.next = null;
+                if (entry.getTime() < current) {
+                    insertReady(entry);
+                } else {
+                    insert(entry);
+                }
+                entry = next;
+            }
+        }
+    }
+
+    /**
+     * Move a level 0 slot to the end of the ready list. Its events are all later than the ready ones.
+     */
+    private void expire(int slot) {
+        ScheduledEvent head = heads[0][slot];
+        ScheduledEvent tail = tails[0][slot];
+        heads[0][slot] = null;
+        tails[0][slot] = null;
+        occupied[0] &= ~(1L << slot);
+
+        for (ScheduledEvent entry = head, prev = readyTail; entry != null; prev = entry, entry = entry.next) {
+            entry.prev = prev;
+        }
+        if (readyTail == null) {
+            readyHead = head;
+        } else {
+            readyTail.next = head;
+        }
+        readyTail = tail;
+    }
+
+    /**
+     * Add an event no earlier than the wheel time to the lowest level whose slot range contains it.
+     */
+    private void insert(ScheduledEvent entry) {
+        long time = entry.getTime();
+        long differing = time ^ current;
+        int level = differing == 0 ? 0 : (Long.SIZE - 1 - Long.numberOfLeadingZeros(differing)) / SLOT_BITS;
+        int slot = digit(time, level);
+
+        ScheduledEvent tail = tails[level][slot];
+        if (tail == null) {
+            heads[level][slot] = entry;
+            slotMinimums[level][slot] = time;
+            occupied[level] |= 1L << slot;
+        } else {
+            tail.next = entry;
+            if (time < slotMinimums[level][slot]) {
+                slotMinimums[level][slot] = time;
+            }
+        }
+        tails[level][slot] = entry;
+    }
+
+    /**
+     * Sort an event earlier than the wheel time into the ready list, after the ready events with the same time.
+     */
+    private void insertReady(ScheduledEvent entry) {
+        ScheduledEvent prev = readyTail;
+        while (prev != null && prev.getTime() > entry.getTime()) {
+            prev = prev.prev;
+        }
+
+        ScheduledEvent next = prev == null ? readyHead : prev.next;
+        entry.prev = prev;
+        entry.next = next;
+        if (prev == null) {
+            readyHead = entry;
+        } else {
+            prev.next = entry;
+        }
+        if (next == null) {
+            readyTail = entry;
+        } else {
+            next.prev = entry;
+        }
+    }
+
+    /**
+     * @return the occupied slots of a level strictly after the given slot
+     */
+    private long slotsAfter(int level, int slot) {
+        return slot == SLOT_MASK ? 0 : occupied[level] & (-2L << slot);
+    }
+
+    private static int digit(long time, int level) {
+        return (int) ((time >>> (SLOT_BITS * level)) & SLOT_MASK);
+    }
+}
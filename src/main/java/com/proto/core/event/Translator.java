@@ -51,4 +51,17 @@ public interface Translator<T> {
      * @return version number of this translator
      */
     public int getVersion();
+
+    /**
+     * A translator may reuse the objects it translates into, i.e. a ring of buffers.
+     *
+     * @return the number of translations on the same thread a translated object stays valid for,
+     *         Integer.MAX_VALUE if translated objects are never reused
+     */
+    public int getTranslationLifetime();
+
+    /**
+     * @return true if untranslated events are views only valid until the next untranslation on the same thread
+     */
+    public boolean isUntranslatingViews();
 }
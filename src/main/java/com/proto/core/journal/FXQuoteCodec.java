@@ -0,0 +1,58 @@
+package com.proto.core.journal;
+
+import com.proto.core.data.FXQuote;
+import com.proto.core.data.FXQuotePool;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link JournalCodec} for {@link FXQuote}s, writing the quote record as is.
+ *
+ * Decoded quotes are acquired from a pool, and their reference passed on as any pooled quote, see {@link FXQuote}.
+ * When every pooled quote is in use, i.e. held in a buffer downstream, the quote is decoded into an allocated quote,
+ * see {@link FXQuote#allocate()}, so a replay never fails for want of quotes. Allocated quotes need no release.
+ *
+ * @author wfrancis
+ */
+public class FXQuoteCodec implements JournalCodec {
+
+    public static final byte TYPE = 1;
+
+    private static final int DEFAULT_POOL_SIZE = 1 << 12;
+
+    /**
+     * The pool decoded quotes are acquired from
+     */
+    private final FXQuotePool pool;
+
+    public FXQuoteCodec() {
+        this(new FXQuotePool(DEFAULT_POOL_SIZE));
+    }
+
+    /**
+     * @param pool the pool decoded quotes are acquired from
+     */
+    public FXQuoteCodec(FXQuotePool pool) {
+        this.pool = pool;
+    }
+
+    public byte getType() {
+        return TYPE;
+    }
+
+    public boolean canEncode(Object event) {
+        return event instanceof FXQuote;
+    }
+
+    public void encode(Object event, ByteBuffer dst) {
+        ((FXQuote) event).writeTo(dst);
+    }
+
+    public Object decode(ByteBuffer src) {
+        FXQuote quote = pool.acquire();
+        if (quote == null) {
+            quote = FXQuote.allocate();
+        }
+        return quote.readFrom(src);
+    }
+}
@@ -0,0 +1,34 @@
+package com.proto.core.journal;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary encoding of one kind of event in a journal.
+ *
+ * @author wfrancis
+ */
+public interface JournalCodec {
+
+    /**
+     * @return the type written in the journal records of this codec, unique among the codecs of a journal
+     * and in [1, 127].
+     */
+    byte getType();
+
+    /**
+     * @return true if this codec can encode the event
+     */
+    boolean canEncode(Object event);
+
+    /**
+     * Write the event at the position of dst, advancing it.
+     *
+     * @throws java.nio.BufferOverflowException if dst has not enough room
+     */
+    void encode(Object event, ByteBuffer dst) throws Exception;
+
+    /**
+     * Read an event from src, between its position and limit.
+     */
+    Object decode(ByteBuffer src) throws Exception;
+}
@@ -0,0 +1,86 @@
+package com.proto.core.journal;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Layout of the journal segments.
+ *
+ * A journal is a sequence of segment files named &lt;name&gt;-&lt;index&gt;.journal. Each segment is
+ * self-contained and starts with a header:
+ * <pre>
+ *   int  magic
+ *   int  version
+ *   long creation time, epoch millis
+ * </pre>
+ * followed by records:
+ * <pre>
+ *   int  record length, header included
+ *   byte record type
+ *   KEY record:   int key id, short subject length, subject bytes (UTF-8)
+ *   event record: int key id, long event time, epoch nanos, event bytes written by the codec of the type
+ * </pre>
+ * A KEY record defines a key id before its first use in the segment. A record length of 0, or too little room left
+ * for a record length, ends the segment. Values are little endian.
+ *
+ * @author wfrancis
+ */
+final class JournalFormat {
+
+    static final int MAGIC = 0x4D444A31;
+
+    static final int VERSION = 1;
+
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    static final int SEGMENT_HEADER_LENGTH = 16;
+
+    /**
+     * record length and type
+     */
+    static final int RECORD_HEADER_LENGTH = 5;
+
+    /**
+     * key id and event time
+     */
+    static final int EVENT_HEADER_LENGTH = 12;
+
+    static final byte KEY_TYPE = 0;
+
+    static final String SUFFIX = ".journal";
+
+    private JournalFormat() {
+    }
+
+    static File segmentFile(File directory, String name, int index) {
+        return new File(directory, name + "-" + String.format("%08d", index) + SUFFIX);
+    }
+
+    /**
+     * @return the segments of a journal, in order
+     */
+    static File[] listSegments(File directory, String name) {
+        final Pattern pattern = Pattern.compile(Pattern.quote(name) + "-\\d{8}" + Pattern.quote(SUFFIX));
+        File[] segments = directory.listFiles(new FilenameFilter() {
+            public boolean accept(File dir, String fileName) {
+                return pattern.matcher(fileName).matches();
+            }
+        });
+        if (segments == null) {
+            return new File[0];
+        }
+        Arrays.sort(segments);
+        return segments;
+    }
+
+    /**
+     * @return the index of a segment file
+     */
+    static int segmentIndex(File segment, String name) {
+        String fileName = segment.getName();
+        return Integer.parseInt(fileName.substring(name.length() + 1, fileName.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,410 @@
+package com.proto.core.journal;
+
+import com.proto.core.event.EventKey;
+import com.proto.core.event.Listener;
+import com.proto.core.event.NanoTimedEvent;
+import com.proto.core.event.TimedEvent;
+import com.proto.utils.Sequencer;
+import com.proto.utils.Threads;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Listener} appending every {@link TimedEvent} it receives to a journal of memory-mapped segment files,
+ * see {@link JournalFormat} for the layout. Register it with a wildcard key such as {@link EventKey#wildChar} on a
+ * channel manager to journal everything flowing through the manager.
+ *
+ * The calling thread only encodes the event into a slot of a pre-allocated staging ring and never blocks: when the
+ * ring is full the event is dropped and counted. A writer thread copies the staged records into the current
+ * segment and starts a new segment when it is full or older than the roll interval.
+ * Events that no codec can encode, events whose encoding does not fit a slot, and events whose key is longer than
+ * {@link #MAX_SUBJECT_LENGTH}, are counted and skipped. If writing fails the journal stops.
+ * Other events are ignored.
+ *
+ * JournalListener is thread-safe.
+ *
+ * @author wfrancis
+ */
+public class JournalListener implements Listener {
+
+    private static final Logger LOG = Logger.getLogger(JournalListener.class);
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    public static final long DEFAULT_ROLL_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    public static final int DEFAULT_STAGING_SLOTS = 1 << 14;
+
+    public static final int DEFAULT_SLOT_SIZE = 256;
+
+    /**
+     * The max length in chars of the subject of a journaled event key
+     */
+    public static final int MAX_SUBJECT_LENGTH = 256;
+
+    /**
+     * Maximum time the writer thread parks before checking whether the segment must roll
+     */
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Slot type of an event that could not be staged
+     */
+    private static final byte SKIPPED = -1;
+
+    private final File directory;
+
+    private final String name;
+
+    private final int segmentSize;
+
+    private final long rollIntervalMillis;
+
+    private final JournalCodec[] codecs;
+
+    /**
+     * Coordinates the calling threads and the writer thread over the slots
+     */
+    private final Sequencer sequencer;
+
+    /**
+     * Encoded events, one buffer per slot
+     */
+    private final ByteBuffer[] slots;
+
+    private final EventKey[] slotKeys;
+
+    private final byte[] slotTypes;
+
+    private final long[] slotTimes;
+
+    /**
+     * Key ids of the current segment, by subject. Only used by the writer thread.
+     */
+    private final Map<String, Integer> keyIds = new HashMap<String, Integer>();
+
+    /**
+     * The current segment, only used by the writer thread
+     */
+    private MappedByteBuffer segment;
+
+    private int segmentIndex;
+
+    private long segmentCreated;
+
+    private final AtomicLong written = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong skipped = new AtomicLong();
+
+    private final AtomicLong segments = new AtomicLong();
+
+    /**
+     * JournalListener uses executor as its writer thread.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * true until the journal is stopped
+     */
+    private final AtomicBoolean active;
+
+    /**
+     * @param directory the directory of the segments
+     * @param name      the name of the journal, prefix of the segment files
+     * @param codecs    the codecs of the journaled events, tried in order
+     */
+    public JournalListener(File directory, String name, JournalCodec... codecs) throws IOException {
+        this(directory, name, DEFAULT_SEGMENT_SIZE, DEFAULT_ROLL_INTERVAL_MILLIS, DEFAULT_STAGING_SLOTS, DEFAULT_SLOT_SIZE, codecs);
+    }
+
+    /**
+     * @param directory          the directory of the segments
+     * @param name               the name of the journal, prefix of the segment files
+     * @param segmentSize        the size of a segment file in bytes
+     * @param rollIntervalMillis the max age of a segment before a new one is started
+     * @param stagingSlots       the number of events that may wait for the writer thread, must be a power of two
+     * @param slotSize           the max size in bytes of an encoded event
+     * @param codecs             the codecs of the journaled events, tried in order
+     */
+    public JournalListener(File directory, String name, int segmentSize, long rollIntervalMillis, int stagingSlots,
+                           int slotSize, JournalCodec... codecs) throws IOException {
+        // a new segment must hold the key record and the event record of any staged event
+        if (segmentSize < JournalFormat.SEGMENT_HEADER_LENGTH + keyRecordLength(MAX_SUBJECT_LENGTH)
+                + JournalFormat.RECORD_HEADER_LENGTH + JournalFormat.EVENT_HEADER_LENGTH + slotSize + 4) {
+            throw new IllegalArgumentException("Segment size " + segmentSize + " too small for slot size " + slotSize);
+        }
+        for (JournalCodec codec : codecs) {
+            if (codec.getType() <= JournalFormat.KEY_TYPE) {
+                throw new IllegalArgumentException("Codec type must be positive: " + codec.getType());
+            }
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create journal directory " + directory);
+        }
+
+        this.directory = directory;
+        this.name = name;
+        this.segmentSize = segmentSize;
+        this.rollIntervalMillis = rollIntervalMillis;
+        this.codecs = codecs.clone();
+        this.sequencer = new Sequencer(stagingSlots);
+        this.slots = new ByteBuffer[stagingSlots];
+        this.slotKeys = new EventKey[stagingSlots];
+        this.slotTypes = new byte[stagingSlots];
+        this.slotTimes = new long[stagingSlots];
+
+        ByteBuffer staging = ByteBuffer.allocateDirect(stagingSlots * slotSize);
+        for (int i = 0; i < stagingSlots; i++) {
+            staging.limit((i + 1) * slotSize).position(i * slotSize);
+            slots[i] = staging.slice().order(JournalFormat.ORDER);
+        }
+
+        File[] existing = JournalFormat.listSegments(directory, name);
+        this.segmentIndex = existing.length == 0 ? 0 : JournalFormat.segmentIndex(existing[existing.length - 1], name) + 1;
+        openSegment();
+
+        this.executor = Executors.newSingleThreadExecutor(Threads.createFactory("JournalListener"));
+        this.active = new AtomicBoolean(true);
+
+        executor.submit(new Runnable() {
+            public void run() {
+                writeLoop();
+            }
+        });
+    }
+
+    public void consume(EventKey eventKey, Object event) throws Exception {
+        if (!(event instanceof TimedEvent) || !active.get()) {
+            return;
+        }
+        if (eventKey.toString().length() > MAX_SUBJECT_LENGTH) {
+            skipped.incrementAndGet();
+            return;
+        }
+
+        long sequence = sequencer.tryNext();
+        if (sequence < 0) {
+            dropped.incrementAndGet();
+            return;
+        }
+
+        int index = sequencer.index(sequence);
+        ByteBuffer slot = slots[index];
+        slot.clear();
+        slotKeys[index] = eventKey;
+        slotTimes[index] = getTimeNanos((TimedEvent) event);
+        slotTypes[index] = SKIPPED;
+
+        try {
+            for (JournalCodec codec : codecs) {
+                if (codec.canEncode(event)) {
+                    codec.encode(event, slot);
+                    slotTypes[index] = codec.getType();
+                    break;
+                }
+            }
+        } catch (BufferOverflowException e) {
+            // too large for a slot, counted as skipped by the writer thread
+            slotTypes[index] = SKIPPED;
+        } catch (Exception e) {
+            slotTypes[index] = SKIPPED;
+            LOG.error("Error encoding, eventKey: " + eventKey + ", event: " + event + ".", e);
+        } finally {
+            slot.flip();
+            sequencer.publish(sequence);
+        }
+    }
+
+    /**
+     * @return the number of events written to the journal
+     */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /**
+     * @return the number of events dropped because the staging ring was full
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return the number of events no codec could encode within a slot, or with a subject too long
+     */
+    public long getSkippedCount() {
+        return skipped.get();
+    }
+
+    /**
+     * @return the number of segments started
+     */
+    public long getSegmentCount() {
+        return segments.get();
+    }
+
+    /**
+     * Stop journaling. Events already staged are written before the writer thread exits.
+     */
+    public void stop() {
+        active.set(false);
+        sequencer.wakeUp();
+        executor.shutdown();
+    }
+
+    /**
+     * Stop journaling and wait for the staged events to be written.
+     */
+    public void close() throws InterruptedException {
+        stop();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    private void writeLoop() {
+        long next = sequencer.getReleased() + 1;
+
+        try {
+            while (true) {
+                long available = sequencer.getHighestAvailable(next);
+
+                if (available >= next) {
+                    rollIfExpired();
+                    for (long sequence = next; sequence <= available; sequence++) {
+                        write(sequencer.index(sequence));
+                    }
+                    sequencer.release(available);
+                    next = available + 1;
+                } else if (active.get()) {
+                    rollIfExpired();
+                    sequencer.waitFor(next, PARK_NANOS);
+                } else if (sequencer.getHighestAvailable(next) < next) {
+                    // nothing was published before the journal was stopped
+                    break;
+                }
+            }
+            segment.force();
+        } catch (IOException e) {
+            LOG.error("Error writing journal " + name + " in " + directory, e);
+            active.set(false);
+        } catch (RuntimeException e) {
+            LOG.error("Error writing journal " + name + " in " + directory, e);
+            active.set(false);
+        }
+
+        LOG.info(Thread.currentThread().getName() + " Exiting write loop");
+    }
+
+    /**
+     * Append the event of a slot to the current segment and clear the slot.
+     */
+    private void write(int index) throws IOException {
+        EventKey eventKey = slotKeys[index];
+        slotKeys[index] = null;
+
+        byte type = slotTypes[index];
+        if (type == SKIPPED) {
+            skipped.incrementAndGet();
+            return;
+        }
+
+        ByteBuffer body = slots[index];
+        int length = JournalFormat.RECORD_HEADER_LENGTH + JournalFormat.EVENT_HEADER_LENGTH + body.remaining();
+
+        String subject = eventKey.toString();
+        Integer keyId = keyIds.get(subject);
+        int keyLength = keyId == null ? keyRecordLength(subject.length()) : 0;
+        if (segment.remaining() < keyLength + length + 4) {
+            roll();
+            keyId = null;
+        }
+        if (keyId == null) {
+            keyId = keyIds.size();
+            keyIds.put(subject, keyId);
+            writeKey(keyId, subject);
+        }
+
+        int start = segment.position();
+        segment.position(start + 4);
+        segment.put(type);
+        segment.putInt(keyId);
+        segment.putLong(slotTimes[index]);
+        segment.put(body);
+        // length last, a reader of a live segment never sees a partial record
+        segment.putInt(start, length);
+
+        written.incrementAndGet();
+    }
+
+    private void writeKey(int keyId, String subject) throws IOException {
+        byte[] bytes = subject.getBytes("UTF-8");
+        int start = segment.position();
+        segment.position(start + 4);
+        segment.put(JournalFormat.KEY_TYPE);
+        segment.putInt(keyId);
+        segment.putShort((short) bytes.length);
+        segment.put(bytes);
+        segment.putInt(start, segment.position() - start);
+    }
+
+    private void rollIfExpired() throws IOException {
+        if (segment.position() > JournalFormat.SEGMENT_HEADER_LENGTH
+                && System.currentTimeMillis() - segmentCreated >= rollIntervalMillis) {
+            roll();
+        }
+    }
+
+    private void roll() throws IOException {
+        segment.force();
+        segmentIndex++;
+        openSegment();
+    }
+
+    private void openSegment() throws IOException {
+        File file = JournalFormat.segmentFile(directory, name, segmentIndex);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            segment = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } finally {
+            raf.close();
+        }
+        segment.order(JournalFormat.ORDER);
+
+        segmentCreated = System.currentTimeMillis();
+        segment.putInt(JournalFormat.MAGIC);
+        segment.putInt(JournalFormat.VERSION);
+        segment.putLong(segmentCreated);
+
+        keyIds.clear();
+        segments.incrementAndGet();
+    }
+
+    /**
+     * @return the max length of the key record of a subject, at most 3 UTF-8 bytes per char
+     */
+    private static int keyRecordLength(int subjectLength) {
+        return JournalFormat.RECORD_HEADER_LENGTH + 6 + 3 * subjectLength;
+    }
+
+    private static long getTimeNanos(TimedEvent event) {
+        if (event instanceof NanoTimedEvent) {
+            return ((NanoTimedEvent) event).getTimeNanos();
+        }
+        return TimeUnit.MILLISECONDS.toNanos(event.getTime().getTime());
+    }
+}
@@ -0,0 +1,186 @@
+package com.proto.core.journal;
+
+import com.proto.core.event.EventKey;
+import com.proto.core.event.EventKeyRegistry;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads back the events of a journal written by {@link JournalListener}, segment by segment, in the order
+ * they were written.
+ *
+ * Event keys are interned in the given registry. Events of a type without a codec are skipped.
+ *
+ * JournalReader is not thread-safe.
+ *
+ * @author wfrancis
+ */
+public class JournalReader {
+
+    private final File[] segmentFiles;
+
+    private final EventKeyRegistry registry;
+
+    /**
+     * Codecs by type
+     */
+    private final JournalCodec[] codecs = new JournalCodec[128];
+
+    /**
+     * Keys of the current segment, by key id
+     */
+    private final List<EventKey> keys = new ArrayList<EventKey>();
+
+    private int nextSegment;
+
+    private MappedByteBuffer segment;
+
+    private EventKey eventKey;
+
+    private Object event;
+
+    private long timeNanos;
+
+    /**
+     * @param directory the directory of the segments
+     * @param name      the name of the journal
+     * @param registry  registry interning the event keys
+     * @param codecs    the codecs of the journaled events
+     */
+    public JournalReader(File directory, String name, EventKeyRegistry registry, JournalCodec... codecs) {
+        this.segmentFiles = JournalFormat.listSegments(directory, name);
+        this.registry = registry;
+        for (JournalCodec codec : codecs) {
+            this.codecs[codec.getType()] = codec;
+        }
+    }
+
+    /**
+     * Move to the next event.
+     *
+     * @return false if there are no more events.
+     */
+    public boolean next() throws Exception {
+        while (true) {
+            if (segment == null || segment.remaining() < JournalFormat.RECORD_HEADER_LENGTH) {
+                if (!openNextSegment()) {
+                    return false;
+                }
+                continue;
+            }
+
+            int start = segment.position();
+            int length = segment.getInt();
+            if (length == 0) {
+                segment = null;
+                continue;
+            }
+            int end = start + length;
+
+            byte type = segment.get();
+            if (type == JournalFormat.KEY_TYPE) {
+                int keyId = segment.getInt();
+                byte[] bytes = new byte[segment.getShort()];
+                segment.get(bytes);
+                while (keys.size() <= keyId) {
+                    keys.add(null);
+                }
+                keys.set(keyId, registry.intern(new String(bytes, "UTF-8")));
+                continue;
+            }
+
+            if (type < 0) {
+                throw new IOException("Corrupt journal record type " + type + " at " + start
+                        + " in " + segmentFiles[nextSegment - 1]);
+            }
+            int keyId = segment.getInt();
+            long time = segment.getLong();
+            JournalCodec codec = codecs[type];
+            if (codec == null) {
+                segment.position(end);
+                continue;
+            }
+
+            segment.limit(end);
+            try {
+                event = codec.decode(segment);
+            } finally {
+                segment.limit(segment.capacity());
+                segment.position(end);
+            }
+            eventKey = keys.get(keyId);
+            timeNanos = time;
+            return true;
+        }
+    }
+
+    /**
+     * @return the key of the current event
+     */
+    public EventKey getEventKey() {
+        return eventKey;
+    }
+
+    /**
+     * @return the current event
+     */
+    public Object getEvent() {
+        return event;
+    }
+
+    /**
+     * @return the time of the current event in nanoseconds since the epoch
+     */
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+    /**
+     * @return the time of the current event in milliseconds since the epoch
+     */
+    public long getTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(timeNanos);
+    }
+
+    /**
+     * @return the number of segments of the journal
+     */
+    public int getSegmentCount() {
+        return segmentFiles.length;
+    }
+
+    private boolean openNextSegment() throws IOException {
+        segment = null;
+        if (nextSegment >= segmentFiles.length) {
+            return false;
+        }
+
+        File file = segmentFiles[nextSegment++];
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            segment = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        } finally {
+            raf.close();
+        }
+        segment.order(JournalFormat.ORDER);
+
+        if (segment.remaining() < JournalFormat.SEGMENT_HEADER_LENGTH || segment.getInt() != JournalFormat.MAGIC) {
+            throw new IOException("Not a journal segment: " + file);
+        }
+        int version = segment.getInt();
+        if (version != JournalFormat.VERSION) {
+            throw new IOException("Unsupported journal version " + version + " in " + file);
+        }
+        segment.getLong();
+
+        keys.clear();
+        return true;
+    }
+}
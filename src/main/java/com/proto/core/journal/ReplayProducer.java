@@ -0,0 +1,206 @@
+package com.proto.core.journal;
+
+import com.proto.core.event.BufferedProducer;
+import com.proto.core.event.Listener;
+import com.proto.core.event.Producer;
+import com.proto.utils.SettableClock;
+import com.proto.utils.Threads;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * {@link Producer} republishing the events of a journal, see {@link JournalReader}, in the order they were recorded.
+ *
+ * Events are replayed at speed times the recorded pace: 1 replays in real time, 10 ten times faster.
+ * With {@link #MAX_SPEED} events are published as fast as the listener accepts them, without sleeping.
+ *
+ * Given a simulated clock, the clock is set to the recorded time of each event before it is published, so a
+ * {@link BufferedProducer} or anything else driven by the same clock sees the recorded timeline whatever the
+ * replay speed. The clock only moves forward after the first event. The clock runs ahead of the events still
+ * buffered downstream, so listeners reading it see the time of the latest replayed event. A discrete event mode
+ * BufferedProducer sets its clock to the time of each event it publishes, it must own the clock: replay into it
+ * without a clock.
+ *
+ * The reference of decoded quotes passes to the listener, see {@link com.proto.core.event.ReferenceCounted}.
+ *
+ * @author wfrancis
+ */
+public class ReplayProducer implements Producer {
+
+    private static final Logger LOG = Logger.getLogger(ReplayProducer.class);
+
+    /**
+     * Replay speed publishing events as fast as possible
+     */
+    public static final double MAX_SPEED = Double.POSITIVE_INFINITY;
+
+    /**
+     * Max time the producer parks before checking whether it was stopped
+     */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * The listener interested in events
+     */
+    private Listener listener;
+
+    private final JournalReader reader;
+
+    private final double speed;
+
+    /**
+     * The simulated clock following the recorded time of the events, null if none
+     */
+    private final SettableClock clock;
+
+    private final AtomicLong replayedCount = new AtomicLong();
+
+    /**
+     * Released once the journal is fully replayed or the producer is stopped
+     */
+    private final CountDownLatch completed = new CountDownLatch(1);
+
+    /**
+     * ReplayProducer uses executor as its thread.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * true if the ReplayProducer is started, else false.
+     */
+    private final AtomicBoolean active;
+
+    /**
+     * Replay without setting a clock, i.e. into a discrete event mode {@link BufferedProducer} that owns the clock.
+     *
+     * @param reader the reader of the journal to replay, only used by the replay thread once started
+     * @param speed  the multiple of the recorded pace to replay at, or {@link #MAX_SPEED}
+     */
+    public ReplayProducer(JournalReader reader, double speed) {
+        this(reader, speed, null);
+    }
+
+    /**
+     * @param reader the reader of the journal to replay, only used by the replay thread once started
+     * @param speed  the multiple of the recorded pace to replay at, or {@link #MAX_SPEED}
+     * @param clock  the simulated clock set to the time of each event, null not to set any
+     */
+    public ReplayProducer(JournalReader reader, double speed, SettableClock clock) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Replay speed must be positive: " + speed);
+        }
+        this.reader = reader;
+        this.speed = speed;
+        this.clock = clock;
+        this.executor = Executors.newSingleThreadExecutor(Threads.createFactory("ReplayProducer"));
+        this.active = new AtomicBoolean(false);
+    }
+
+    /**
+     * @throws IllegalArgumentException if this producer sets a clock and the listener is a discrete event mode
+     *                                  {@link BufferedProducer}, which sets its own
+     */
+    public void setListener(Listener listener) {
+        if (clock != null && listener instanceof BufferedProducer && ((BufferedProducer) listener).isDiscrete()) {
+            throw new IllegalArgumentException("A discrete event mode BufferedProducer owns its clock, "
+                    + "replay into it without a clock");
+        }
+        this.listener = listener;
+    }
+
+    public void start() throws Exception {
+        if (!active.compareAndSet(false, true)) {
+            return;
+        }
+
+        executor.submit(new Runnable() {
+            public void run() {
+                try {
+                    replay();
+                } catch (Exception e) {
+                    LOG.error("Exception caught while reading the journal", e);
+                } finally {
+                    active.set(false);
+                    completed.countDown();
+                }
+
+                LOG.info(Thread.currentThread().getName() + " Exiting replay loop, replayed " + replayedCount.get() + " events");
+            }
+        });
+    }
+
+    public void stop() throws Exception {
+        active.compareAndSet(true, false);
+        executor.shutdown();
+    }
+
+    /**
+     * Wait for the journal to be fully replayed, or the producer to be stopped.
+     *
+     * @return true if the replay completed, false if the timeout elapsed first
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        return completed.await(timeout, unit);
+    }
+
+    /**
+     * @return the number of events published
+     */
+    public long getReplayedCount() {
+        return replayedCount.get();
+    }
+
+    /**
+     * @return the multiple of the recorded pace events are replayed at
+     */
+    public double getSpeed() {
+        return speed;
+    }
+
+    private void replay() throws Exception {
+        boolean paced = speed != MAX_SPEED;
+        boolean first = true;
+        long startNanos = 0;
+        long firstEventNanos = 0;
+
+        while (active.get() && reader.next()) {
+            long eventNanos = reader.getTimeNanos();
+
+            if (first) {
+                startNanos = System.nanoTime();
+                firstEventNanos = eventNanos;
+            } else if (paced) {
+                long due = startNanos + (long) ((eventNanos - firstEventNanos) / speed);
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0 && active.get()) {
+                    LockSupport.parkNanos(Math.min(wait, MAX_PARK_NANOS));
+                }
+                if (!active.get()) {
+                    break;
+                }
+            }
+
+            if (clock != null) {
+                long eventMillis = reader.getTimeMillis();
+                if (first || eventMillis > clock.currentTimeMillis()) {
+                    clock.setTime(eventMillis);
+                }
+            }
+            first = false;
+
+            try {
+                listener.consume(reader.getEventKey(), reader.getEvent());
+                replayedCount.incrementAndGet();
+            } catch (Exception e) {
+                LOG.error("Exception caught while publishing event", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.proto.core.journal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * Fallback {@link JournalCodec} for any {@link Serializable} event, using java serialization.
+ *
+ * Much slower than a dedicated codec and allocates on every event, register it after the dedicated codecs.
+ *
+ * @author wfrancis
+ */
+public class SerializableCodec implements JournalCodec {
+
+    public static final byte TYPE = 127;
+
+    public byte getType() {
+        return TYPE;
+    }
+
+    public boolean canEncode(Object event) {
+        return event instanceof Serializable;
+    }
+
+    public void encode(Object event, ByteBuffer dst) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(event);
+        out.close();
+        dst.put(bytes.toByteArray());
+    }
+
+    public Object decode(ByteBuffer src) throws Exception {
+        byte[] bytes = new byte[src.remaining()];
+        src.get(bytes);
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+        try {
+            return in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.proto.core.monitoring;
+
+/**
+ * Management interface of a {@link com.proto.core.event.BufferedProducer}.
+ *
+ * @author wfrancis
+ */
+public interface BufferedProducerMXBean {
+
+    /**
+     * @return the number of events waiting for their time of publication
+     */
+    int getQueueSize();
+
+    /**
+     * @return the number of events published to the listener
+     */
+    long getPublishedCount();
+
+    /**
+     * @return the number of events rejected, i.e. not timed or consumed while the producer was not active
+     */
+    long getRejectedCount();
+
+    /**
+     * @return the number of queued events discarded when the producer was stopped
+     */
+    long getDroppedCount();
+
+    /**
+     * @return the number of events consumed in discrete event mode with a time the clock had already passed
+     */
+    long getLateCount();
+}
@@ -0,0 +1,61 @@
+package com.proto.core.monitoring;
+
+import java.util.Map;
+
+/**
+ * Management interface of a channel manager.
+ *
+ * @author wfrancis
+ */
+public interface ChannelManagerMXBean {
+
+    /**
+     * @return the number of tasks waiting for the dispatch thread
+     */
+    int getQueueDepth();
+
+    /**
+     * @return the number of channels
+     */
+    int getChannelCount();
+
+    /**
+     * @return the number of listener registrations over every channel
+     */
+    int getListenerCount();
+
+    /**
+     * @return the number of live subscriptions by event key, for channels counting them
+     */
+    Map<String, Integer> getSubscriptionCounts();
+
+    /**
+     * @return the number of events published to the manager
+     */
+    long getPublishedCount();
+
+    /**
+     * @return the number of events dispatched to their channel
+     */
+    long getDispatchedCount();
+
+    /**
+     * @return the number of events rejected, i.e. published after the manager was stopped
+     */
+    long getRejectedCount();
+
+    /**
+     * @return the number of events whose dispatch failed
+     */
+    long getErrorCount();
+
+    /**
+     * @return the number of events published by event key prefix
+     */
+    Map<String, Long> getEventCounts();
+
+    /**
+     * @return the events published per second by event key prefix, since the previous reading
+     */
+    Map<String, Double> getEventRates();
+}
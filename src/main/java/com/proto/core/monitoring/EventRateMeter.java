@@ -0,0 +1,103 @@
+package com.proto.core.monitoring;
+
+import com.proto.core.event.EventKey;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts events per event key prefix in {@link StripedCounter}s and derives their rates.
+ *
+ * The counter of a key is looked up once and cached by key, so marking an event does not allocate.
+ * Rates are the events per second since the previous call to {@link #getRates()}, or since creation.
+ *
+ * EventRateMeter is thread-safe.
+ *
+ * @author wfrancis
+ */
+public class EventRateMeter {
+
+    private final int prefixSegments;
+
+    private final ConcurrentMap<String, StripedCounter> prefixCounters = new ConcurrentHashMap<String, StripedCounter>();
+
+    private final ConcurrentMap<EventKey, StripedCounter> keyCounters = new ConcurrentHashMap<EventKey, StripedCounter>();
+
+    /**
+     * Counts at the previous rate reading, guarded by this
+     */
+    private final Map<String, Long> lastCounts = new TreeMap<String, Long>();
+
+    private long lastNanos = System.nanoTime();
+
+    public EventRateMeter() {
+        this(1);
+    }
+
+    /**
+     * @param prefixSegments the number of leading event key segments events are counted by
+     */
+    public EventRateMeter(int prefixSegments) {
+        if (prefixSegments < 1) {
+            throw new IllegalArgumentException("Prefix segments must be positive: " + prefixSegments);
+        }
+        this.prefixSegments = prefixSegments;
+    }
+
+    public void mark(EventKey eventKey) {
+        getCounter(eventKey).increment();
+    }
+
+    public void mark(EventKey eventKey, long count) {
+        getCounter(eventKey).add(count);
+    }
+
+    /**
+     * @return the number of events by prefix
+     */
+    public SortedMap<String, Long> getCounts() {
+        SortedMap<String, Long> counts = new TreeMap<String, Long>();
+        for (Map.Entry<String, StripedCounter> entry : prefixCounters.entrySet()) {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+        return counts;
+    }
+
+    /**
+     * @return the events per second by prefix since the previous call
+     */
+    public synchronized SortedMap<String, Double> getRates() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1, now - lastNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        lastNanos = now;
+
+        SortedMap<String, Double> rates = new TreeMap<String, Double>();
+        for (Map.Entry<String, Long> entry : getCounts().entrySet()) {
+            Long last = lastCounts.put(entry.getKey(), entry.getValue());
+            long delta = entry.getValue() - (last == null ? 0 : last);
+            rates.put(entry.getKey(), delta / seconds);
+        }
+        return rates;
+    }
+
+    private StripedCounter getCounter(EventKey eventKey) {
+        StripedCounter counter = keyCounters.get(eventKey);
+        if (counter == null) {
+            String prefix = KeyPrefixes.of(eventKey, prefixSegments);
+            counter = prefixCounters.get(prefix);
+            if (counter == null) {
+                StripedCounter created = new StripedCounter();
+                counter = prefixCounters.putIfAbsent(prefix, created);
+                if (counter == null) {
+                    counter = created;
+                }
+            }
+            keyCounters.put(eventKey, counter);
+        }
+        return counter;
+    }
+}
@@ -0,0 +1,100 @@
+package com.proto.core.monitoring;
+
+import com.proto.core.event.BatchListener;
+import com.proto.core.event.EventKey;
+import com.proto.core.event.Listener;
+import com.proto.core.event.Listeners;
+import com.proto.core.event.TimedEvent;
+
+/**
+ * Wraps a {@link Listener} to record the latency of each {@link TimedEvent} from its time to the moment the
+ * wrapped listener's consume returns, in a histogram of the listener and in the
+ * {@link LatencyMonitor.Stage#COMPLETE} histogram of the event key prefix.
+ *
+ * The event time is read before the event is passed on, so listeners may release pooled events.
+ * Register and unregister the same InstrumentedListener instance, it is not equal to the listener it wraps.
+ *
+ * InstrumentedListener is as thread-safe as the listener it wraps.
+ *
+ * @author wfrancis
+ */
+public class InstrumentedListener implements BatchListener {
+
+    private final Listener listener;
+
+    private final LatencyMonitor monitor;
+
+    private final LatencyHistogram histogram;
+
+    /**
+     * Event times of a batch, by dispatching thread
+     */
+    private final ThreadLocal<long[]> batchTimes = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[256];
+        }
+    };
+
+    /**
+     * @param listener the listener to time
+     * @param name     the name the listener latencies are reported under
+     * @param monitor  the monitor recording the latencies
+     */
+    public InstrumentedListener(Listener listener, String name, LatencyMonitor monitor) {
+        this.listener = listener;
+        this.monitor = monitor;
+        this.histogram = monitor.getListenerHistogram(name);
+    }
+
+    public void consume(EventKey eventKey, Object event) throws Exception {
+        if (!(event instanceof TimedEvent)) {
+            listener.consume(eventKey, event);
+            return;
+        }
+
+        long eventTime = LatencyMonitor.getTimeNanos((TimedEvent) event);
+        listener.consume(eventKey, event);
+        record(eventKey, eventTime, monitor.currentTimeNanos());
+    }
+
+    public void consumeBatch(EventKey[] eventKeys, Object[] events, int offset, int length) throws Exception {
+        long[] times = batchTimes.get();
+        if (times.length < length) {
+            times = new long[Integer.highestOneBit(length) << 1];
+            batchTimes.set(times);
+        }
+        for (int i = 0; i < length; i++) {
+            Object event = events[offset + i];
+            times[i] = event instanceof TimedEvent ? LatencyMonitor.getTimeNanos((TimedEvent) event) : Long.MIN_VALUE;
+        }
+
+        Listeners.deliver(listener, eventKeys, events, offset, length);
+
+        long now = monitor.currentTimeNanos();
+        for (int i = 0; i < length; i++) {
+            if (times[i] != Long.MIN_VALUE) {
+                record(eventKeys[offset + i], times[i], now);
+            }
+        }
+    }
+
+    /**
+     * @return the latencies of the wrapped listener
+     */
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * @return the wrapped listener
+     */
+    public Listener getListener() {
+        return listener;
+    }
+
+    private void record(EventKey eventKey, long eventTime, long now) {
+        histogram.record(now - eventTime);
+        monitor.record(LatencyMonitor.Stage.COMPLETE, eventKey, eventTime, now);
+    }
+}
@@ -0,0 +1,30 @@
+package com.proto.core.monitoring;
+
+import com.proto.core.event.EventKey;
+
+/**
+ * Event key prefixes metrics are aggregated by.
+ *
+ * @author wfrancis
+ */
+final class KeyPrefixes {
+
+    private KeyPrefixes() {
+    }
+
+    /**
+     * @return the first segments of an event key, split on {@link EventKey#stringDelimiter},
+     * the whole key if it has no more segments
+     */
+    static String of(EventKey eventKey, int segments) {
+        String key = eventKey.toString();
+        int end = -1;
+        for (int i = 0; i < segments; i++) {
+            end = key.indexOf(EventKey.stringDelimiter, end + 1);
+            if (end < 0) {
+                return key;
+            }
+        }
+        return key.substring(0, end);
+    }
+}
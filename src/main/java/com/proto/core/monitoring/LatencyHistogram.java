@@ -0,0 +1,150 @@
+package com.proto.core.monitoring;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-memory histogram of latencies in nanoseconds with log-linear buckets.
+ *
+ * Values below 64 ns have a bucket each. Above, every power of two range is split into 32 linear buckets,
+ * so a recorded value is reported with a relative error of at most 1/32, about 3%, over the whole range of
+ * a long. The histogram takes 1888 counters whatever the values recorded.
+ *
+ * Recording is a few bit operations and an atomic increment, and never allocates.
+ * Negative values, i.e. from clocks out of sync, are recorded as 0.
+ *
+ * LatencyHistogram is thread-safe. Percentiles are read without stopping the recording threads,
+ * so a snapshot taken while recording may be slightly inconsistent.
+ *
+ * @author wfrancis
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+
+    /**
+     * Linear buckets, then 32 buckets per power of two up to 2^62
+     */
+    static final int BUCKETS = LINEAR_LIMIT + (Long.SIZE - 2 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(bucket(nanos));
+
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * @return the number of latencies recorded
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @return the highest latency recorded, 0 if none
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the latency in nanoseconds at or below which the given percentage of recorded latencies fall,
+     * as the upper bound of its bucket, 0 if none recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        return snapshot(new double[]{percentile})[0];
+    }
+
+    /**
+     * @return the count, 50th, 99th and 99.9th percentiles and max of the latencies recorded so far
+     */
+    public LatencySnapshot getSnapshot() {
+        long[] values = snapshot(new double[]{50, 99, 99.9});
+        return new LatencySnapshot(values[3], values[0], values[1], values[2], getMax());
+    }
+
+    /**
+     * Forget every latency recorded.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        max.set(0);
+    }
+
+    /**
+     * @return the values at each of the given percentiles, followed by the total count
+     */
+    private long[] snapshot(double[] percentiles) {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+
+        long[] values = new long[percentiles.length + 1];
+        values[percentiles.length] = total;
+        if (total == 0) {
+            return values;
+        }
+
+        long highest = getMax();
+        for (int p = 0; p < percentiles.length; p++) {
+            long rank = Math.max(1, (long) Math.ceil(percentiles[p] / 100 * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += copy[i];
+                if (seen >= rank) {
+                    values[p] = Math.min(upperBound(i), highest);
+                    break;
+                }
+            }
+        }
+        return values;
+    }
+
+    static int bucket(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * @return the highest value of a bucket
+     */
+    static long upperBound(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int shift = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long mantissa = (bucket - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        long next = (mantissa + 1) << shift;
+        return next < 0 ? Long.MAX_VALUE : next - 1;
+    }
+}
@@ -0,0 +1,211 @@
+package com.proto.core.monitoring;
+
+import com.proto.core.event.EventKey;
+import com.proto.core.event.NanoTimedEvent;
+import com.proto.core.event.TimedEvent;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latency of {@link TimedEvent}s at each stage of their way through the server, from the time of the
+ * event to the moment the stage is reached, in a {@link LatencyHistogram} per stage and per event key prefix.
+ * Listeners wrapped in an {@link InstrumentedListener} also get a histogram of their own.
+ *
+ * The prefix of an event key is made of its first segments, split on {@link EventKey#stringDelimiter}, i.e. FX
+ * for FX.EURUSD with the default of one segment. The histograms of a key are looked up once and cached by key,
+ * so recording the latency of a {@link NanoTimedEvent} does not allocate. Other events are ignored.
+ *
+ * Event times are compared to the wall clock at nanosecond resolution, calibrated against
+ * {@link System#currentTimeMillis()} when the monitor is created.
+ *
+ * LatencyMonitor is thread-safe.
+ *
+ * @author wfrancis
+ */
+public class LatencyMonitor {
+
+    /**
+     * The stages an event is timed at
+     */
+    public enum Stage {
+        /**
+         * Translated by a {@link com.proto.core.event.Receiver}
+         */
+        RECEIVE,
+        /**
+         * Handed to a channel manager by its producer
+         */
+        ENQUEUE,
+        /**
+         * Dispatched to its channel by the channel manager
+         */
+        DISPATCH,
+        /**
+         * Consumed by an {@link InstrumentedListener}
+         */
+        COMPLETE
+    }
+
+    private static final int STAGES = Stage.values().length;
+
+    /**
+     * Number of leading key segments making the prefix
+     */
+    private final int prefixSegments;
+
+    /**
+     * Epoch time in nanoseconds minus {@link System#nanoTime()}
+     */
+    private final long epochOffsetNanos;
+
+    /**
+     * Histograms by stage of each prefix
+     */
+    private final ConcurrentMap<String, LatencyHistogram[]> prefixHistograms = new ConcurrentHashMap<String, LatencyHistogram[]>();
+
+    /**
+     * Histograms of the prefix of each key seen
+     */
+    private final ConcurrentMap<EventKey, LatencyHistogram[]> keyHistograms = new ConcurrentHashMap<EventKey, LatencyHistogram[]>();
+
+    private final ConcurrentMap<String, LatencyHistogram> listenerHistograms = new ConcurrentHashMap<String, LatencyHistogram>();
+
+    public LatencyMonitor() {
+        this(1);
+    }
+
+    /**
+     * @param prefixSegments the number of leading event key segments latencies are aggregated by
+     */
+    public LatencyMonitor(int prefixSegments) {
+        if (prefixSegments < 1) {
+            throw new IllegalArgumentException("Prefix segments must be positive: " + prefixSegments);
+        }
+        this.prefixSegments = prefixSegments;
+        this.epochOffsetNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()) - System.nanoTime();
+    }
+
+    /**
+     * Record the latency of an event reaching a stage. Events that are not {@link TimedEvent}s are ignored.
+     */
+    public void record(Stage stage, EventKey eventKey, Object event) {
+        if (event instanceof TimedEvent) {
+            record(stage, eventKey, getTimeNanos((TimedEvent) event), currentTimeNanos());
+        }
+    }
+
+    /**
+     * Record the latency of an event, with a time read earlier, reaching a stage at the given time.
+     */
+    public void record(Stage stage, EventKey eventKey, long eventTimeNanos, long nowNanos) {
+        getHistograms(eventKey)[stage.ordinal()].record(nowNanos - eventTimeNanos);
+    }
+
+    /**
+     * @return the histogram of a listener, created on first use
+     */
+    public LatencyHistogram getListenerHistogram(String name) {
+        LatencyHistogram histogram = listenerHistograms.get(name);
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = listenerHistograms.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * @return the snapshot of a stage for a prefix, empty if no event with this prefix was recorded
+     */
+    public LatencySnapshot getSnapshot(Stage stage, String prefix) {
+        LatencyHistogram[] histograms = prefixHistograms.get(prefix);
+        return histograms == null ? new LatencySnapshot(0, 0, 0, 0, 0) : histograms[stage.ordinal()].getSnapshot();
+    }
+
+    /**
+     * @return the snapshots of a stage by prefix
+     */
+    public SortedMap<String, LatencySnapshot> getSnapshots(Stage stage) {
+        SortedMap<String, LatencySnapshot> snapshots = new TreeMap<String, LatencySnapshot>();
+        for (Map.Entry<String, LatencyHistogram[]> entry : prefixHistograms.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue()[stage.ordinal()].getSnapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * @return the snapshots of the listeners by name
+     */
+    public SortedMap<String, LatencySnapshot> getListenerSnapshots() {
+        SortedMap<String, LatencySnapshot> snapshots = new TreeMap<String, LatencySnapshot>();
+        for (Map.Entry<String, LatencyHistogram> entry : listenerHistograms.entrySet()) {
+            snapshots.put(entry.getKey(), entry.getValue().getSnapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * Forget every latency recorded.
+     */
+    public void reset() {
+        for (LatencyHistogram[] histograms : prefixHistograms.values()) {
+            for (LatencyHistogram histogram : histograms) {
+                histogram.reset();
+            }
+        }
+        for (LatencyHistogram histogram : listenerHistograms.values()) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * @return the prefix latencies of an event key are aggregated by
+     */
+    public String getPrefix(EventKey eventKey) {
+        return KeyPrefixes.of(eventKey, prefixSegments);
+    }
+
+    /**
+     * @return the wall clock time in nanoseconds since the epoch
+     */
+    public long currentTimeNanos() {
+        return System.nanoTime() + epochOffsetNanos;
+    }
+
+    /**
+     * @return the time of an event in nanoseconds since the epoch
+     */
+    public static long getTimeNanos(TimedEvent event) {
+        if (event instanceof NanoTimedEvent) {
+            return ((NanoTimedEvent) event).getTimeNanos();
+        }
+        return TimeUnit.MILLISECONDS.toNanos(event.getTime().getTime());
+    }
+
+    private LatencyHistogram[] getHistograms(EventKey eventKey) {
+        LatencyHistogram[] histograms = keyHistograms.get(eventKey);
+        if (histograms == null) {
+            String prefix = getPrefix(eventKey);
+            histograms = prefixHistograms.get(prefix);
+            if (histograms == null) {
+                LatencyHistogram[] created = new LatencyHistogram[STAGES];
+                for (int i = 0; i < STAGES; i++) {
+                    created[i] = new LatencyHistogram();
+                }
+                histograms = prefixHistograms.putIfAbsent(prefix, created);
+                if (histograms == null) {
+                    histograms = created;
+                }
+            }
+            keyHistograms.put(eventKey, histograms);
+        }
+        return histograms;
+    }
+}
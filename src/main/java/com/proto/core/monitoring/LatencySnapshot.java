@@ -0,0 +1,54 @@
+package com.proto.core.monitoring;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable summary of a {@link LatencyHistogram}, latencies in nanoseconds.
+ *
+ * @author wfrancis
+ */
+public final class LatencySnapshot {
+
+    private final long count;
+    private final long p50;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    public LatencySnapshot(long count, long p50, long p99, long p999, long max) {
+        this.count = count;
+        this.p50 = p50;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count
+                + " p50=" + TimeUnit.NANOSECONDS.toMicros(p50) + "us"
+                + " p99=" + TimeUnit.NANOSECONDS.toMicros(p99) + "us"
+                + " p99.9=" + TimeUnit.NANOSECONDS.toMicros(p999) + "us"
+                + " max=" + TimeUnit.NANOSECONDS.toMicros(max) + "us";
+    }
+}
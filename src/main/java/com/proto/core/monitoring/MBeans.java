@@ -0,0 +1,57 @@
+package com.proto.core.monitoring;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Registration of the server components with the platform MBean server, under the com.proto domain.
+ *
+ * The components do not register themselves: the application bootstrap assembling the server, i.e. creating the
+ * channel manager, the producers and the senders, registers each of them once started, under the type of its MXBean
+ * interface without the MXBean suffix, and unregisters them on shutdown. Every MXBean attribute is read without
+ * waiting for the component's own threads, so a JMX client cannot stall them.
+ *
+ * @author wfrancis
+ */
+public final class MBeans {
+
+    public static final String DOMAIN = "com.proto";
+
+    private MBeans() {
+    }
+
+    /**
+     * Register a component, replacing any component registered under the same type and name.
+     *
+     * @param type  the type of the component, i.e. ChannelManager
+     * @param name  the name of the component instance
+     * @param mbean the component, implementing one of the MXBean interfaces
+     * @return the name the component is registered under
+     */
+    public static ObjectName register(String type, String name, Object mbean) throws JMException {
+        ObjectName objectName = getObjectName(type, name);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+        server.registerMBean(mbean, objectName);
+        return objectName;
+    }
+
+    /**
+     * Unregister a component, if registered.
+     */
+    public static void unregister(String type, String name) throws JMException {
+        ObjectName objectName = getObjectName(type, name);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+    }
+
+    public static ObjectName getObjectName(String type, String name) throws JMException {
+        return new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+    }
+}
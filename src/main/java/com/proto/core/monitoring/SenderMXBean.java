@@ -0,0 +1,44 @@
+package com.proto.core.monitoring;
+
+/**
+ * Management interface of a {@link com.proto.core.event.Sender}.
+ *
+ * @author wfrancis
+ */
+public interface SenderMXBean {
+
+    /**
+     * @return the number of events waiting for the sender thread
+     */
+    int getQueueDepth();
+
+    /**
+     * @return the max number of events waiting for the sender thread
+     */
+    int getQueueCapacity();
+
+    /**
+     * @return the number of events queued
+     */
+    long getQueuedCount();
+
+    /**
+     * @return the number of events sent
+     */
+    long getSentCount();
+
+    /**
+     * @return the number of events dropped because the queue was full
+     */
+    long getDroppedCount();
+
+    /**
+     * @return the number of queued events replaced by a later event with the same key
+     */
+    long getConflatedCount();
+
+    /**
+     * @return the number of times a producer waited for room in the queue
+     */
+    long getBlockedCount();
+}
@@ -0,0 +1,70 @@
+package com.proto.core.monitoring;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter spread over cells picked by thread, so threads counting concurrently rarely contend on a cell
+ * or share its cache line. Reading the total sums every cell.
+ *
+ * Counting never allocates. The total read while threads are counting may miss their latest increments.
+ *
+ * StripedCounter is thread-safe.
+ *
+ * @author wfrancis
+ */
+public class StripedCounter {
+
+    /**
+     * Cells are this many longs apart, one cache line
+     */
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells;
+
+    private final int mask;
+
+    public StripedCounter() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * @param stripes the number of cells, rounded up to a power of two
+     */
+    public StripedCounter(int stripes) {
+        int size = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.mask = size - 1;
+        // one line of padding before the first cell
+        this.cells = new AtomicLongArray((size + 1) * PADDING);
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long delta) {
+        cells.getAndAdd(index(), delta);
+    }
+
+    /**
+     * @return the sum of the cells
+     */
+    public long get() {
+        long sum = 0;
+        for (int i = 0; i <= mask; i++) {
+            sum += cells.get((i + 1) * PADDING);
+        }
+        return sum;
+    }
+
+    public void reset() {
+        for (int i = 0; i <= mask; i++) {
+            cells.set((i + 1) * PADDING, 0);
+        }
+    }
+
+    private int index() {
+        long id = Thread.currentThread().getId();
+        int stripe = (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        return (stripe + 1) * PADDING;
+    }
+}
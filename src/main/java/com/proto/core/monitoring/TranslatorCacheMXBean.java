@@ -0,0 +1,39 @@
+package com.proto.core.monitoring;
+
+/**
+ * Management interface of a {@link com.proto.core.event.CachingTranslator}.
+ *
+ * @author wfrancis
+ */
+public interface TranslatorCacheMXBean {
+
+    /**
+     * @return the number of entries of each of the event key and subject caches
+     */
+    int getCacheSize();
+
+    /**
+     * @return the number of event keys translated from the cache
+     */
+    long getKeyHitCount();
+
+    /**
+     * @return the number of event keys translated by the underlying translator
+     */
+    long getKeyMissCount();
+
+    /**
+     * @return the number of subjects translated from the cache
+     */
+    long getSubjectHitCount();
+
+    /**
+     * @return the number of subjects translated by the underlying translator
+     */
+    long getSubjectMissCount();
+
+    /**
+     * @return the number of cached translations replaced by the translation of another key or subject
+     */
+    long getEvictionCount();
+}
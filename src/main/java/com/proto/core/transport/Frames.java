@@ -0,0 +1,122 @@
+package com.proto.core.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+/**
+ * The framing of events on a stream: each frame is the length of the rest of the frame as an int, the length of the
+ * subject as an unsigned short, the UTF-8 subject and the translated event.
+ *
+ * A Frames instance caches the UTF-8 encoding of subjects, and the subjects of decoded bytes, in direct mapped
+ * tables, so the small set of subjects in use is not encoded or decoded on every frame.
+ *
+ * Frames is not thread-safe.
+ *
+ * @author wfrancis
+ */
+final class Frames {
+
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Length of the frame length and subject length
+     */
+    static final int HEADER_LENGTH = 6;
+
+    /**
+     * Max length of the UTF-8 subject, the max unsigned short
+     */
+    static final int MAX_SUBJECT_LENGTH = 0xFFFF;
+
+    private static final int CACHE_SIZE = 256;
+
+    private final String[] subjects = new String[CACHE_SIZE];
+
+    private final byte[][] bytes = new byte[CACHE_SIZE][];
+
+    /**
+     * @return the length of the frame of the event
+     * @throws IOException if the UTF-8 subject is longer than {@link #MAX_SUBJECT_LENGTH} bytes
+     */
+    int length(String subject, ByteBuffer event) throws IOException {
+        return HEADER_LENGTH + encode(subject).length + event.remaining();
+    }
+
+    /**
+     * Write a frame at the position of dst.
+     *
+     * @return false if the frame does not fit in the remaining bytes of dst, which is left unchanged
+     * @throws IOException if the UTF-8 subject is longer than {@link #MAX_SUBJECT_LENGTH} bytes
+     */
+    boolean put(ByteBuffer dst, String subject, ByteBuffer event) throws IOException {
+        byte[] encoded = encode(subject);
+        int length = HEADER_LENGTH + encoded.length + event.remaining();
+        if (length > dst.remaining()) {
+            return false;
+        }
+        dst.putInt(length - 4);
+        dst.putShort((short) encoded.length);
+        dst.put(encoded);
+        dst.put(event.duplicate());
+        return true;
+    }
+
+    /**
+     * @return the subject of the bytes of src in [offset, offset + length)
+     */
+    String getSubject(ByteBuffer src, int offset, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + src.get(offset + i);
+        }
+        int index = index(hash);
+
+        byte[] cached = bytes[index];
+        if (cached != null && cached.length == length && matches(cached, src, offset)) {
+            return subjects[index];
+        }
+
+        byte[] subjectBytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            subjectBytes[i] = src.get(offset + i);
+        }
+        String subject = new String(subjectBytes, UTF_8);
+        subjects[index] = subject;
+        bytes[index] = subjectBytes;
+        return subject;
+    }
+
+    private byte[] encode(String subject) throws IOException {
+        int index = index(subject.hashCode());
+        String cached = subjects[index];
+        if (cached == subject || subject.equals(cached)) {
+            return bytes[index];
+        }
+
+        byte[] encoded = subject.getBytes(UTF_8);
+        if (encoded.length > MAX_SUBJECT_LENGTH) {
+            throw new IOException("Subject of " + encoded.length + " bytes exceeds " + MAX_SUBJECT_LENGTH + " bytes");
+        }
+        subjects[index] = subject;
+        bytes[index] = encoded;
+        return encoded;
+    }
+
+    private static boolean matches(byte[] cached, ByteBuffer src, int offset) {
+        for (int i = 0; i < cached.length; i++) {
+            if (cached[i] != src.get(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int index(int hashCode) {
+        int h = hashCode * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (CACHE_SIZE - 1);
+    }
+}
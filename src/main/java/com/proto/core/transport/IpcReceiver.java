@@ -0,0 +1,209 @@
+package com.proto.core.transport;
+
+import com.proto.core.event.Receiver;
+import com.proto.core.event.Translator;
+import com.proto.utils.Threads;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link Receiver} of the events an {@link IpcSender} writes to a ring in a memory mapped file.
+ *
+ * A single thread polls the tail of the ring and reads the frames published since its own position, starting
+ * from the tail when started. It spins while events keep coming, then parks between polls. Each event is copied
+ * out of the ring and checked not to have been overwritten while copying before it is received. When the sender
+ * laps the reader, the overwritten events are lost, counted, and the reader catches up with the tail.
+ * With decode threads, a translator decoding into views valid until the next decode is rejected.
+ *
+ * @author wfrancis
+ */
+public class IpcReceiver extends Receiver<ByteBuffer> {
+
+    private static final Logger LOG = Logger.getLogger(IpcReceiver.class);
+
+    public static final long DEFAULT_IDLE_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+
+    /**
+     * Polls finding no events before parking
+     */
+    private static final int SPIN_POLLS = 10000;
+
+    private final File file;
+
+    private final long idleNanos;
+
+    private final Frames frames = new Frames();
+
+    private final AtomicLong receivedCount = new AtomicLong();
+
+    private final AtomicLong lapCount = new AtomicLong();
+
+    private volatile boolean active;
+
+    private MappedRing ring;
+
+    private ByteBuffer data;
+
+    /**
+     * Position of the next frame to read, written by the polling thread
+     */
+    private volatile long position;
+
+    private Thread poller;
+
+    /**
+     * @param translator translator to use for translating ByteBuffer to Object
+     * @param file       the file of the ring, created by the sender
+     */
+    public IpcReceiver(Translator<ByteBuffer> translator, File file) {
+        this(translator, file, 0, DEFAULT_IDLE_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param translator    translator to use for translating ByteBuffer to Object
+     * @param file          the file of the ring, created by the sender
+     * @param decodeThreads the number of threads translating in parallel, 0 to translate and consume on one thread
+     * @param idle          the time to park between polls once no events came for a while
+     * @param unit          the unit of idle
+     */
+    public IpcReceiver(Translator<ByteBuffer> translator, File file, int decodeThreads, long idle, TimeUnit unit) {
+        super(translator, decodeThreads);
+        this.file = file;
+        this.idleNanos = unit.toNanos(idle);
+    }
+
+    /**
+     * Open the ring, then start polling it from its tail.
+     */
+    @Override
+    public void start() throws Exception {
+        open();
+        active = true;
+        poller = Threads.createFactory("IpcReceiver-" + file.getName(), true).newThread(new Runnable() {
+            public void run() {
+                pollLoop();
+            }
+        });
+        poller.start();
+    }
+
+    @Override
+    public void stop() throws Exception {
+        active = false;
+        if (poller != null) {
+            poller.join();
+        }
+        shutdown();
+    }
+
+    /**
+     * @return the position of the next event to read
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    /**
+     * @return the number of events received
+     */
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    /**
+     * @return the number of times the sender overwrote events before they were read
+     */
+    public long getLapCount() {
+        return lapCount.get();
+    }
+
+    void open() throws IOException {
+        ring = MappedRing.open(file);
+        data = ring.getData();
+        position = ring.getTail();
+    }
+
+    /**
+     * Receive the events published since the last poll.
+     *
+     * @return the number of events received
+     */
+    int poll() {
+        long tail = ring.getTail();
+        long next = position;
+        if (tail < next) {
+            // the sender started again
+            next = tail;
+        }
+        if (tail - next > ring.getCapacity()) {
+            lapped(tail);
+            return 0;
+        }
+
+        int received = 0;
+        while (next < tail) {
+            int index = ring.index(next);
+            int length = data.getInt(index);
+            if (length == MappedRing.PADDING) {
+                next += ring.getCapacity() - index;
+                continue;
+            }
+
+            String subject = null;
+            byte[] event = null;
+            int subjectLength = length < Frames.HEADER_LENGTH - 4 ? -1 : data.getShort(index + 4) & 0xFFFF;
+            boolean valid = subjectLength >= 0 && length <= ring.getCapacity() - index - 4
+                    && Frames.HEADER_LENGTH + subjectLength <= 4 + length;
+            if (valid) {
+                subject = frames.getSubject(data, index + Frames.HEADER_LENGTH, subjectLength);
+                event = new byte[4 + length - Frames.HEADER_LENGTH - subjectLength];
+                data.position(index + Frames.HEADER_LENGTH + subjectLength);
+                data.get(event);
+                data.clear();
+            }
+
+            // the copy is only valid if the sender did not start overwriting the frame meanwhile
+            if (ring.getTailIntent() - next > ring.getCapacity() || !valid) {
+                lapped(ring.getTail());
+                return received;
+            }
+
+            next += MappedRing.align(4 + length);
+            position = next;
+            receivedCount.incrementAndGet();
+            received++;
+            try {
+                receive(subject, ByteBuffer.wrap(event));
+            } catch (Exception e) {
+                LOG.error("Error receiving, subject: " + subject + ".", e);
+            }
+        }
+        position = next;
+        return received;
+    }
+
+    private void lapped(long tail) {
+        lapCount.incrementAndGet();
+        LOG.warn("Lapped by the sender of " + file + ", skipping to " + tail);
+        position = tail;
+    }
+
+    private void pollLoop() {
+        int idlePolls = 0;
+        while (active) {
+            if (poll() > 0) {
+                idlePolls = 0;
+            } else if (++idlePolls > SPIN_POLLS) {
+                LockSupport.parkNanos(idleNanos);
+            }
+        }
+
+        LOG.info(Thread.currentThread().getName() + " Exiting poll loop");
+    }
+}
@@ -0,0 +1,124 @@
+package com.proto.core.transport;
+
+import com.proto.core.event.BoundedEventQueue;
+import com.proto.core.event.Sender;
+import com.proto.core.event.Translator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Sender} writing events to a ring in a memory mapped file, see {@link MappedRing}, read by the
+ * {@link IpcReceiver}s of processes on the same host.
+ *
+ * The sender thread frames each event, see {@link Frames}, straight into the ring and publishes a whole batch by
+ * moving the tail once, without any system call. The writer never waits for readers: a reader more than a lap
+ * behind misses the overwritten events and catches up with the tail.
+ *
+ * @author wfrancis
+ */
+public class IpcSender extends Sender<ByteBuffer> {
+
+    public static final int DEFAULT_RING_CAPACITY = 1 << 24;
+
+    private final File file;
+
+    private final int ringCapacity;
+
+    private final Frames frames = new Frames();
+
+    private MappedRing ring;
+
+    private ByteBuffer data;
+
+    /**
+     * Position of the next frame, written by the sender thread
+     */
+    private volatile long position;
+
+    /**
+     * @param translator translator to use for translating Object to ByteBuffer
+     * @param file       the file of the ring, created or replaced on start
+     */
+    public IpcSender(Translator<ByteBuffer> translator, File file) {
+        this(translator, file, DEFAULT_RING_CAPACITY, DEFAULT_CAPACITY, BoundedEventQueue.OverflowPolicy.BLOCK,
+                DEFAULT_BATCH_SIZE, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param translator   translator to use for translating Object to ByteBuffer
+     * @param file         the file of the ring, created or replaced on start
+     * @param ringCapacity the size of the ring in bytes, a power of two
+     * @param capacity     the max number of events waiting for the sender thread
+     * @param policy       what to do with an event consumed when capacity events are waiting
+     * @param maxBatchSize the max number of events sent as one batch
+     * @param linger       max time to wait for a batch to fill after its first event, 0 not to wait
+     * @param unit         the unit of linger
+     */
+    public IpcSender(Translator<ByteBuffer> translator, File file, int ringCapacity,
+                     int capacity, BoundedEventQueue.OverflowPolicy policy, int maxBatchSize, long linger, TimeUnit unit) {
+        super(translator, capacity, policy, maxBatchSize, linger, unit);
+        this.file = file;
+        this.ringCapacity = ringCapacity;
+    }
+
+    /**
+     * Create the ring, then start the sender thread.
+     */
+    @Override
+    public void start() throws Exception {
+        ring = MappedRing.create(file, ringCapacity);
+        data = ring.getData();
+        position = 0;
+        super.start();
+    }
+
+    /**
+     * @return the position after the last event written
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    @Override
+    public void nativeConsume(String key, ByteBuffer o) throws Exception {
+        write(key, o);
+        ring.setTail(position);
+    }
+
+    @Override
+    protected void nativeConsumeBatch(List<String> keys, List<ByteBuffer> values) throws Exception {
+        for (int i = 0; i < keys.size(); i++) {
+            write(keys.get(i), values.get(i));
+        }
+        ring.setTail(position);
+    }
+
+    private void write(String key, ByteBuffer o) throws IOException {
+        int length = MappedRing.align(frames.length(key, o));
+        // at most half the ring, so readers get a chance to copy a frame before it is overwritten
+        if (length > ringCapacity >> 1) {
+            throw new IOException("Frame of " + key + " exceeds " + (ringCapacity >> 1) + " bytes");
+        }
+
+        long next = position;
+        int index = ring.index(next);
+        int toEnd = ringCapacity - index;
+        if (length > toEnd) {
+            ring.setTailIntent(next + toEnd + length);
+            data.putInt(index, MappedRing.PADDING);
+            next += toEnd;
+            index = 0;
+        } else {
+            ring.setTailIntent(next + length);
+        }
+
+        data.limit(index + length).position(index);
+        frames.put(data, key, o);
+        data.clear();
+        position = next + length;
+    }
+}
@@ -0,0 +1,167 @@
+package com.proto.core.transport;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A ring of frames in a memory mapped file, written by one {@link IpcSender} and read by any number of
+ * {@link IpcReceiver}s, in this or other processes on the same host.
+ *
+ * The file starts with a header: a magic number, the layout version, the capacity of the ring, then on their own
+ * cache lines the tail intent and the tail. The tail is the position after the last published frame, positions
+ * growing forever and wrapping around the ring. Before writing a frame the writer moves the tail intent past it,
+ * so a reader knows a frame it copied was not overwritten meanwhile if the tail intent is less than a lap ahead
+ * of the frame. Frames start at a multiple of {@link #ALIGNMENT}. A frame that does not fit before the end of the
+ * ring is preceded by a {@link #PADDING} marker and written at its start.
+ *
+ * The memory accesses to the file are ordered by {@link #fence()}, a volatile write, which HotSpot compiles to a
+ * full barrier.
+ *
+ * MappedRing is not thread-safe.
+ *
+ * @author wfrancis
+ */
+final class MappedRing {
+
+    static final int MAGIC = 0x4D445249;
+
+    static final int VERSION = 1;
+
+    static final int HEADER_LENGTH = 256;
+
+    static final int ALIGNMENT = 8;
+
+    /**
+     * Length marking the rest of the ring as unused
+     */
+    static final int PADDING = -1;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int TAIL_INTENT_OFFSET = 64;
+    private static final int TAIL_OFFSET = 128;
+
+    private static volatile int fence;
+
+    private final MappedByteBuffer buffer;
+
+    private final ByteBuffer data;
+
+    private final int capacity;
+
+    private MappedRing(MappedByteBuffer buffer, int capacity) {
+        this.buffer = buffer;
+        this.capacity = capacity;
+        buffer.position(HEADER_LENGTH);
+        this.data = buffer.slice().order(Frames.ORDER);
+        buffer.clear();
+    }
+
+    /**
+     * Create the ring, replacing any ring in the file.
+     *
+     * @param capacity the size of the ring in bytes, a power of two
+     */
+    static MappedRing create(File file, int capacity) throws IOException {
+        if (capacity < ALIGNMENT || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        MappedByteBuffer buffer = map(file, "rw", HEADER_LENGTH + capacity);
+        buffer.putLong(TAIL_OFFSET, 0);
+        buffer.putLong(TAIL_INTENT_OFFSET, 0);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putInt(VERSION_OFFSET, VERSION);
+        buffer.putInt(MAGIC_OFFSET, MAGIC);
+        fence();
+        return new MappedRing(buffer, capacity);
+    }
+
+    /**
+     * Open the ring created in the file by a writer.
+     */
+    static MappedRing open(File file) throws IOException {
+        if (file.length() < HEADER_LENGTH) {
+            throw new IOException("Not a ring: " + file);
+        }
+        MappedByteBuffer header = map(file, "r", HEADER_LENGTH);
+        if (header.getInt(MAGIC_OFFSET) != MAGIC) {
+            throw new IOException("Not a ring: " + file);
+        }
+        int version = header.getInt(VERSION_OFFSET);
+        if (version != VERSION) {
+            throw new IOException("Unsupported ring version " + version + " in " + file);
+        }
+        int capacity = header.getInt(CAPACITY_OFFSET);
+        return new MappedRing(map(file, "r", HEADER_LENGTH + capacity), capacity);
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the frames, indexed by position modulo the capacity
+     */
+    ByteBuffer getData() {
+        return data;
+    }
+
+    int index(long position) {
+        return (int) position & (capacity - 1);
+    }
+
+    long getTail() {
+        long tail = buffer.getLong(TAIL_OFFSET);
+        fence();
+        return tail;
+    }
+
+    /**
+     * Publish the frames written before position.
+     */
+    void setTail(long position) {
+        fence();
+        buffer.putLong(TAIL_OFFSET, position);
+    }
+
+    long getTailIntent() {
+        fence();
+        return buffer.getLong(TAIL_INTENT_OFFSET);
+    }
+
+    /**
+     * Announce frames are about to be written up to position.
+     */
+    void setTailIntent(long position) {
+        buffer.putLong(TAIL_INTENT_OFFSET, position);
+        fence();
+    }
+
+    static int align(int length) {
+        return (length + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    private static void fence() {
+        fence = 0;
+    }
+
+    private static MappedByteBuffer map(File file, String mode, int length) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, mode);
+        try {
+            if ("rw".equals(mode)) {
+                raf.setLength(length);
+            }
+            MappedByteBuffer buffer = raf.getChannel().map("rw".equals(mode) ? FileChannel.MapMode.READ_WRITE
+                    : FileChannel.MapMode.READ_ONLY, 0, length);
+            buffer.order(Frames.ORDER);
+            return buffer;
+        } finally {
+            raf.close();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.proto.core.transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A downstream connection of a {@link TcpSender}, with the bytes the socket did not accept yet.
+ *
+ * Frames are written straight to the non-blocking socket. What the socket does not accept is kept in a direct
+ * buffer of fixed size, flushed by the event loop when the socket is writable again, and later frames are appended
+ * behind it to keep their order.
+ *
+ * TcpConnection is thread-safe.
+ *
+ * @author wfrancis
+ */
+final class TcpConnection {
+
+    /**
+     * Results of {@link #send(ByteBuffer)}
+     */
+    static final int SENT = 0;
+    static final int PENDING = 1;
+    static final int OVERFLOW = 2;
+
+    private final SocketChannel channel;
+
+    private final ByteBuffer pending;
+
+    private boolean closed;
+
+    TcpConnection(SocketChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.pending = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Write the remaining bytes of frames, keeping what the socket does not accept. The position of frames
+     * is left unchanged.
+     *
+     * @return {@link #SENT} if the socket accepted every byte, {@link #PENDING} if some are waiting for the
+     * socket to be writable, {@link #OVERFLOW} if they do not fit in the pending buffer, nothing is kept then
+     */
+    synchronized int send(ByteBuffer frames) throws IOException {
+        if (closed) {
+            return SENT;
+        }
+        int start = frames.position();
+        try {
+            if (pending.position() == 0) {
+                channel.write(frames);
+                if (!frames.hasRemaining()) {
+                    return SENT;
+                }
+            }
+            if (frames.remaining() > pending.remaining()) {
+                return OVERFLOW;
+            }
+            pending.put(frames);
+            return PENDING;
+        } finally {
+            frames.position(start);
+        }
+    }
+
+    /**
+     * Write the pending bytes the socket accepts.
+     *
+     * @return true if no bytes are pending anymore
+     */
+    synchronized boolean flush() throws IOException {
+        if (closed) {
+            return true;
+        }
+        pending.flip();
+        try {
+            channel.write(pending);
+        } finally {
+            pending.compact();
+        }
+        return pending.position() == 0;
+    }
+
+    synchronized boolean hasPending() {
+        return pending.position() > 0;
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // closing anyway
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(channel.socket().getRemoteSocketAddress());
+    }
+}
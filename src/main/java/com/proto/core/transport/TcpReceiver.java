@@ -0,0 +1,258 @@
+package com.proto.core.transport;
+
+import com.proto.core.event.Receiver;
+import com.proto.core.event.Translator;
+import com.proto.utils.Threads;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Receiver} of the events of a {@link TcpSender}.
+ *
+ * A single event loop thread connects to the sender, reads into a direct buffer and splits it into frames, see
+ * {@link Frames}. Each event is copied out of the buffer and received with its subject. When the connection is
+ * lost or cannot be established, the receiver connects again after a delay.
+ * With decode threads, a translator decoding into views valid until the next decode is rejected.
+ *
+ * @author wfrancis
+ */
+public class TcpReceiver extends Receiver<ByteBuffer> {
+
+    private static final Logger LOG = Logger.getLogger(TcpReceiver.class);
+
+    /**
+     * The default size of the read buffer, the max size of a frame
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    public static final long DEFAULT_RECONNECT_MILLIS = 1000;
+
+    private static final long SELECT_TIMEOUT_MILLIS = 100;
+
+    private final InetSocketAddress address;
+
+    private final ByteBuffer inbound;
+
+    private final long reconnectNanos;
+
+    private final Frames frames = new Frames();
+
+    private final AtomicLong receivedCount = new AtomicLong();
+
+    private final AtomicLong connectCount = new AtomicLong();
+
+    private volatile boolean active;
+
+    private volatile boolean connected;
+
+    private Selector selector;
+
+    private SocketChannel channel;
+
+    /**
+     * Time to connect again, written by the event loop
+     */
+    private long nextConnectNanos;
+
+    private Thread eventLoop;
+
+    /**
+     * @param translator translator to use for translating ByteBuffer to Object
+     * @param address    the address of the sender
+     */
+    public TcpReceiver(Translator<ByteBuffer> translator, InetSocketAddress address) {
+        this(translator, address, 0, DEFAULT_BUFFER_SIZE, DEFAULT_RECONNECT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param translator    translator to use for translating ByteBuffer to Object
+     * @param address       the address of the sender
+     * @param decodeThreads the number of threads translating in parallel, 0 to translate and consume on one thread
+     * @param bufferSize    the size of the read buffer, the max size of a frame
+     * @param reconnect     the delay before connecting again
+     * @param unit          the unit of reconnect
+     */
+    public TcpReceiver(Translator<ByteBuffer> translator, InetSocketAddress address, int decodeThreads,
+                       int bufferSize, long reconnect, TimeUnit unit) {
+        super(translator, decodeThreads);
+        this.address = address;
+        this.inbound = ByteBuffer.allocateDirect(bufferSize).order(Frames.ORDER);
+        this.reconnectNanos = unit.toNanos(reconnect);
+    }
+
+    @Override
+    public void start() throws Exception {
+        selector = Selector.open();
+        nextConnectNanos = System.nanoTime();
+        active = true;
+        eventLoop = Threads.createFactory("TcpReceiver-" + address.getPort(), true).newThread(new Runnable() {
+            public void run() {
+                eventLoop();
+            }
+        });
+        eventLoop.start();
+    }
+
+    /**
+     * Close the connection and stop receiving.
+     */
+    @Override
+    public void stop() throws Exception {
+        active = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        shutdown();
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * @return the number of events received
+     */
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    /**
+     * @return the number of connections established
+     */
+    public long getConnectCount() {
+        return connectCount.get();
+    }
+
+    private void eventLoop() {
+        try {
+            while (active) {
+                if (channel == null && System.nanoTime() - nextConnectNanos >= 0) {
+                    connect();
+                }
+                selector.select(SELECT_TIMEOUT_MILLIS);
+
+                for (SelectionKey key : selector.selectedKeys()) {
+                    try {
+                        if (key.isValid() && key.isConnectable()) {
+                            channel.finishConnect();
+                            onConnected();
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            read();
+                        }
+                    } catch (IOException e) {
+                        LOG.warn("Lost connection to " + address + ": " + e);
+                        disconnect();
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (IOException e) {
+            LOG.error("Exception caught in event loop", e);
+        } finally {
+            disconnect();
+            try {
+                selector.close();
+            } catch (IOException e) {
+                LOG.warn("Exception caught closing selector", e);
+            }
+        }
+
+        LOG.info(Thread.currentThread().getName() + " Exiting event loop");
+    }
+
+    private void connect() {
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            if (channel.connect(address)) {
+                onConnected();
+            } else {
+                channel.register(selector, SelectionKey.OP_CONNECT);
+            }
+        } catch (IOException e) {
+            LOG.warn("Cannot connect to " + address + ": " + e);
+            disconnect();
+        }
+    }
+
+    private void onConnected() throws IOException {
+        channel.register(selector, SelectionKey.OP_READ);
+        inbound.clear();
+        connected = true;
+        connectCount.incrementAndGet();
+        LOG.info("Connected to " + address);
+    }
+
+    private void disconnect() {
+        connected = false;
+        nextConnectNanos = System.nanoTime() + reconnectNanos;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * Read what is available and receive every complete frame.
+     */
+    private void read() throws IOException {
+        if (channel.read(inbound) < 0) {
+            throw new IOException("Connection closed by sender");
+        }
+        inbound.flip();
+        try {
+            while (inbound.remaining() >= Frames.HEADER_LENGTH) {
+                int start = inbound.position();
+                int length = inbound.getInt(start);
+                if (length < Frames.HEADER_LENGTH - 4 || length > inbound.capacity() - 4) {
+                    throw new IOException("Invalid frame length " + length);
+                }
+                if (inbound.remaining() < 4 + length) {
+                    break;
+                }
+                receiveFrame(start, length);
+                inbound.position(start + 4 + length);
+            }
+        } finally {
+            inbound.compact();
+        }
+    }
+
+    /**
+     * @throws IOException if the subject overruns the frame, the stream cannot be trusted past it
+     */
+    private void receiveFrame(int start, int length) throws IOException {
+        int subjectLength = inbound.getShort(start + 4) & 0xFFFF;
+        if (Frames.HEADER_LENGTH + subjectLength > 4 + length) {
+            throw new IOException("Invalid subject length " + subjectLength + " in frame of " + length);
+        }
+        String subject = frames.getSubject(inbound, start + Frames.HEADER_LENGTH, subjectLength);
+
+        // the event outlives the read buffer
+        int eventOffset = start + Frames.HEADER_LENGTH + subjectLength;
+        byte[] event = new byte[start + 4 + length - eventOffset];
+        inbound.position(eventOffset);
+        inbound.get(event);
+
+        receivedCount.incrementAndGet();
+        try {
+            receive(subject, ByteBuffer.wrap(event));
+        } catch (Exception e) {
+            LOG.error("Error receiving, subject: " + subject + ".", e);
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.proto.core.transport;
+
+import com.proto.core.event.BoundedEventQueue;
+import com.proto.core.event.Sender;
+import com.proto.core.event.Translator;
+import com.proto.utils.Threads;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Sender} fanning out events to every {@link TcpReceiver} connected to its server socket.
+ *
+ * Each batch drained by the sender thread is framed, see {@link Frames}, into one direct buffer and written to each
+ * connection with a single write. Sockets are non-blocking: what a socket does not accept waits in a buffer of the
+ * connection and is flushed by a single event loop thread, which also accepts connections. A connection falling
+ * further behind than its buffer is closed, so a slow receiver never holds up the others.
+ *
+ * The translated events must stay valid for a whole batch, see {@link Translator#getTranslationLifetime()}.
+ *
+ * @author wfrancis
+ */
+public class TcpSender extends Sender<ByteBuffer> {
+
+    private static final Logger LOG = Logger.getLogger(TcpSender.class);
+
+    /**
+     * The default number of bytes that may wait for a connection to be writable
+     */
+    public static final int DEFAULT_CONNECTION_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * The number of bytes framed before they are written
+     */
+    private static final int STAGING_SIZE = 1 << 16;
+
+    private static final long SELECT_TIMEOUT_MILLIS = 100;
+
+    private final InetSocketAddress address;
+
+    private final int connectionBufferSize;
+
+    private final ByteBuffer staging = ByteBuffer.allocateDirect(STAGING_SIZE).order(Frames.ORDER);
+
+    private final Frames frames = new Frames();
+
+    /**
+     * The open connections, replaced by the event loop when a connection is accepted or closed
+     */
+    private volatile TcpConnection[] connections = new TcpConnection[0];
+
+    private final AtomicLong acceptedCount = new AtomicLong();
+
+    private final AtomicLong overflowCount = new AtomicLong();
+
+    private volatile boolean active;
+
+    private Selector selector;
+
+    private ServerSocketChannel serverChannel;
+
+    private Thread eventLoop;
+
+    /**
+     * @param translator translator to use for translating Object to ByteBuffer
+     * @param address    the address to listen on, port 0 for any free port
+     */
+    public TcpSender(Translator<ByteBuffer> translator, InetSocketAddress address) {
+        this(translator, address, DEFAULT_CONNECTION_BUFFER_SIZE, DEFAULT_CAPACITY, BoundedEventQueue.OverflowPolicy.BLOCK,
+                DEFAULT_BATCH_SIZE, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param translator           translator to use for translating Object to ByteBuffer
+     * @param address              the address to listen on, port 0 for any free port
+     * @param connectionBufferSize the max number of bytes waiting for a connection to be writable
+     * @param capacity             the max number of events waiting for the sender thread
+     * @param policy               what to do with an event consumed when capacity events are waiting
+     * @param maxBatchSize         the max number of events sent as one batch
+     * @param linger               max time to wait for a batch to fill after its first event, 0 not to wait
+     * @param unit                 the unit of linger
+     */
+    public TcpSender(Translator<ByteBuffer> translator, InetSocketAddress address, int connectionBufferSize,
+                     int capacity, BoundedEventQueue.OverflowPolicy policy, int maxBatchSize, long linger, TimeUnit unit) {
+        super(translator, capacity, policy, maxBatchSize, linger, unit);
+        if (connectionBufferSize < STAGING_SIZE) {
+            throw new IllegalArgumentException("Connection buffer size must be at least " + STAGING_SIZE + ": " + connectionBufferSize);
+        }
+        this.address = address;
+        this.connectionBufferSize = connectionBufferSize;
+    }
+
+    /**
+     * Listen on the address, then start the sender thread.
+     */
+    @Override
+    public void start() throws Exception {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.socket().setReuseAddress(true);
+        serverChannel.socket().bind(address);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        active = true;
+        eventLoop = Threads.createFactory("TcpSender-" + getLocalPort(), true).newThread(new Runnable() {
+            public void run() {
+                eventLoop();
+            }
+        });
+        eventLoop.start();
+        super.start();
+    }
+
+    /**
+     * Stop the sender thread, and close the server socket and every connection.
+     */
+    @Override
+    public void stop() throws Exception {
+        super.stop();
+        active = false;
+        if (eventLoop != null) {
+            selector.wakeup();
+            eventLoop.join();
+        }
+    }
+
+    /**
+     * @return the port listened on, -1 if not started
+     */
+    public int getLocalPort() {
+        return serverChannel == null ? -1 : serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return the number of open connections
+     */
+    public int getConnectionCount() {
+        return connections.length;
+    }
+
+    /**
+     * @return the number of connections accepted
+     */
+    public long getAcceptedCount() {
+        return acceptedCount.get();
+    }
+
+    /**
+     * @return the number of connections closed because they fell further behind than their buffer
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
+
+    @Override
+    public void nativeConsume(String key, ByteBuffer o) throws Exception {
+        stage(key, o);
+        write();
+    }
+
+    /**
+     * Frame the whole batch, then write it to each connection at once, in as few writes as the staging buffer allows.
+     */
+    @Override
+    protected void nativeConsumeBatch(List<String> keys, List<ByteBuffer> values) throws Exception {
+        for (int i = 0; i < keys.size(); i++) {
+            stage(keys.get(i), values.get(i));
+        }
+        write();
+    }
+
+    private void stage(String key, ByteBuffer o) throws IOException {
+        if (frames.put(staging, key, o)) {
+            return;
+        }
+        write();
+        if (!frames.put(staging, key, o)) {
+            throw new IOException("Frame of " + key + " exceeds " + STAGING_SIZE + " bytes");
+        }
+    }
+
+    /**
+     * Write the staged frames to every connection.
+     */
+    private void write() {
+        if (staging.position() == 0) {
+            return;
+        }
+        staging.flip();
+        boolean wakeUp = false;
+        for (TcpConnection connection : connections) {
+            try {
+                switch (connection.send(staging)) {
+                    case TcpConnection.PENDING:
+                        wakeUp = true;
+                        break;
+                    case TcpConnection.OVERFLOW:
+                        overflowCount.incrementAndGet();
+                        LOG.warn("Closing connection " + connection + " falling behind by more than " + connectionBufferSize + " bytes");
+                        connection.close();
+                        wakeUp = true;
+                        break;
+                }
+            } catch (IOException e) {
+                LOG.warn("Closing connection " + connection + ": " + e);
+                connection.close();
+                wakeUp = true;
+            }
+        }
+        staging.clear();
+        if (wakeUp) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Accept connections and flush the pending bytes of the connections, on the event loop thread.
+     */
+    private void eventLoop() {
+        try {
+            while (active) {
+                updateInterest();
+                selector.select(SELECT_TIMEOUT_MILLIS);
+
+                Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+                while (selected.hasNext()) {
+                    SelectionKey key = selected.next();
+                    selected.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isWritable()) {
+                        flush(key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            LOG.error("Exception caught in event loop", e);
+        } finally {
+            close();
+        }
+
+        LOG.info(Thread.currentThread().getName() + " Exiting event loop");
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        TcpConnection connection = new TcpConnection(channel, connectionBufferSize);
+        channel.register(selector, 0, connection);
+
+        TcpConnection[] current = connections;
+        TcpConnection[] updated = new TcpConnection[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = connection;
+        connections = updated;
+        acceptedCount.incrementAndGet();
+        LOG.info("Accepted connection " + connection);
+    }
+
+    private void flush(SelectionKey key) {
+        TcpConnection connection = (TcpConnection) key.attachment();
+        try {
+            if (connection.flush()) {
+                key.interestOps(0);
+            }
+        } catch (IOException e) {
+            LOG.warn("Closing connection " + connection + ": " + e);
+            connection.close();
+        }
+    }
+
+    /**
+     * Drop the closed connections and watch the connections with pending bytes for writability.
+     */
+    private void updateInterest() {
+        TcpConnection[] current = connections;
+        List<TcpConnection> open = null;
+        for (int i = 0; i < current.length; i++) {
+            TcpConnection connection = current[i];
+            if (connection.isClosed()) {
+                if (open == null) {
+                    open = new ArrayList<TcpConnection>(current.length);
+                    for (int j = 0; j < i; j++) {
+                        open.add(current[j]);
+                    }
+                }
+                continue;
+            }
+            if (open != null) {
+                open.add(connection);
+            }
+            SelectionKey key = connection.getChannel().keyFor(selector);
+            if (key != null && key.isValid() && connection.hasPending()) {
+                key.interestOps(SelectionKey.OP_WRITE);
+            }
+        }
+        if (open != null) {
+            connections = open.toArray(new TcpConnection[open.size()]);
+        }
+    }
+
+    private void close() {
+        for (TcpConnection connection : connections) {
+            connection.close();
+        }
+        connections = new TcpConnection[0];
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            LOG.warn("Exception caught closing server socket", e);
+        }
+    }
+}
@@ -38,8 +38,8 @@ public class Clock implements IClock {
         this.isRealTime = realTime;
         this.isTimeOffset = isTimeOffset;
         this.simulatedDate = new AtomicReference<Date>(simulatedDate);
-        this.simulatedMidnightTime = Dates.getDayAtMidnight(simulatedDate).getTime();
-        this.currentMidnightTime = Dates.getDayAtMidnight(System.currentTimeMillis()).getTime();
+        this.simulatedMidnightTime = EpochDates.DEFAULT.getDayAtMidnight(simulatedDate.getTime());
+        this.currentMidnightTime = EpochDates.DEFAULT.getDayAtMidnight(System.currentTimeMillis());
         this.offSetReferenceSet = new AtomicBoolean(false);
     }
 
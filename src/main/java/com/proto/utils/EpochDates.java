@@ -0,0 +1,232 @@
+package com.proto.utils;
+
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Date arithmetic on epoch milliseconds and nanoseconds, the primitive counterpart of {@link Dates}.
+ *
+ * The midnights of the days in use are cached in a table of {@link #CACHED_DAYS} days, with the time zone offset of
+ * the day, so finding the midnight or a time of day of a timestamp is a table lookup and an addition that does not
+ * allocate. The time zone is only consulted for a day not in the table, or on a day with a daylight saving
+ * transition. The parsers of times of day and dates do not allocate either, except on malformed input.
+ *
+ * EpochDates is thread-safe.
+ *
+ * @author wfrancis
+ */
+public final class EpochDates {
+
+    /**
+     * Instance in the default timezone, see {@link Dates#DEFAULT_TZ}
+     */
+    public static final EpochDates DEFAULT = new EpochDates(Dates.DEFAULT_TZ);
+
+    public static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+
+    public static final int CACHED_DAYS = 64;
+
+    private static final long NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final TimeZone timeZone;
+
+    /**
+     * Days by local epoch day modulo the table size. Days are immutable, so reading a day another thread is
+     * writing sees either day whole.
+     */
+    private final Day[] days = new Day[CACHED_DAYS];
+
+    public EpochDates(TimeZone timeZone) {
+        this.timeZone = timeZone;
+    }
+
+    public TimeZone getTimeZone() {
+        return timeZone;
+    }
+
+    /**
+     * @return the midnight starting the day of millis
+     */
+    public long getDayAtMidnight(long millis) {
+        return getDay(millis).start;
+    }
+
+    /**
+     * @return the number of ms between midnight on the day of millis and millis
+     */
+    public long getMillisFromMidnight(long millis) {
+        return millis - getDay(millis).start;
+    }
+
+    /**
+     * @return the given time of day on the day of millis
+     */
+    public long getDayAt(long millis, int hours, int minutes) {
+        return getDayAt(millis, TimeUnit.HOURS.toMillis(hours) + TimeUnit.MINUTES.toMillis(minutes));
+    }
+
+    /**
+     * @param timeOfDay the wall clock time in ms since midnight, i.e. from {@link #parseTimeOfDay(CharSequence)}
+     * @return the given time of day on the day of millis
+     */
+    public long getDayAt(long millis, long timeOfDay) {
+        Day day = getDay(millis);
+        if (!day.transition) {
+            return day.start + timeOfDay;
+        }
+        return toInstant(day.localDay * MILLIS_PER_DAY + timeOfDay);
+    }
+
+    /**
+     * @return the midnight starting the day of nanos, in nanoseconds since the epoch
+     */
+    public long getDayAtMidnightNanos(long nanos) {
+        return getDayAtMidnight(floorDiv(nanos, NANOS_PER_MILLI)) * NANOS_PER_MILLI;
+    }
+
+    /**
+     * @return the number of ns between midnight on the day of nanos and nanos
+     */
+    public long getNanosFromMidnight(long nanos) {
+        return nanos - getDayAtMidnightNanos(nanos);
+    }
+
+    /**
+     * Parse a date in the yyyyMMdd format.
+     *
+     * @return the midnight starting the date
+     * @throws IllegalArgumentException if the date is malformed
+     */
+    public long parseDate(CharSequence yyyyMMdd) {
+        if (yyyyMMdd.length() != 8) {
+            throw new IllegalArgumentException("Not a yyyyMMdd date: " + yyyyMMdd);
+        }
+        int year = parseDigits(yyyyMMdd, 0, 4);
+        int month = parseDigits(yyyyMMdd, 4, 6);
+        int day = parseDigits(yyyyMMdd, 6, 8);
+        if (month < 1 || month > 12 || day < 1 || day > getDaysInMonth(year, month)) {
+            throw new IllegalArgumentException("Not a yyyyMMdd date: " + yyyyMMdd);
+        }
+        long localDay = getEpochDay(year, month, day);
+        return getDay(toInstant(localDay * MILLIS_PER_DAY + MILLIS_PER_DAY / 2)).start;
+    }
+
+    /**
+     * Parse a time of day in the HH:mm:ss format, accepting single digit fields.
+     *
+     * @return the time of day in ms since midnight
+     * @throws IllegalArgumentException if the time is malformed
+     */
+    public static long parseTimeOfDay(CharSequence hhmmss) {
+        int length = hhmmss.length();
+        int firstColon = indexOf(hhmmss, ':', 0);
+        int secondColon = indexOf(hhmmss, ':', firstColon + 1);
+        if (firstColon < 1 || firstColon > 2 || secondColon - firstColon < 2 || secondColon - firstColon > 3
+                || length - secondColon < 2 || length - secondColon > 3) {
+            throw new IllegalArgumentException("Not a HH:mm:ss time: " + hhmmss);
+        }
+        int hours = parseDigits(hhmmss, 0, firstColon);
+        int minutes = parseDigits(hhmmss, firstColon + 1, secondColon);
+        int seconds = parseDigits(hhmmss, secondColon + 1, length);
+        if (hours > 23 || minutes > 59 || seconds > 59) {
+            throw new IllegalArgumentException("Not a HH:mm:ss time: " + hhmmss);
+        }
+        return TimeUnit.HOURS.toMillis(hours) + TimeUnit.MINUTES.toMillis(minutes) + TimeUnit.SECONDS.toMillis(seconds);
+    }
+
+    /**
+     * @param month the month, 1 = January
+     * @return the number of days from 1970-01-01 to the date
+     */
+    public static long getEpochDay(int year, int month, int day) {
+        // days from civil, on a calendar starting in March so the leap day is last
+        long y = month <= 2 ? year - 1 : year;
+        long era = floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private Day getDay(long millis) {
+        long guess = floorDiv(millis + timeZone.getRawOffset(), MILLIS_PER_DAY);
+        for (long localDay = guess - 1; localDay <= guess + 1; localDay++) {
+            Day day = days[(int) localDay & (CACHED_DAYS - 1)];
+            if (day != null && day.start <= millis && millis < day.end) {
+                return day;
+            }
+        }
+
+        long localDay = floorDiv(millis + timeZone.getOffset(millis), MILLIS_PER_DAY);
+        long start = toInstant(localDay * MILLIS_PER_DAY);
+        long end = toInstant((localDay + 1) * MILLIS_PER_DAY);
+        Day day = new Day(localDay, start, end, timeZone.getOffset(start) != timeZone.getOffset(end - 1));
+        days[(int) localDay & (CACHED_DAYS - 1)] = day;
+        return day;
+    }
+
+    /**
+     * @param local the wall clock time, in ms since the epoch as if the time zone were UTC
+     * @return the instant of the wall clock time
+     */
+    private long toInstant(long local) {
+        return local - timeZone.getOffset(local - timeZone.getOffset(local));
+    }
+
+    private static int parseDigits(CharSequence s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("Not a number: " + s.subSequence(start, end));
+            }
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+
+    private static int indexOf(CharSequence s, char c, int from) {
+        for (int i = from; i < s.length(); i++) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int getDaysInMonth(int year, int month) {
+        if (month == 2) {
+            return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    private static long floorDiv(long x, long y) {
+        long q = x / y;
+        return (x % y != 0 && (x ^ y) < 0) ? q - 1 : q;
+    }
+
+    /**
+     * A local day, from its midnight to the next
+     */
+    private static final class Day {
+
+        final long localDay;
+
+        final long start;
+
+        final long end;
+
+        /**
+         * Whether the time zone offset changes during the day
+         */
+        final boolean transition;
+
+        Day(long localDay, long start, long end, boolean transition) {
+            this.localDay = localDay;
+            this.start = start;
+            this.end = end;
+            this.transition = transition;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.proto.utils;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link IClock} implementation with nanosecond resolution, supporting the real time, offset and simulated
+ * modes of {@link Clock}.
+ *
+ * The wall clock is read as {@link System#nanoTime()} plus an offset calibrated against
+ * {@link System#currentTimeMillis()} on the edge of a millisecond, see {@link #calibrate()}. Each mode folds its
+ * shift from the wall clock into that offset, so reading the time costs a nanoTime call and an addition, without
+ * allocating. Only {@link #currentTime()} allocates its Date, except in simulated mode.
+ *
+ * As with {@link Clock}, the offset mode starts at the simulated date on the first read, then runs in real time.
+ *
+ * HighResolutionClock is thread-safe.
+ *
+ * @author wfrancis
+ */
+public class HighResolutionClock implements IClock {
+
+    /**
+     * Max number of wall clock reads waiting for the edge of a millisecond while calibrating
+     */
+    private static final int MAX_CALIBRATION_SPINS = 1000000;
+
+    private final boolean isRealTime;
+    private final boolean isTimeOffset;
+
+    /**
+     * Shift of the clock from the wall clock in real time modes
+     */
+    private final long shiftNanos;
+
+    /**
+     * System.nanoTime() + baseNanos is the time in real time modes
+     */
+    private volatile long baseNanos;
+
+    /**
+     * The time in simulated mode, and the start of the offset mode
+     */
+    private volatile Date simulatedDate;
+
+    private volatile long simulatedNanos;
+
+    private volatile boolean offsetReferenceSet;
+
+    public HighResolutionClock() {
+        this(true, false, new Date());
+    }
+
+    public HighResolutionClock(boolean realTime, Date simulatedDate) {
+        this(realTime, false, simulatedDate);
+    }
+
+    public HighResolutionClock(boolean realTime, boolean isTimeOffset, Date simulatedDate) {
+        if(simulatedDate == null) {
+            throw new IllegalArgumentException("simulated date must not be null");
+        }
+
+        this.isRealTime = realTime;
+        this.isTimeOffset = isTimeOffset;
+        this.simulatedDate = simulatedDate;
+        this.simulatedNanos = TimeUnit.MILLISECONDS.toNanos(simulatedDate.getTime());
+
+        // the time of day in real time, on the simulated day
+        long simulatedMidnightTime = EpochDates.DEFAULT.getDayAtMidnight(simulatedDate.getTime());
+        long currentMidnightTime = EpochDates.DEFAULT.getDayAtMidnight(System.currentTimeMillis());
+        this.shiftNanos = TimeUnit.MILLISECONDS.toNanos(simulatedMidnightTime - currentMidnightTime);
+        calibrate();
+    }
+
+    /**
+     * Calibrate the nanosecond clock against the wall clock again, i.e. after the wall clock was adjusted.
+     * The offset mode keeps running from its reference time.
+     */
+    public synchronized void calibrate() {
+        long epochOffsetNanos = getEpochOffsetNanos();
+        if(isTimeOffset) {
+            if(offsetReferenceSet) {
+                return;
+            }
+            baseNanos = epochOffsetNanos;
+        } else {
+            baseNanos = epochOffsetNanos + shiftNanos;
+        }
+    }
+
+    public Date currentTime() {
+        if(isRealTime) {
+            return new Date(currentTimeMillis());
+        } else {
+            return simulatedDate;
+        }
+    }
+
+    public long currentTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(currentTimeNanos());
+    }
+
+    public long currentTimeNanos() {
+        if(isRealTime) {
+            if(isTimeOffset && !offsetReferenceSet) {
+                //set initial reference time
+                setReferenceTime();
+            }
+            return System.nanoTime() + baseNanos;
+        } else {
+            return simulatedNanos;
+        }
+    }
+
+    /**
+     * Increments the current time by one millisecond
+     */
+    public void tick() {
+        tick(1L, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * increments the current time by the given amount and units
+     *
+     * @param duration how much to increment the clock by
+     * @param unit     the units of the duration
+     */
+    public synchronized void tick(long duration, TimeUnit unit) {
+        if(!isRealTime) {
+            simulatedNanos += unit.toNanos(duration);
+            simulatedDate = new Date(TimeUnit.NANOSECONDS.toMillis(simulatedNanos));
+        }
+    }
+
+    /**
+     * Start the offset mode at the simulated date, now.
+     */
+    private synchronized void setReferenceTime() {
+        if(!offsetReferenceSet) {
+            baseNanos = simulatedNanos - System.nanoTime();
+            offsetReferenceSet = true;
+        }
+    }
+
+    /**
+     * @return the wall clock time minus System.nanoTime(), in nanoseconds, measured as the wall clock ticks over
+     * to the next millisecond
+     */
+    static long getEpochOffsetNanos() {
+        long start = System.currentTimeMillis();
+        long millis = start;
+        long nanos = System.nanoTime();
+        for(int i = 0; i < MAX_CALIBRATION_SPINS && millis == start; i++) {
+            nanos = System.nanoTime();
+            millis = System.currentTimeMillis();
+        }
+        return TimeUnit.MILLISECONDS.toNanos(millis) - nanos;
+    }
+}
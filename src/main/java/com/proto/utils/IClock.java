@@ -1,4 +1,3 @@
-
 package com.proto.utils;
 
 import java.util.Date;
@@ -7,4 +6,9 @@ public interface IClock {
     Date currentTime();
 
     long currentTimeMillis();
+
+    /**
+     * @return the current time in nanoseconds since the epoch
+     */
+    long currentTimeNanos();
 }
\ No newline at end of file
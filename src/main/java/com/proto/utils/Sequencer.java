@@ -0,0 +1,205 @@
+package com.proto.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sequence coordination for a pre-allocated ring of slots shared by many producers and a single consumer.
+ *
+ * Producers {@link #tryNext() claim} a sequence, write the slot at {@link #index(long)} in place and
+ * {@link #publish(long) publish} it. The consumer reads every slot that {@link #isAvailable(long) is available}
+ * in sequence order and hands the slots back with {@link #release(long)}.
+ *
+ * Sequencer does not own the slots, it only guarantees that a slot is never written while it is still unread
+ * and that the consumer sees everything written before a slot was published.
+ *
+ * @author wfrancis
+ */
+public final class Sequencer {
+
+    /**
+     * Number of busy spins before the consumer starts yielding
+     */
+    private static final int SPIN_TRIES = 100;
+
+    /**
+     * Number of yields before the consumer parks
+     */
+    private static final int YIELD_TRIES = 100;
+
+    /**
+     * Ring size, always a power of two
+     */
+    private final int size;
+
+    /**
+     * size - 1, used to map a sequence to its slot
+     */
+    private final int mask;
+
+    /**
+     * Highest sequence claimed by a producer
+     */
+    private final AtomicLong claimed = new AtomicLong(-1);
+
+    /**
+     * Highest sequence released by the consumer
+     */
+    private final AtomicLong released = new AtomicLong(-1);
+
+    /**
+     * The sequence last published in each slot
+     */
+    private final AtomicLongArray published;
+
+    /**
+     * The consumer thread while it is parked, null otherwise
+     */
+    private volatile Thread parkedConsumer;
+
+    /**
+     * @param size number of slots, must be a power of two
+     */
+    public Sequencer(int size) {
+        if(size < 1 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Size must be a positive power of two: " + size);
+        }
+        this.size = size;
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+        for(int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the slot index of a sequence
+     */
+    public int index(long sequence) {
+        return (int) (sequence & mask);
+    }
+
+    /**
+     * Claim the next sequence if its slot has been released by the consumer.
+     *
+     * @return the claimed sequence, or -1 if the ring is full.
+     */
+    public long tryNext() {
+        while (true) {
+            long current = claimed.get();
+            long next = current + 1;
+            if (next - size > released.get()) {
+                return -1;
+            }
+            if (claimed.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Make a claimed sequence visible to the consumer. Everything written to the slot before this call is
+     * visible to the consumer once {@link #isAvailable(long)} returns true.
+     */
+    public void publish(long sequence) {
+        published.set(index(sequence), sequence);
+
+        Thread consumer = parkedConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * @return true if the sequence has been published and not yet released
+     */
+    public boolean isAvailable(long sequence) {
+        return published.get(index(sequence)) == sequence;
+    }
+
+    /**
+     * @return the highest sequence, from the given one, such that every sequence between the two is available,
+     * or from - 1 if from itself is not available.
+     */
+    public long getHighestAvailable(long from) {
+        long limit = from + size;
+        long sequence = from;
+        while (sequence < limit && isAvailable(sequence)) {
+            sequence++;
+        }
+        return sequence - 1;
+    }
+
+    /**
+     * Hand every slot up to and including the given sequence back to the producers.
+     */
+    public void release(long sequence) {
+        released.lazySet(sequence);
+    }
+
+    /**
+     * @return the highest sequence released by the consumer
+     */
+    public long getReleased() {
+        return released.get();
+    }
+
+    /**
+     * @return the highest sequence claimed by a producer
+     */
+    public long getClaimed() {
+        return claimed.get();
+    }
+
+    /**
+     * @return the number of claimed slots not yet released by the consumer
+     */
+    public long getBacklog() {
+        return claimed.get() - released.get();
+    }
+
+    /**
+     * Wait, as the single consumer, until the given sequence is available or the timeout elapses.
+     * Spins first, then yields and finally parks until a producer publishes.
+     *
+     * @return true if the sequence is available
+     */
+    public boolean waitFor(long sequence, long timeoutNanos) {
+        for (int i = 0; i < SPIN_TRIES; i++) {
+            if (isAvailable(sequence)) {
+                return true;
+            }
+        }
+        for (int i = 0; i < YIELD_TRIES; i++) {
+            if (isAvailable(sequence)) {
+                return true;
+            }
+            Thread.yield();
+        }
+
+        parkedConsumer = Thread.currentThread();
+        try {
+            if (!isAvailable(sequence)) {
+                LockSupport.parkNanos(this, timeoutNanos);
+            }
+        } finally {
+            parkedConsumer = null;
+        }
+        return isAvailable(sequence);
+    }
+
+    /**
+     * Wake the consumer if it is parked in {@link #waitFor(long, long)}.
+     */
+    public void wakeUp() {
+        Thread consumer = parkedConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+}
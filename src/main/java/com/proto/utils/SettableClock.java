@@ -12,7 +12,7 @@ import java.util.concurrent.TimeUnit;
  */
 public class SettableClock implements IClock{
     
-    private Date time = Dates.getDayAt(new Date(), 9,0);
+    private volatile Date time = Dates.getDayAt(new Date(), 9,0);
     
     public void setTime(Date time){
         this.time = time;
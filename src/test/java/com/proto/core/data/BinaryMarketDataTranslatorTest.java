@@ -0,0 +1,130 @@
+package com.proto.core.data;
+
+import com.proto.core.event.ControlEvent;
+import com.proto.core.event.EventKeyRegistry;
+import com.proto.core.event.StringEventKey;
+import com.proto.core.event.SubscriptionControlEvent;
+import com.proto.core.event.Translator;
+import com.proto.core.event.UnsubscriptionControlEvent;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link BinaryMarketDataTranslator} class
+ *
+ * @author wfrancis
+ */
+public class BinaryMarketDataTranslatorTest {
+
+    private final FXQuotePool pool = new FXQuotePool(4);
+
+    @Test
+    public void testQuoteAllocated() throws Exception {
+        BinaryMarketDataTranslator translator = new BinaryMarketDataTranslator();
+        FXQuote quote = pool.acquire().set(42, 1.1, 1.2, 1000000L, 2000000L, 123456789L);
+
+        ByteBuffer encoded = translator.translate(quote);
+        FXQuote decoded = (FXQuote) translator.untranslate(encoded);
+        assertFalse(translator.isUntranslatingViews());
+        assertQuote(decoded);
+
+        // the quote owns its record, later decodes and reused buffers leave it unchanged
+        encoded.putLong(BinaryMarketDataTranslator.HEADER_LENGTH + FXQuote.TIME_OFFSET, 5L);
+        encoded.rewind();
+        FXQuote next = (FXQuote) translator.untranslate(encoded);
+        assertNotSame(decoded, next);
+        assertThat(next.getTimeNanos(), is(5L));
+        assertQuote(decoded);
+        assertThat(pool.getAvailable(), is(3));
+        quote.release();
+    }
+
+    @Test
+    public void testQuoteView() throws Exception {
+        BinaryMarketDataTranslator translator = BinaryMarketDataTranslator.decodingViews(new EventKeyRegistry(),
+                BinaryMarketDataTranslator.DEFAULT_BUFFER_COUNT);
+        FXQuote quote = pool.acquire().set(42, 1.1, 1.2, 1000000L, 2000000L, 123456789L);
+
+        ByteBuffer encoded = translator.translate(quote);
+        assertThat(encoded.remaining(), is(BinaryMarketDataTranslator.HEADER_LENGTH + FXQuote.ENCODED_LENGTH));
+
+        FXQuote decoded = (FXQuote) translator.untranslate(encoded);
+        assertThat(encoded.remaining(), is(0));
+        assertQuote(decoded);
+
+        // the view reads the message in place
+        encoded.putLong(BinaryMarketDataTranslator.HEADER_LENGTH + FXQuote.TIME_OFFSET, 5L);
+        assertThat(decoded.getTimeNanos(), is(5L));
+        decoded.release();
+    }
+
+    @Test
+    public void testQuotePooled() throws Exception {
+        BinaryMarketDataTranslator translator = new BinaryMarketDataTranslator(pool);
+        FXQuote quote = pool.acquire().set(42, 1.1, 1.2, 1000000L, 2000000L, 123456789L);
+
+        FXQuote decoded = (FXQuote) translator.untranslate(translator.translate(quote));
+        assertNotSame(quote, decoded);
+        assertQuote(decoded);
+        assertThat(pool.getAvailable(), is(2));
+        decoded.release();
+        quote.release();
+        assertThat(pool.getAvailable(), is(4));
+    }
+
+    @Test
+    public void testControlEvents() throws Exception {
+        EventKeyRegistry registry = new EventKeyRegistry();
+        BinaryMarketDataTranslator translator = new BinaryMarketDataTranslator(null, registry, 2);
+
+        ByteBuffer buffer = ByteBuffer.allocate(128);
+        translator.encode(new SubscriptionControlEvent(new StringEventKey("FX.EURUSD"), null), buffer);
+        translator.encode(new UnsubscriptionControlEvent(new StringEventKey("FX.USDJPY"), null), buffer);
+        buffer.flip();
+
+        ControlEvent subscription = (ControlEvent) translator.decode(buffer);
+        ControlEvent unsubscription = (ControlEvent) translator.decode(buffer);
+        assertTrue(subscription instanceof SubscriptionControlEvent);
+        assertSame(registry.intern("FX.EURUSD"), subscription.getKey());
+        assertTrue(unsubscription instanceof UnsubscriptionControlEvent);
+        assertThat(unsubscription.getKey().toString(), is("FX.USDJPY"));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test(expected = Translator.TranslationException.class)
+    public void testOtherVersionRejected() throws Exception {
+        BinaryMarketDataTranslator translator = new BinaryMarketDataTranslator();
+        ByteBuffer encoded = translator.translate(pool.acquire().set(1, 1, 1, 1, 1, 1));
+        encoded.put(0, (byte) (BinaryMarketDataTranslator.VERSION + 1));
+        translator.untranslate(encoded);
+    }
+
+    @Test(expected = Translator.TranslationException.class)
+    public void testUnsupportedEvent() throws Exception {
+        new BinaryMarketDataTranslator().translate(new Date());
+    }
+
+    @Test
+    public void testBufferRing() throws Exception {
+        BinaryMarketDataTranslator translator = new BinaryMarketDataTranslator(null, new EventKeyRegistry(), 2);
+        FXQuote quote = pool.acquire();
+        ByteBuffer first = translator.translate(quote);
+        ByteBuffer second = translator.translate(quote);
+        assertNotSame(first, second);
+        assertSame(first, translator.translate(quote));
+    }
+
+    private static void assertQuote(FXQuote decoded) {
+        assertThat(decoded.getInstrumentId(), is(42));
+        assertThat(decoded.getBid(), is(1.1));
+        assertThat(decoded.getAsk(), is(1.2));
+        assertThat(decoded.getBidSize(), is(1000000L));
+        assertThat(decoded.getAskSize(), is(2000000L));
+        assertThat(decoded.getTimeNanos(), is(123456789L));
+    }
+}
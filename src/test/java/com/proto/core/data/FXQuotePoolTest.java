@@ -0,0 +1,168 @@
+package com.proto.core.data;
+
+import com.proto.core.event.BufferedProducer;
+import com.proto.core.event.EventKey;
+import com.proto.core.event.Listener;
+import com.proto.core.event.SimpleChannelManager;
+import com.proto.core.event.SimpleEventChannel;
+import com.proto.core.event.StringEventKey;
+import com.proto.utils.SettableClock;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link FXQuotePool} and {@link FXQuote} classes
+ *
+ * @author wfrancis
+ */
+public class FXQuotePoolTest {
+
+    @Test
+    public void testFields() {
+        FXQuotePool pool = new FXQuotePool(2);
+        FXQuote quote1 = pool.acquire().set(7, 1.1012, 1.1014, 1000000L, 2000000L, 1500000000123456789L);
+        FXQuote quote2 = pool.acquire().set(8, 109.5, 109.52, 3L, 4L, 5L);
+
+        assertThat(quote1.getInstrumentId(), is(7));
+        assertThat(quote1.getBid(), is(1.1012));
+        assertThat(quote1.getAsk(), is(1.1014));
+        assertThat(quote1.getBidSize(), is(1000000L));
+        assertThat(quote1.getAskSize(), is(2000000L));
+        assertThat(quote1.getTimeNanos(), is(1500000000123456789L));
+        assertThat(quote1.getTime().getTime(), is(1500000000123L));
+        assertThat(quote2.getInstrumentId(), is(8));
+    }
+
+    @Test
+    public void testRecycle() {
+        FXQuotePool pool = new FXQuotePool(1);
+        FXQuote quote = pool.acquire();
+        assertNull(pool.acquire());
+        assertThat(pool.getAvailable(), is(0));
+
+        quote.retain();
+        quote.release();
+        assertThat(pool.getAvailable(), is(0));
+
+        quote.release();
+        assertThat(pool.getAvailable(), is(1));
+        assertSame(quote, pool.acquire());
+        assertThat(quote.getReferenceCount(), is(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReleaseTwice() {
+        FXQuotePool pool = new FXQuotePool(1);
+        FXQuote quote = pool.acquire();
+        quote.release();
+        quote.release();
+    }
+
+    @Test
+    public void testWriteToReadFrom() {
+        FXQuotePool pool = new FXQuotePool(2);
+        FXQuote quote = pool.acquire().set(3, 1.25, 1.26, 10L, 20L, 30L);
+
+        ByteBuffer buffer = ByteBuffer.allocate(FXQuote.ENCODED_LENGTH).order(ByteOrder.nativeOrder());
+        quote.writeTo(buffer);
+        buffer.flip();
+
+        FXQuote copy = pool.acquire().readFrom(buffer);
+        assertThat(copy.getInstrumentId(), is(3));
+        assertThat(copy.getAsk(), is(1.26));
+        assertThat(copy.getTimeNanos(), is(30L));
+        assertThat(buffer.remaining(), is(0));
+    }
+
+    @Test
+    public void testBufferedProducerOrdersByTimeNanos() throws Exception {
+        SettableClock clock = new SettableClock();
+        clock.setTime(1000L);
+        BufferedProducer producer = new BufferedProducer(clock);
+        final List<Integer> instruments = Collections.synchronizedList(new ArrayList<Integer>());
+        producer.setListener(new Listener() {
+            public void consume(EventKey eventKey, Object event) throws Exception {
+                FXQuote quote = (FXQuote) event;
+                instruments.add(quote.getInstrumentId());
+                quote.release();
+            }
+        });
+        producer.start();
+
+        FXQuotePool pool = new FXQuotePool(4);
+        EventKey key = new StringEventKey("FX.EURUSD");
+        producer.consume(key, pool.acquire().set(2, 1, 1, 1, 1, TimeUnit.MILLISECONDS.toNanos(1002)));
+        producer.consume(key, pool.acquire().set(1, 1, 1, 1, 1, TimeUnit.MILLISECONDS.toNanos(1001)));
+
+        Thread.sleep(100);
+        assertTrue(instruments.isEmpty());
+
+        clock.setTime(1002L);
+        producer.consume(key, pool.acquire().set(0, 1, 1, 1, 1, TimeUnit.MILLISECONDS.toNanos(1000)));
+        Thread.sleep(100);
+
+        assertThat(instruments, is(Arrays.asList(0, 1, 2)));
+        assertThat(pool.getAvailable(), is(4));
+        producer.stop();
+    }
+
+    @Test
+    public void testFanOutThroughChannelManager() throws Exception {
+        final int count = 1000;
+        SettableClock clock = new SettableClock();
+        clock.setTime(1000L);
+        BufferedProducer producer = new BufferedProducer(clock);
+        SimpleChannelManager manager = new SimpleChannelManager(new SimpleEventChannel());
+        producer.setListener(manager);
+
+        final CountDownLatch latch = new CountDownLatch(2 * count);
+        final AtomicLong mismatched = new AtomicLong();
+        EventKey key = new StringEventKey("FX.EURUSD");
+        for (int l = 0; l < 2; l++) {
+            manager.registerListener(key, new Listener() {
+                private int next;
+
+                public void consume(EventKey eventKey, Object event) throws Exception {
+                    if (((FXQuote) event).getInstrumentId() != next++) {
+                        mismatched.incrementAndGet();
+                    }
+                    latch.countDown();
+                }
+            });
+        }
+        producer.start();
+
+        // many more quotes than the pool holds, each read by both listeners
+        FXQuotePool pool = new FXQuotePool(16);
+        for (int i = 0; i < count; i++) {
+            FXQuote quote;
+            while ((quote = pool.acquire()) == null) {
+                Thread.sleep(1);
+            }
+            producer.consume(key, quote.set(i, 1, 1, 1, 1, TimeUnit.MILLISECONDS.toNanos(1000)));
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertThat(mismatched.get(), is(0L));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pool.getAvailable() < 16 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(pool.getAvailable(), is(16));
+
+        producer.stop();
+        manager.stop();
+    }
+}
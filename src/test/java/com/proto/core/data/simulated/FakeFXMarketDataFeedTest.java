@@ -0,0 +1,172 @@
+package com.proto.core.data.simulated;
+
+import com.proto.core.data.FXQuote;
+import com.proto.core.data.FXQuotePool;
+import com.proto.core.event.BatchListener;
+import com.proto.core.event.EventKey;
+import com.proto.core.event.EventKeyRegistry;
+import com.proto.core.event.Listener;
+import com.proto.core.event.SimpleChannelManager;
+import com.proto.core.event.SimpleEventChannel;
+import com.proto.core.event.StringEventKey;
+import org.junit.Test;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link FakeFXMarketDataFeed} class
+ *
+ * @author wfrancis
+ */
+public class FakeFXMarketDataFeedTest {
+
+    @Test
+    public void testInstrumentNames() {
+        assertThat(FakeFXMarketDataFeed.instrumentName(0), is("EURUSD"));
+        assertThat(FakeFXMarketDataFeed.instrumentName(49), is("USDEUR"));
+        assertThat(FakeFXMarketDataFeed.instrumentName(50), is("USDJPY"));
+        assertThat(FakeFXMarketDataFeed.instrumentName(2450), is("SYN2450"));
+
+        FakeFXMarketDataFeed feed = new FakeFXMarketDataFeed(config("3000", "0"), new EventKeyRegistry());
+        assertThat(feed.getInstrumentCount(), is(3000));
+        assertThat(feed.getEventKey(0).toString(), is("FX.EURUSD"));
+    }
+
+    @Test
+    public void testReproducible() {
+        FakeFXMarketDataFeed feed1 = new FakeFXMarketDataFeed(config("500", "0"), new EventKeyRegistry());
+        FakeFXMarketDataFeed feed2 = new FakeFXMarketDataFeed(config("500", "0"), new EventKeyRegistry());
+        Properties other = config("500", "0");
+        other.setProperty("PRICE_RANDOM_WALK_SEED", "2");
+        FakeFXMarketDataFeed feed3 = new FakeFXMarketDataFeed(other, new EventKeyRegistry());
+
+        FXQuotePool pool = new FXQuotePool(3);
+        FXQuote quote1 = pool.acquire();
+        FXQuote quote2 = pool.acquire();
+        FXQuote quote3 = pool.acquire();
+
+        boolean differs = false;
+        for (int i = 0; i < 10000; i++) {
+            feed1.nextTick(quote1, i);
+            feed2.nextTick(quote2, i);
+            feed3.nextTick(quote3, i);
+
+            assertThat(quote1.getInstrumentId(), is(quote2.getInstrumentId()));
+            assertThat(quote1.getBid(), is(quote2.getBid()));
+            assertThat(quote1.getAsk(), is(quote2.getAsk()));
+            assertThat(quote1.getBidSize(), is(quote2.getBidSize()));
+            assertTrue(quote1.getBid() < quote1.getAsk());
+            differs |= quote1.getBid() != quote3.getBid();
+        }
+        assertTrue(differs);
+    }
+
+    @Test
+    public void testPublishesAtTickRate() throws Exception {
+        final FakeFXMarketDataFeed feed = new FakeFXMarketDataFeed(config("1000", "20000"), new EventKeyRegistry());
+        final AtomicLong received = new AtomicLong();
+        final AtomicLong mismatched = new AtomicLong();
+        feed.setListener(new Listener() {
+            public void consume(EventKey eventKey, Object event) throws Exception {
+                FXQuote quote = (FXQuote) event;
+                if (feed.getEventKey(quote.getInstrumentId()) != eventKey) {
+                    mismatched.incrementAndGet();
+                }
+                received.incrementAndGet();
+                quote.release();
+            }
+        });
+
+        feed.start();
+        Thread.sleep(500);
+        feed.stop();
+        Thread.sleep(100);
+
+        assertThat(feed.getTickRate(), is(20000L));
+        assertThat(received.get(), is(feed.getTickCount()));
+        assertTrue("Ticks published: " + received.get(), received.get() > 5000 && received.get() < 15000);
+        assertThat(mismatched.get(), is(0L));
+        assertThat(feed.getDroppedCount(), is(0L));
+    }
+
+    @Test
+    public void testDropsWhenPoolIsExhausted() throws Exception {
+        Properties config = config("10", "0");
+        config.setProperty("POOL_SIZE", "16");
+        FakeFXMarketDataFeed feed = new FakeFXMarketDataFeed(config, new EventKeyRegistry());
+        feed.setListener(new Listener() {
+            public void consume(EventKey eventKey, Object event) throws Exception {
+                // never released
+            }
+        });
+
+        feed.start();
+        Thread.sleep(100);
+        feed.stop();
+
+        assertThat(feed.getTickCount(), is(16L));
+        assertTrue(feed.getDroppedCount() > 0);
+    }
+
+    @Test
+    public void testPublishesBehindChannelManager() throws Exception {
+        Properties config = config("10", "0");
+        config.setProperty("POOL_SIZE", "64");
+        FakeFXMarketDataFeed feed = new FakeFXMarketDataFeed(config, new EventKeyRegistry());
+        SimpleChannelManager manager = new SimpleChannelManager(new SimpleEventChannel());
+        final AtomicLong received = new AtomicLong();
+        manager.registerListener(new StringEventKey("FX.>"), new Listener() {
+            public void consume(EventKey eventKey, Object event) throws Exception {
+                // borrowed, released by the manager
+                received.incrementAndGet();
+            }
+        });
+        feed.setListener(manager);
+
+        feed.start();
+        Thread.sleep(200);
+        feed.stop();
+        Thread.sleep(100);
+        manager.stop();
+
+        assertTrue("Ticks published: " + feed.getTickCount(), feed.getTickCount() > 64);
+        assertThat(received.get(), is(feed.getTickCount()));
+    }
+
+    @Test
+    public void testReleasesRejectedBatch() throws Exception {
+        Properties config = config("10", "0");
+        config.setProperty("POOL_SIZE", "16");
+        FakeFXMarketDataFeed feed = new FakeFXMarketDataFeed(config, new EventKeyRegistry());
+        final AtomicLong rejected = new AtomicLong();
+        feed.setListener(new BatchListener() {
+            public void consumeBatch(EventKey[] eventKeys, Object[] events, int offset, int length) throws Exception {
+                rejected.addAndGet(length);
+                throw new Exception("Rejected");
+            }
+
+            public void consume(EventKey eventKey, Object event) throws Exception {
+                throw new Exception("Rejected");
+            }
+        });
+
+        feed.publishBurst(FakeFXMarketDataFeed.MAX_BURST, 0L);
+        feed.publishBurst(FakeFXMarketDataFeed.MAX_BURST, 0L);
+
+        assertThat(rejected.get(), is(32L));
+    }
+
+    private static Properties config(String instrumentCount, String tickRate) {
+        Properties config = new Properties();
+        config.setProperty("INSTRUMENT_COUNT", instrumentCount);
+        config.setProperty("TICK_RATE", tickRate);
+        config.setProperty("DELAY_TIME_SEED", "7");
+        config.setProperty("PRICE_RANDOM_WALK_SEED", "11");
+        config.setProperty("INIT_PX", "1.5");
+        return config;
+    }
+}
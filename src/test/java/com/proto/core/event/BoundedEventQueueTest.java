@@ -0,0 +1,128 @@
+package com.proto.core.event;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link BoundedEventQueue} class
+ *
+ * @author wfrancis
+ */
+public class BoundedEventQueueTest {
+
+    private final EventKey[] keys = new EventKey[16];
+    private final Object[] events = new Object[16];
+
+    private final EventKey a = new StringEventKey("A");
+    private final EventKey b = new StringEventKey("B");
+    private final EventKey c = new StringEventKey("C");
+
+    @Test
+    public void testDropNewest() throws Exception {
+        BoundedEventQueue queue = new BoundedEventQueue(2, BoundedEventQueue.OverflowPolicy.DROP_NEWEST);
+        assertTrue(queue.offer(a, 1));
+        assertTrue(queue.offer(b, 2));
+        assertFalse(queue.offer(c, 3));
+
+        assertThat(queue.getDroppedCount(), is(1L));
+        assertThat(queue.take(keys, events, 16), is(2));
+        assertThat(events[0], is((Object) 1));
+        assertThat(events[1], is((Object) 2));
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        BoundedEventQueue queue = new BoundedEventQueue(2, BoundedEventQueue.OverflowPolicy.DROP_OLDEST);
+        EventKey[] batchKeys = {a, b, c};
+        Object[] batch = {1, 2, 3};
+        assertThat(queue.offerAll(batchKeys, batch, 0, 3), is(0));
+
+        assertThat(queue.getDroppedCount(), is(1L));
+        assertThat(queue.size(), is(2));
+        assertThat(queue.take(keys, events, 16), is(2));
+        assertThat(keys[0], is(b));
+        assertThat(keys[1], is(c));
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+        final BoundedEventQueue queue = new BoundedEventQueue(1, BoundedEventQueue.OverflowPolicy.BLOCK);
+        queue.offer(a, 1);
+
+        final CountDownLatch offered = new CountDownLatch(1);
+        new Thread(new Runnable() {
+            public void run() {
+                try {
+                    queue.offer(b, 2);
+                    offered.countDown();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }).start();
+
+        assertFalse(offered.await(50, TimeUnit.MILLISECONDS));
+        assertThat(queue.take(keys, events, 16), is(1));
+        assertTrue(offered.await(5, TimeUnit.SECONDS));
+        assertThat(queue.getBlockedCount(), is(1L));
+        assertThat(queue.poll(keys, events, 16, 1, TimeUnit.SECONDS), is(1));
+        assertThat(keys[0], is(b));
+        assertThat(queue.poll(keys, events, 16, 10, TimeUnit.MILLISECONDS), is(0));
+    }
+
+    @Test
+    public void testConflate() throws Exception {
+        BoundedEventQueue queue = new BoundedEventQueue(3, BoundedEventQueue.OverflowPolicy.CONFLATE);
+        ControlEvent ce = new SubscriptionControlEvent(a, null);
+        queue.offer(a, 1);
+        queue.offer(b, 2);
+        queue.offer(a, 3);
+        queue.offer(b, 4);
+
+        assertThat(queue.getConflatedCount(), is(2L));
+        assertThat(queue.take(keys, events, 1), is(1));
+        queue.offer(a, ce);
+        queue.offer(a, 5);
+
+        assertThat(queue.take(keys, events, 16), is(3));
+        assertThat(events[0], is((Object) 4));
+        assertThat(events[1], is((Object) ce));
+        assertThat(events[2], is((Object) 5));
+    }
+
+    @Test
+    public void testConflateMatchesModel() throws Exception {
+        Random random = new Random(3);
+        BoundedEventQueue queue = new BoundedEventQueue(64, BoundedEventQueue.OverflowPolicy.CONFLATE);
+        Map<EventKey, Integer> model = new LinkedHashMap<EventKey, Integer>();
+        List<EventKey> universe = new ArrayList<EventKey>();
+        for (int i = 0; i < 64; i++) {
+            universe.add(new StringEventKey("K" + i));
+        }
+
+        for (int round = 0; round < 20000; round++) {
+            if (random.nextInt(3) > 0) {
+                EventKey key = universe.get(random.nextInt(universe.size()));
+                queue.offer(key, round);
+                model.put(key, round);
+            } else if (!model.isEmpty()) {
+                int n = queue.take(keys, events, 1 + random.nextInt(4));
+                for (int i = 0; i < n; i++) {
+                    EventKey expected = model.keySet().iterator().next();
+                    assertThat(keys[i], is(expected));
+                    assertThat(events[i], is((Object) model.remove(expected)));
+                }
+            }
+            assertThat(queue.size(), is(model.size()));
+        }
+    }
+}
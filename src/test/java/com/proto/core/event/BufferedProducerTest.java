@@ -14,6 +14,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static junit.framework.Assert.*;
 import static org.mockito.Mockito.*;
@@ -31,6 +32,7 @@ public class BufferedProducerTest {
 
     private List<TimedEvent> events;
     private CountDownLatch latch;
+    private Listener listener;
 
     private final Integer eventCount = 4;
 
@@ -47,7 +49,7 @@ public class BufferedProducerTest {
         producer = new BufferedProducer(clock);
 
         clock.setTime(base);
-        producer.setListener(new Listener() {
+        listener = new Listener() {
             public void consume(EventKey eventKey, Object event) throws Exception {
                 assertFalse(event == null);
                 assertTrue(event instanceof TimedEvent);
@@ -56,7 +58,8 @@ public class BufferedProducerTest {
 
                 latch.countDown();
             }
-        });
+        };
+        producer.setListener(listener);
     }
 
     @After
@@ -90,35 +93,28 @@ public class BufferedProducerTest {
 
     @Test
     public void testConsume() throws Exception {
-        producer.start();
-
-        final DummyTestEvent event1 = new DummyTestEvent(Dates.addSeconds(base, 9));
-        final DummyTestEvent event2 = new DummyTestEvent(Dates.addSeconds(base, 10));
-        final DummyTestEvent event3 = new DummyTestEvent(Dates.addSeconds(base, 11));
-        final DummyTestEvent event4 = new DummyTestEvent(Dates.addSeconds(base, 12));
-
-        final CountDownLatch publishLatch = new CountDownLatch(1);
-
-        Executors.newSingleThreadExecutor().submit(new Runnable() {
-            public void run() {
-                try {
-                    producer.consume(key, event2);
-                    producer.consume(key, event3);
-                    producer.consume(key, event1);
+        assertConsume(new TimingWheelEventQueue());
+    }
 
-                    publishLatch.countDown();
+    @Test
+    public void testConsumeWithPriorityQueue() throws Exception {
+        assertConsume(new PriorityTimedEventQueue());
+    }
 
-                    /*
-                     * The following should block until the first event is published
-                     */
-                    producer.consume(key, event4);
-                } catch (Exception e) {
-                    fail("Exception caught: " + e.getMessage());
-                }
-            }
-        });
+    /**
+     * Publish events out of order through a producer buffering them in the given queue, and check they are
+     * published in time order once due. The dispatch thread is woken by a last event earlier than the queued ones,
+     * as setting the clock does not signal it.
+     */
+    private void assertConsume(TimedEventQueue queue) throws Exception {
+        producer.stop();
+        producer = new BufferedProducer(clock, queue);
+        producer.setListener(listener);
+        producer.start();
 
-        publishLatch.await();
+        producer.consume(key, new DummyTestEvent(Dates.addSeconds(base, 10)));
+        producer.consume(key, new DummyTestEvent(Dates.addSeconds(base, 11)));
+        producer.consume(key, new DummyTestEvent(Dates.addSeconds(base, 9)));
 
         assertTrue("Events were published before their appropriate time", events.isEmpty());
 
@@ -127,23 +123,21 @@ public class BufferedProducerTest {
             assertTrue("Events were published before their appropriate time", events.isEmpty());
         }
 
-        clock.setTime(Dates.addSeconds(base, 9));
-        clock.setTime(Dates.addSeconds(base, 10));
-        clock.setTime(Dates.addSeconds(base, 11));
         clock.setTime(Dates.addSeconds(base, 12));
+        producer.consume(key, new DummyTestEvent(Dates.addSeconds(base, 8)));
 
-        latch.await();
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
 
         assertTrue("Event count not as expected", events.size() == eventCount);
 
-        for(int i = 0; i < eventCount - 1; i++) {
+        for(int i = 0; i < eventCount; i++) {
             assertTrue(
                 String.format("Expected event time %s does not match actual %s for index %s",
+                        Dates.addSeconds(base, 8 + i),
                         events.get(i).getTime(),
-                        Dates.addSeconds(base, 9 + i),
                         i
                 ),
-                events.get(i).getTime().equals(Dates.addSeconds(base, 9 + i))
+                events.get(i).getTime().equals(Dates.addSeconds(base, 8 + i))
             );
         }
     }
@@ -220,6 +214,49 @@ public class BufferedProducerTest {
         verify(listener).consume(eq(key), eq(event2));
     }
 
+    @Test
+    public void testDiscreteEvent() throws Exception {
+        producer.stop();
+        producer = new BufferedProducer(clock, new TimingWheelEventQueue(), 16);
+        final int count = 24 * 60;
+        final List<Long> clockTimes = Collections.synchronizedList(new ArrayList<Long>());
+        final CountDownLatch published = new CountDownLatch(count);
+        producer.setListener(new Listener() {
+            public void consume(EventKey eventKey, Object event) throws Exception {
+                events.add((TimedEvent) event);
+                clockTimes.add(clock.currentTimeMillis());
+                published.countDown();
+            }
+        });
+        producer.start();
+
+        // a simulated day, one event a minute
+        long start = System.currentTimeMillis();
+        for(int i = 1; i <= count; i++) {
+            producer.consume(key, new DummyTestEvent(Dates.addSeconds(base, 60 * i)));
+        }
+        assertTrue(published.await(10, TimeUnit.SECONDS));
+        assertTrue("Simulated day took " + (System.currentTimeMillis() - start) + " ms",
+                System.currentTimeMillis() - start < 10000);
+
+        producer.consume(key, new DummyTestEvent(base));
+        long deadline = System.currentTimeMillis() + 5000;
+        while(producer.getPublishedCount() < count + 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(count + 1, producer.getPublishedCount());
+
+        for(int i = 0; i < count; i++) {
+            assertEquals(Dates.addSeconds(base, 60 * (i + 1)), events.get(i).getTime());
+            assertEquals(events.get(i).getTime().getTime(), clockTimes.get(i).longValue());
+        }
+
+        // the late event does not set the clock back
+        assertEquals(base, events.get(count).getTime());
+        assertEquals(Dates.addSeconds(base, 60 * count).getTime(), clockTimes.get(count).longValue());
+        assertEquals(1, producer.getLateCount());
+    }
+
     /**
      * Utility class used for testing
      */
@@ -0,0 +1,98 @@
+package com.proto.core.event;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link CachingTranslator} class
+ *
+ * @author wfrancis
+ */
+public class CachingTranslatorTest {
+
+    private final CountingTranslator counting = new CountingTranslator();
+
+    @Test
+    public void testCachesBothDirections() throws Exception {
+        CachingTranslator<Object> translator = new CachingTranslator<Object>(counting, 64);
+        for (int i = 0; i < 10; i++) {
+            assertThat(translator.translateEventKey(new StringEventKey("FX.EURUSD")), is("fx/FX.EURUSD"));
+            assertThat(translator.untranslateEventKey("fx/FX.EURUSD").toString(), is("FX.EURUSD"));
+        }
+
+        assertThat(counting.keys.get(), is(1));
+        assertThat(counting.subjects.get(), is(1));
+        assertThat(translator.getKeyHitCount(), is(9L));
+        assertThat(translator.getKeyMissCount(), is(1L));
+        assertThat(translator.getSubjectHitCount(), is(9L));
+        assertThat(translator.getSubjectMissCount(), is(1L));
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        CachingTranslator<Object> translator = new CachingTranslator<Object>(counting, 1);
+        assertThat(translator.getCacheSize(), is(1));
+
+        translator.translateEventKey(new StringEventKey("A"));
+        translator.translateEventKey(new StringEventKey("B"));
+        assertThat(translator.translateEventKey(new StringEventKey("A")), is("fx/A"));
+        assertThat(counting.keys.get(), is(3));
+        assertThat(translator.getEvictionCount(), is(2L));
+
+        translator.clear();
+        translator.translateEventKey(new StringEventKey("A"));
+        assertThat(counting.keys.get(), is(4));
+    }
+
+    @Test
+    public void testDelegatesEvents() throws Exception {
+        CachingTranslator<Object> translator = new CachingTranslator<Object>(counting);
+        assertThat(translator.getCacheSize(), is(CachingTranslator.DEFAULT_CACHE_SIZE));
+        assertThat(translator.translate("x"), is((Object) "x"));
+        assertThat(translator.untranslate("y"), is((Object) "y"));
+        assertThat(translator.getVersion(), is(7));
+        assertThat(translator.getTranslationLifetime(), is(16));
+        assertTrue(translator.isUntranslatingViews());
+    }
+
+    private static class CountingTranslator implements Translator<Object> {
+
+        final AtomicInteger keys = new AtomicInteger();
+
+        final AtomicInteger subjects = new AtomicInteger();
+
+        public Object translate(Object o) {
+            return o;
+        }
+
+        public Object untranslate(Object o) {
+            return o;
+        }
+
+        public String translateEventKey(EventKey eventKey) {
+            keys.incrementAndGet();
+            return "fx/" + eventKey;
+        }
+
+        public EventKey untranslateEventKey(String subject) {
+            subjects.incrementAndGet();
+            return new StringEventKey(subject.substring(3));
+        }
+
+        public int getVersion() {
+            return 7;
+        }
+
+        public int getTranslationLifetime() {
+            return 16;
+        }
+
+        public boolean isUntranslatingViews() {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.proto.core.event;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the {@link ConflatingListener} class
+ *
+ * @author wfrancis
+ */
+public class ConflatingListenerTest {
+
+    @Test
+    public void testConflatesWhileListenerIsBusy() throws Exception {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final EventKey eurusd = new StringEventKey("FX.EURUSD");
+        final EventKey usdjpy = new StringEventKey("FX.USDJPY");
+
+        ConflatingListener listener = new ConflatingListener(new Listener() {
+            private boolean first = true;
+
+            public void consume(EventKey eventKey, Object event) throws Exception {
+                if (first) {
+                    first = false;
+                    blocked.countDown();
+                    release.await();
+                }
+            }
+        });
+
+        listener.consume(eurusd, 0);
+        assertTrue(blocked.await(1, TimeUnit.SECONDS));
+
+        for (int i = 1; i <= 10; i++) {
+            listener.consume(eurusd, i);
+        }
+        listener.consume(usdjpy, 1);
+
+        assertThat(listener.getDroppedCount(), is(9L));
+        assertThat(listener.getDroppedCount(eurusd), is(9L));
+        assertThat(listener.getDroppedCount(usdjpy), is(0L));
+        assertThat(listener.getBacklog(), is(2));
+
+        release.countDown();
+        Thread.sleep(100);
+
+        assertThat(listener.getDeliveredCount(), is(3L));
+        assertThat(listener.getBacklog(), is(0));
+        listener.stop();
+    }
+
+    @Test
+    public void testDeliversLatestValue() throws Exception {
+        Listener slow = mock(Listener.class);
+        ConflatingListener listener = new ConflatingListener(slow);
+        EventKey key = new StringEventKey("FX.EURUSD");
+
+        listener.consume(key, "a");
+        Thread.sleep(100);
+        listener.consume(key, "b");
+        Thread.sleep(100);
+
+        verify(slow, times(1)).consume(key, "a");
+        verify(slow, times(1)).consume(key, "b");
+        listener.stop();
+    }
+
+    @Test
+    public void testControlEventsAreNotConflated() throws Exception {
+        Listener slow = mock(Listener.class);
+        ConflatingListener listener = new ConflatingListener(slow);
+        EventKey key = new StringEventKey("FX.EURUSD");
+        ControlEvent ce = new SubscriptionControlEvent(key, slow);
+
+        listener.consume(key, ce);
+        listener.consume(key, ce);
+        Thread.sleep(100);
+
+        verify(slow, times(2)).consume(key, ce);
+        assertThat(listener.getDroppedCount(), is(0L));
+        listener.stop();
+    }
+
+    @Test
+    public void testDropsAfterStop() throws Exception {
+        Listener slow = mock(Listener.class);
+        ConflatingListener listener = new ConflatingListener(slow);
+        EventKey key = new StringEventKey("FX.EURUSD");
+        ReferenceCounted event = mock(ReferenceCounted.class);
+
+        listener.stop();
+        listener.consume(key, event);
+
+        verify(event, never()).retain();
+        assertThat(listener.getBacklog(), is(0));
+    }
+
+    @Test
+    public void testConflatingEventChannelSharesWrapper() throws Exception {
+        ConflatingEventChannel factory = new ConflatingEventChannel();
+        SimpleChannelManager manager = new SimpleChannelManager(factory);
+
+        Listener slow = mock(Listener.class);
+        EventKey eurusd = new StringEventKey("FX.EURUSD");
+        EventKey usdjpy = new StringEventKey("FX.USDJPY");
+        manager.registerListener(eurusd, slow);
+        manager.registerListener(usdjpy, slow);
+
+        manager.consume(eurusd, "a");
+        manager.consume(usdjpy, "b");
+        Thread.sleep(100);
+
+        verify(slow, times(1)).consume(eurusd, "a");
+        verify(slow, times(1)).consume(usdjpy, "b");
+        assertThat(factory.getConflatingListener(slow).getDeliveredCount(), is(2L));
+
+        manager.unregisterListener(eurusd, slow);
+        manager.consume(eurusd, "c");
+        Thread.sleep(100);
+        verify(slow, never()).consume(eurusd, "c");
+        ConflatingListener wrapper = factory.getConflatingListener(slow);
+        assertNotNull(wrapper);
+
+        // the wrapper is released with its last registration
+        manager.unregisterListener(usdjpy, slow);
+        Thread.sleep(100);
+        assertNull(factory.getConflatingListener(slow));
+
+        manager.registerListener(usdjpy, slow);
+        manager.consume(usdjpy, "d");
+        Thread.sleep(100);
+        verify(slow, times(1)).consume(usdjpy, "d");
+        assertNotSame(wrapper, factory.getConflatingListener(slow));
+
+        manager.stop();
+        factory.stop();
+    }
+}
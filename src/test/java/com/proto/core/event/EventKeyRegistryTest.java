@@ -0,0 +1,104 @@
+package com.proto.core.event;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the {@link EventKeyRegistry} class
+ *
+ * @author wfrancis
+ */
+public class EventKeyRegistryTest {
+
+    @Test
+    public void testDenseIds() {
+        EventKeyRegistry registry = new EventKeyRegistry();
+
+        for (int i = 0; i < 5000; i++) {
+            InternedEventKey key = registry.intern(new StringEventKey("FX." + i));
+            assertThat(key.getId(), is(i));
+            assertSame(key, registry.get(i));
+        }
+        assertThat(registry.size(), is(5000));
+        assertNull(registry.get(5000));
+    }
+
+    @Test
+    public void testInternIsIdempotent() {
+        EventKeyRegistry registry = new EventKeyRegistry();
+
+        InternedEventKey key = registry.intern("FX.EURUSD");
+        assertSame(key, registry.intern(new StringEventKey("FX.EURUSD")));
+        assertSame(key, registry.intern(key));
+        assertSame(key, registry.lookup("FX.EURUSD"));
+        assertNull(registry.lookup("FX.USDJPY"));
+
+        InternedEventKey foreign = new EventKeyRegistry().intern("FX.EURUSD");
+        assertSame(key, registry.intern(foreign));
+    }
+
+    @Test
+    public void testWildcardFlag() {
+        EventKeyRegistry registry = new EventKeyRegistry();
+
+        assertFalse(registry.intern("FX.EURUSD").isWildcard());
+        assertTrue(registry.intern("FX.>").isWildcard());
+    }
+
+    @Test
+    public void testPublishWithInternedKey() throws Exception {
+        EventKeyRegistry registry = new EventKeyRegistry();
+        SimpleChannelManager manager = new SimpleChannelManager(new SimpleEventChannel(), registry);
+
+        Listener listener = mock(Listener.class);
+        manager.registerListener(new StringEventKey("FX.EURUSD"), listener);
+
+        Object event = new Object();
+        EventKey key = registry.intern("FX.EURUSD");
+        manager.consume(key, event);
+
+        Thread.sleep(100);
+
+        verify(listener, times(1)).consume(key, event);
+        manager.stop();
+    }
+
+    @Test
+    public void testUnregisterDoesNotIntern() throws Exception {
+        EventKeyRegistry registry = new EventKeyRegistry();
+        SimpleChannelManager manager = new SimpleChannelManager(new SimpleEventChannel(), registry);
+
+        final CountDownLatch delivered = new CountDownLatch(1);
+        EventKey sentinel = new StringEventKey("SENTINEL");
+        manager.registerListener(sentinel, new Listener() {
+            public void consume(EventKey eventKey, Object event) {
+                delivered.countDown();
+            }
+        });
+        manager.unregisterListener(new StringEventKey("FX.EURUSD"), mock(Listener.class));
+
+        // dispatched once the unregistration queued before it has run
+        manager.consume(sentinel, new Object());
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+        assertThat(manager.getChannelCount(), is(1));
+        assertNull(registry.lookup("FX.EURUSD"));
+        manager.stop();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPublishWithInternedWildcardKey() throws Exception {
+        EventKeyRegistry registry = new EventKeyRegistry();
+        SimpleChannelManager manager = new SimpleChannelManager(new SimpleEventChannel(), registry);
+        try {
+            manager.consume(registry.intern("FX.>"), new Object());
+        } finally {
+            manager.stop();
+        }
+    }
+}
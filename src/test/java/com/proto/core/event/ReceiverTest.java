@@ -0,0 +1,156 @@
+package com.proto.core.event;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link Receiver} class
+ *
+ * @author wfrancis
+ */
+public class ReceiverTest {
+
+    @Test
+    public void testInlineDelivery() throws Exception {
+        checkOrderedDelivery(new TestReceiver(0, 1 << 4), 200);
+    }
+
+    @Test
+    public void testParallelDeliveryKeepsOrder() throws Exception {
+        // a small window makes receiving wait for the decode threads
+        checkOrderedDelivery(new TestReceiver(4, 1 << 4), 2000);
+    }
+
+    @Test
+    public void testFailedTranslationSkipped() throws Exception {
+        TestReceiver receiver = new TestReceiver(2, 1 << 4);
+        final List<Object> received = Collections.synchronizedList(new ArrayList<Object>());
+        final CountDownLatch latch = new CountDownLatch(2);
+        receiver.setListener(new Listener() {
+            public void consume(EventKey eventKey, Object event) throws Exception {
+                received.add(event);
+                latch.countDown();
+            }
+        });
+
+        receiver.receive("A", 1);
+        receiver.receive("A", -1);
+        receiver.receive("A", 2);
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        receiver.shutdown();
+        assertThat(received, is(Arrays.asList((Object) 1, 2)));
+    }
+
+    @Test
+    public void testParallelReceiveAfterShutdownDropped() throws Exception {
+        TestReceiver receiver = new TestReceiver(2, 1 << 4);
+        final List<Object> received = Collections.synchronizedList(new ArrayList<Object>());
+        receiver.setListener(new Listener() {
+            public void consume(EventKey eventKey, Object event) throws Exception {
+                received.add(event);
+            }
+        });
+        receiver.shutdown();
+
+        receiver.receive("A", 1);
+        Thread.sleep(100);
+        assertTrue(received.isEmpty());
+        assertThat(receiver.getBacklog(), is(0L));
+    }
+
+    private void checkOrderedDelivery(TestReceiver receiver, int count) throws Exception {
+        final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch latch = new CountDownLatch(count);
+        receiver.setListener(new Listener() {
+            public void consume(EventKey eventKey, Object event) throws Exception {
+                received.add(eventKey + ":" + event);
+                latch.countDown();
+            }
+        });
+
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            String key = "K" + (i % 10);
+            receiver.receive(key, i);
+            expected.add(key + ":" + i);
+        }
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        // the delivery thread releases the slots after consuming them
+        long deadline = System.currentTimeMillis() + 1000;
+        while (receiver.getBacklog() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        receiver.shutdown();
+        assertThat(received, is(expected));
+        assertThat(receiver.getBacklog(), is(0L));
+    }
+
+    /**
+     * Utility class used for testing, translation takes a random time and fails for negative values
+     */
+    static class TestReceiver extends Receiver<Integer> {
+
+        TestReceiver(int decodeThreads, int reorderWindow) {
+            super(new Translator<Integer>() {
+                private final ThreadLocal<Random> random = new ThreadLocal<Random>() {
+                    @Override
+                    protected Random initialValue() {
+                        return new Random();
+                    }
+                };
+
+                public Integer translate(Object o) {
+                    return (Integer) o;
+                }
+
+                public Object untranslate(Integer o) throws TranslationException {
+                    LockSupport.parkNanos(random.get().nextInt(20000));
+                    if (o < 0) {
+                        throw new TranslationException("negative");
+                    }
+                    return o;
+                }
+
+                public String translateEventKey(EventKey eventKey) {
+                    return eventKey.toString();
+                }
+
+                public EventKey untranslateEventKey(String subject) {
+                    return new StringEventKey(subject);
+                }
+
+                public int getVersion() {
+                    return 1;
+                }
+
+                public int getTranslationLifetime() {
+                    return Integer.MAX_VALUE;
+                }
+
+                public boolean isUntranslatingViews() {
+                    return false;
+                }
+            }, decodeThreads, reorderWindow);
+        }
+
+        public void start() throws Exception {
+        }
+
+        public void stop() throws Exception {
+            shutdown();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.proto.core.event;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the {@link RingBufferChannelManager} class
+ *
+ * @author wfrancis
+ */
+public class RingBufferChannelManagerTest {
+
+    private RingBufferChannelManager manager;
+
+    @After
+    public void tearDown() throws Exception {
+        if(manager != null) {
+            manager.stop();
+        }
+    }
+
+    @Test
+    public void testRegularRegistration() throws Exception {
+        manager = new RingBufferChannelManager(new SimpleEventChannel());
+        Listener listener1 = mock(Listener.class);
+        manager.registerListener(new StringEventKey("1"), listener1);
+        Listener listener2 = mock(Listener.class);
+        manager.registerListener(new StringEventKey("2"), listener2);
+        Listener listener3 = mock(Listener.class);
+        manager.registerListener(new StringEventKey("2"), listener3);
+
+        Object event = new Object();
+        EventKey key = new StringEventKey("2");
+        manager.consume(key, event);
+
+        Thread.sleep(100);
+
+        verify(listener1, times(0)).consume(key, event);
+        verify(listener2, times(1)).consume(key, event);
+        verify(listener3, times(1)).consume(key, event);
+    }
+
+    @Test
+    public void testWildcardRegistration() throws Exception {
+        manager = new RingBufferChannelManager(new SimpleEventChannel());
+
+        Listener listener1 = mock(Listener.class);
+        manager.registerListener(new StringEventKey("11"), listener1);
+
+        Listener listener2 = mock(Listener.class);
+        manager.registerListener(new StringEventKey("2>"), listener2);
+
+        Object event1 = new Object();
+        EventKey key1 = new StringEventKey("22");
+        manager.consume(key1, event1);
+
+        Object event2 = new Object();
+        EventKey key2 = new StringEventKey("11");
+        manager.consume(key2, event2);
+
+        Thread.sleep(100);
+
+        verify(listener1, times(1)).consume(key2, event2);
+        verify(listener2, times(1)).consume(key1, event1);
+        verifyNoMoreInteractions(listener1, listener2);
+    }
+
+    @Test
+    public void testUnregistration() throws Exception {
+        manager = new RingBufferChannelManager(new SimpleEventChannel());
+
+        Listener listener = mock(Listener.class);
+        EventKey key = new StringEventKey("1");
+        Object event1 = new Object();
+        Object event2 = new Object();
+
+        manager.registerListener(key, listener);
+        manager.consume(key, event1);
+        manager.unregisterListener(key, listener);
+        manager.consume(key, event2);
+
+        Thread.sleep(100);
+
+        verify(listener, times(1)).consume(key, event1);
+        verifyNoMoreInteractions(listener);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConsumeWildcardKey() throws Exception {
+        manager = new RingBufferChannelManager(new SimpleEventChannel());
+        manager.consume(new StringEventKey("1>"), new Object());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testConsumeAfterStop() throws Exception {
+        manager = new RingBufferChannelManager(new SimpleEventChannel());
+        manager.stop();
+        manager.consume(new StringEventKey("1"), new Object());
+    }
+
+    @Test
+    public void testStopWhilePublishing() throws Exception {
+        final int publishers = 4;
+        manager = new RingBufferChannelManager(new SimpleEventChannel(), 64);
+        manager.registerListener(new StringEventKey("KEY"), mock(Listener.class));
+
+        // every event is either dispatched and released by the manager, or rejected and released by its publisher
+        final AtomicInteger created = new AtomicInteger();
+        final AtomicInteger released = new AtomicInteger();
+        final CountDownLatch publishing = new CountDownLatch(publishers);
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int p = 0; p < publishers; p++) {
+            Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    publishing.countDown();
+                    while (true) {
+                        CountedEvent event = new CountedEvent(released);
+                        created.incrementAndGet();
+                        try {
+                            manager.consume(new StringEventKey("KEY"), event);
+                        } catch (Exception e) {
+                            event.release();
+                            return;
+                        }
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        assertTrue(publishing.await(5, TimeUnit.SECONDS));
+        Thread.sleep(10);
+        manager.stop();
+        for (Thread thread : threads) {
+            thread.join(5000);
+            assertFalse(thread.isAlive());
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (released.get() < created.get() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(created.get(), released.get());
+    }
+
+    @Test
+    public void testOrderingAcrossWrapAround() throws Exception {
+        final int publishers = 4;
+        final int eventsPerPublisher = 10000;
+
+        manager = new RingBufferChannelManager(new SimpleEventChannel(), 64);
+
+        final List<List<Integer>> received = new ArrayList<List<Integer>>();
+        final CountDownLatch latch = new CountDownLatch(publishers * eventsPerPublisher);
+
+        for (int p = 0; p < publishers; p++) {
+            final List<Integer> values = Collections.synchronizedList(new ArrayList<Integer>());
+            received.add(values);
+            manager.registerListener(new StringEventKey("KEY" + p), new Listener() {
+                public void consume(EventKey eventKey, Object event) throws Exception {
+                    values.add((Integer) event);
+                    latch.countDown();
+                }
+            });
+        }
+
+        final List<Exception> errors = Collections.synchronizedList(new ArrayList<Exception>());
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int p = 0; p < publishers; p++) {
+            final EventKey key = new StringEventKey("KEY" + p);
+            Thread thread = new Thread(new Runnable() {
+                public void run() {
+                    try {
+                        for (int i = 0; i < eventsPerPublisher; i++) {
+                            manager.consume(key, i);
+                        }
+                    } catch (Exception e) {
+                        errors.add(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue("Exceptions caught while publishing: " + errors, errors.isEmpty());
+        assertTrue("Not all events were dispatched", latch.await(10, TimeUnit.SECONDS));
+
+        for (List<Integer> values : received) {
+            assertEquals(eventsPerPublisher, values.size());
+            for (int i = 0; i < eventsPerPublisher; i++) {
+                assertEquals(Integer.valueOf(i), values.get(i));
+            }
+        }
+    }
+
+    /**
+     * Utility class used for testing, counting its releases
+     */
+    private static class CountedEvent implements ReferenceCounted {
+
+        private final AtomicInteger released;
+
+        CountedEvent(AtomicInteger released) {
+            this.released = released;
+        }
+
+        public void retain() {
+        }
+
+        public void release() {
+            released.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.proto.core.event;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link Sender} class
+ *
+ * @author wfrancis
+ */
+public class SenderTest {
+
+    private final EventKey key = new StringEventKey("A");
+
+    @Test
+    public void testStaysBounded() throws Exception {
+        final CountDownLatch stalled = new CountDownLatch(1);
+        Sender<Object> sender = new Sender<Object>(new IdentityTranslator(), 8, BoundedEventQueue.OverflowPolicy.DROP_NEWEST) {
+            @Override
+            public void nativeConsume(String key, Object o) throws Exception {
+                stalled.await();
+            }
+        };
+        sender.start();
+
+        for (int i = 0; i < 1000; i++) {
+            sender.consume(key, i);
+        }
+        assertTrue(sender.getQueueDepth() <= 8);
+        // the sender thread holds at most one drained batch while stalled
+        assertTrue(sender.getDroppedCount() >= 1000 - 2 * 8);
+        assertThat(sender.getQueuedCount() + sender.getDroppedCount(), is(1000L));
+        stalled.countDown();
+        sender.stop();
+    }
+
+    @Test
+    public void testBatchesWithLinger() throws Exception {
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<Object> sent = Collections.synchronizedList(new ArrayList<Object>());
+        final CountDownLatch latch = new CountDownLatch(25);
+        Sender<Object> sender = new Sender<Object>(new IdentityTranslator(), 64, BoundedEventQueue.OverflowPolicy.BLOCK,
+                10, 200, TimeUnit.MILLISECONDS) {
+            @Override
+            protected void nativeConsumeBatch(List<String> keys, List<Object> values) throws Exception {
+                batchSizes.add(values.size());
+                super.nativeConsumeBatch(keys, values);
+            }
+
+            @Override
+            public void nativeConsume(String key, Object o) throws Exception {
+                assertThat(key, is("A"));
+                sent.add(o);
+                latch.countDown();
+            }
+        };
+        sender.start();
+
+        // trickled events fill whole batches while lingering, the remainder goes when the linger time elapses
+        for (int i = 0; i < 25; i++) {
+            sender.consume(key, i);
+            Thread.sleep(1);
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        // the sender thread counts a batch once it is sent
+        long deadline = System.currentTimeMillis() + 1000;
+        while (sender.getSentCount() < 25 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        sender.stop();
+
+        assertThat(batchSizes.get(0), is(10));
+        assertThat(batchSizes.get(1), is(10));
+        assertThat(batchSizes.get(2), is(5));
+        for (int i = 0; i < 25; i++) {
+            assertThat(sent.get(i), is((Object) i));
+        }
+        assertThat(sender.getSentCount(), is(25L));
+    }
+
+    @Test
+    public void testStopWithLingerSendsNoEmptyBatch() throws Exception {
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+        Sender<Object> sender = new Sender<Object>(new IdentityTranslator(), 64, BoundedEventQueue.OverflowPolicy.BLOCK,
+                10, 50, TimeUnit.MILLISECONDS) {
+            @Override
+            protected void nativeConsumeBatch(List<String> keys, List<Object> values) throws Exception {
+                batchSizes.add(values.size());
+            }
+
+            @Override
+            public void nativeConsume(String key, Object o) throws Exception {
+            }
+        };
+        sender.start();
+
+        // wait for the sender thread to send a first batch and block on the empty queue
+        sender.consume(key, 0);
+        long deadline = System.currentTimeMillis() + 1000;
+        while (sender.getSentCount() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(10);
+        sender.stop();
+
+        // the sender thread returns once the queue is closed, without lingering nor sending an empty batch
+        Thread.sleep(200);
+        assertThat(batchSizes, is(Collections.singletonList(1)));
+    }
+
+    @Test
+    public void testStopReleasesBlockedProducer() throws Exception {
+        final CountDownLatch stalled = new CountDownLatch(1);
+        final Sender<Object> sender = new Sender<Object>(new IdentityTranslator(), 4, BoundedEventQueue.OverflowPolicy.BLOCK) {
+            @Override
+            public void nativeConsume(String key, Object o) throws Exception {
+                stalled.await();
+            }
+        };
+        sender.start();
+
+        Thread producer = new Thread(new Runnable() {
+            public void run() {
+                for (int i = 0; i < 100; i++) {
+                    sender.consume(key, i);
+                }
+            }
+        });
+        producer.start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sender.getBlockedCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(sender.getBlockedCount() > 0);
+
+        sender.stop();
+        producer.join(5000);
+        assertFalse(producer.isAlive());
+        stalled.countDown();
+
+        sender.consume(key, 100);
+        assertThat(sender.getQueueDepth(), is(0));
+        // only the batch held by the stalled sender thread escapes, the rest is dropped on close or once closed
+        assertTrue(sender.getDroppedCount() >= 101 - 4);
+    }
+
+    @Test
+    public void testDropsOnceSenderThreadFailed() throws Exception {
+        Sender<Object> sender = new Sender<Object>(new IdentityTranslator() {
+            @Override
+            public Object translate(Object o) {
+                throw new IllegalStateException("Cannot translate " + o);
+            }
+        }, 4, BoundedEventQueue.OverflowPolicy.BLOCK) {
+            @Override
+            public void nativeConsume(String key, Object o) throws Exception {
+            }
+        };
+        sender.start();
+
+        sender.consume(key, 0);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sender.getDroppedCount() == 0 && System.currentTimeMillis() < deadline) {
+            sender.consume(key, 1);
+            Thread.sleep(1);
+        }
+
+        // the queue is closed, a full queue would otherwise block this thread
+        for (int i = 0; i < 100; i++) {
+            sender.consume(key, i);
+        }
+        assertThat(sender.getQueueDepth(), is(0));
+        assertThat(sender.getSentCount(), is(0L));
+        sender.stop();
+    }
+
+    /**
+     * Utility class used for testing
+     */
+    static class IdentityTranslator implements Translator<Object> {
+        public Object translate(Object o) {
+            return o;
+        }
+
+        public String translateEventKey(EventKey eventKey) {
+            return eventKey.toString();
+        }
+
+        public Object untranslate(Object o) {
+            return o;
+        }
+
+        public EventKey untranslateEventKey(String key) {
+            return new StringEventKey(key);
+        }
+
+        public int getVersion() {
+            return 1;
+        }
+
+        public int getTranslationLifetime() {
+            return Integer.MAX_VALUE;
+        }
+
+        public boolean isUntranslatingViews() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.proto.core.event;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the {@link ShardedChannelManager} class
+ *
+ * @author wfrancis
+ */
+public class ShardedChannelManagerTest {
+
+    private ShardedChannelManager manager;
+
+    @After
+    public void tearDown() throws Exception {
+        if(manager != null) {
+            manager.stop();
+        }
+    }
+
+    @Test
+    public void testRegularRegistration() throws Exception {
+        manager = new ShardedChannelManager(new SimpleEventChannel(), 4);
+        Listener listener1 = mock(Listener.class);
+        manager.registerListener(new StringEventKey("1"), listener1);
+        Listener listener2 = mock(Listener.class);
+        manager.registerListener(new StringEventKey("2"), listener2);
+
+        Object event = new Object();
+        EventKey key = new StringEventKey("2");
+        manager.consume(key, event);
+
+        Thread.sleep(100);
+
+        verify(listener1, times(0)).consume(key, event);
+        verify(listener2, times(1)).consume(key, event);
+    }
+
+    @Test
+    public void testWildcardRegistrationSpansShards() throws Exception {
+        manager = new ShardedChannelManager(new SimpleEventChannel(), 4);
+
+        List<EventKey> keys = new ArrayList<EventKey>();
+        boolean[] shardsUsed = new boolean[manager.getShardCount()];
+        for(int i = 0; i < 32; i++) {
+            EventKey key = new StringEventKey("FX." + i);
+            keys.add(key);
+            shardsUsed[manager.shardIndex(key.toString())] = true;
+        }
+        for(boolean used : shardsUsed) {
+            assertTrue("Keys do not span every shard", used);
+        }
+
+        // a channel created before the wildcard registration
+        manager.consume(keys.get(0), new Object());
+
+        Listener listener = mock(Listener.class);
+        manager.registerListener(new StringEventKey("FX.>"), listener);
+
+        Object event = new Object();
+        for(EventKey key : keys) {
+            manager.consume(key, event);
+        }
+        manager.consume(new StringEventKey("EQ.1"), event);
+
+        Thread.sleep(100);
+
+        for(EventKey key : keys) {
+            verify(listener, times(1)).consume(key, event);
+        }
+        verifyNoMoreInteractions(listener);
+    }
+
+    @Test
+    public void testPerKeyOrdering() throws Exception {
+        final int keyCount = 16;
+        final int eventsPerKey = 5000;
+
+        manager = new ShardedChannelManager(new SimpleEventChannel(), 4);
+
+        final List<List<Integer>> received = new ArrayList<List<Integer>>();
+        final CountDownLatch latch = new CountDownLatch(keyCount * eventsPerKey);
+
+        for(int k = 0; k < keyCount; k++) {
+            final List<Integer> values = Collections.synchronizedList(new ArrayList<Integer>());
+            received.add(values);
+            manager.registerListener(new StringEventKey("KEY" + k), new Listener() {
+                public void consume(EventKey eventKey, Object event) throws Exception {
+                    values.add((Integer) event);
+                    latch.countDown();
+                }
+            });
+        }
+
+        for(int i = 0; i < eventsPerKey; i++) {
+            for(int k = 0; k < keyCount; k++) {
+                manager.consume(new StringEventKey("KEY" + k), i);
+            }
+        }
+
+        assertTrue("Not all events were dispatched", latch.await(10, TimeUnit.SECONDS));
+
+        for(List<Integer> values : received) {
+            assertEquals(eventsPerKey, values.size());
+            for(int i = 0; i < eventsPerKey; i++) {
+                assertEquals(Integer.valueOf(i), values.get(i));
+            }
+        }
+    }
+}
@@ -1,7 +1,16 @@
 package com.proto.core.event;
 
+import com.proto.core.monitoring.MBeans;
 import org.junit.Test;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -86,4 +95,112 @@ public class SimpleChannelManagerTest {
         verify(listener2, times(1)).consume(key1, event1);
         verifyNoMoreInteractions(listener1, listener2);
     }
+
+    @Test
+    public void testBatchDelivery() throws Exception {
+        SimpleChannelManager manager = new SimpleChannelManager(new SimpleEventChannel());
+
+        EventKey key1 = new StringEventKey("1");
+        EventKey key2 = new StringEventKey("2");
+
+        BatchListener batchListener = mock(BatchListener.class);
+        manager.registerListener(key1, batchListener);
+        Listener listener = mock(Listener.class);
+        manager.registerListener(key1, listener);
+        manager.registerListener(key2, listener);
+
+        Object event1 = new Object();
+        Object event2 = new Object();
+        Object event3 = new Object();
+        Object event4 = new Object();
+        EventKey[] keys = {key1, key1, key2, key1};
+        Object[] events = {event1, event2, event3, event4};
+        manager.consumeBatch(keys, events, 0, 4);
+
+        // the manager copies the batch
+        keys[0] = null;
+        events[0] = null;
+
+        Thread.sleep(100);
+
+        verify(batchListener, times(1)).consumeBatch(any(EventKey[].class), any(Object[].class), eq(0), eq(2));
+        verify(batchListener, times(1)).consumeBatch(any(EventKey[].class), any(Object[].class), eq(3), eq(1));
+        verify(listener, times(1)).consume(key1, event1);
+        verify(listener, times(1)).consume(key1, event2);
+        verify(listener, times(1)).consume(key2, event3);
+        verify(listener, times(1)).consume(key1, event4);
+        manager.stop();
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        SimpleChannelManager manager = new SimpleChannelManager(new CountingEventChannel());
+
+        Listener listener = mock(Listener.class);
+        manager.registerListener(new StringEventKey("FX.>"), listener);
+        manager.registerListener(new StringEventKey("EQ.IBM"), listener);
+
+        EventKey eurusd = new StringEventKey("FX.EURUSD");
+        manager.consume(eurusd, new Object());
+        manager.consume(new StringEventKey("FX.USDJPY"), new Object());
+        manager.consume(new StringEventKey("EQ.IBM"), new Object());
+        manager.consume(eurusd, new SubscriptionControlEvent(eurusd, listener));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (manager.getDispatchedCount() < 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(manager.getChannelCount(), is(3));
+        assertThat(manager.getListenerCount(), is(3));
+        assertThat(manager.getQueueDepth(), is(0));
+        assertThat(manager.getPublishedCount(), is(4L));
+        assertThat(manager.getDispatchedCount(), is(4L));
+        assertThat(manager.getSubscriptionCounts(), is(Collections.singletonMap("FX.EURUSD", 1)));
+        assertThat(manager.getEventCounts().get("FX"), is(3L));
+        assertThat(manager.getEventCounts().get("EQ"), is(1L));
+
+        ObjectName name = MBeans.register("ChannelManager", "test", manager);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertThat((Long) server.getAttribute(name, "PublishedCount"), is(4L));
+        assertThat((Integer) server.getAttribute(name, "ChannelCount"), is(3));
+        MBeans.unregister("ChannelManager", "test");
+        assertFalse(server.isRegistered(name));
+
+        manager.stop();
+        try {
+            manager.consume(eurusd, new Object());
+            fail();
+        } catch (RejectedExecutionException expected) {
+            assertThat(manager.getRejectedCount(), is(1L));
+        }
+    }
+
+    @Test
+    public void testMetricsDoNotWaitForBacklog() throws Exception {
+        SimpleChannelManager manager = new SimpleChannelManager(new CountingEventChannel());
+        final CountDownLatch dispatching = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        EventKey eurusd = new StringEventKey("FX.EURUSD");
+        manager.registerListener(eurusd, new Listener() {
+            public void consume(EventKey eventKey, Object event) throws Exception {
+                dispatching.countDown();
+                release.await();
+            }
+        });
+        manager.consume(eurusd, new Object());
+        assertTrue(dispatching.await(5, TimeUnit.SECONDS));
+        manager.consume(eurusd, new Object());
+
+        // the dispatch thread is blocked with a backlog, the gauges still answer at once
+        long start = System.currentTimeMillis();
+        assertThat(manager.getChannelCount(), is(1));
+        assertThat(manager.getListenerCount(), is(1));
+        assertThat(manager.getQueueDepth(), is(1));
+        assertTrue(manager.getSubscriptionCounts().isEmpty());
+        assertTrue(System.currentTimeMillis() - start < 500);
+
+        release.countDown();
+        manager.stop();
+    }
 }
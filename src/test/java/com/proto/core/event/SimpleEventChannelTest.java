@@ -0,0 +1,139 @@
+package com.proto.core.event;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the {@link SimpleEventChannel} class
+ *
+ * @author wfrancis
+ */
+public class SimpleEventChannelTest {
+
+    private final EventKey key = new StringEventKey("FX.EURUSD");
+
+    @Test
+    public void testDuplicateRegistration() throws Exception {
+        SimpleEventChannel channel = new SimpleEventChannel();
+        Listener listener = mock(Listener.class);
+
+        assertSame(ReturnValue.OK, channel.registerListener(listener));
+        assertSame(ReturnValue.IGNORED, channel.registerListener(listener));
+        assertThat(channel.getListenerCount(), is(1));
+
+        Object event = new Object();
+        channel.consume(key, event);
+        verify(listener, times(1)).consume(key, event);
+
+        assertSame(ReturnValue.OK, channel.unregisterListener(listener));
+        assertSame(ReturnValue.IGNORED, channel.unregisterListener(listener));
+        assertThat(channel.getListenerCount(), is(0));
+    }
+
+    @Test
+    public void testRegistrationDuringDelivery() throws Exception {
+        final SimpleEventChannel channel = new SimpleEventChannel();
+        final Listener late = mock(Listener.class);
+
+        channel.registerListener(new Listener() {
+            public void consume(EventKey eventKey, Object event) throws Exception {
+                channel.registerListener(late);
+            }
+        });
+
+        Object first = new Object();
+        channel.consume(key, first);
+        // the delivery in progress keeps its snapshot of the listeners
+        verify(late, never()).consume(key, first);
+
+        Object second = new Object();
+        channel.consume(key, second);
+        verify(late, times(1)).consume(key, second);
+        assertThat(channel.getListenerCount(), is(2));
+    }
+
+    @Test
+    public void testUnregistrationDuringDelivery() throws Exception {
+        final SimpleEventChannel channel = new SimpleEventChannel();
+        final Listener next = mock(Listener.class);
+
+        Listener self = new Listener() {
+            public void consume(EventKey eventKey, Object event) throws Exception {
+                channel.unregisterListener(this);
+                channel.unregisterListener(next);
+            }
+        };
+        channel.registerListener(self);
+        channel.registerListener(next);
+
+        Object first = new Object();
+        channel.consume(key, first);
+        // the delivery in progress keeps its snapshot of the listeners
+        verify(next, times(1)).consume(key, first);
+        assertThat(channel.getListenerCount(), is(0));
+
+        channel.consume(key, new Object());
+        verifyNoMoreInteractions(next);
+    }
+
+    @Test
+    public void testConcurrentRegistrationDuringDelivery() throws Exception {
+        final SimpleEventChannel channel = new SimpleEventChannel();
+        final int registrations = 1000;
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final List<Exception> errors = Collections.synchronizedList(new ArrayList<Exception>());
+
+        Thread publisher = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    while (running.get()) {
+                        channel.consume(key, new Object());
+                    }
+                } catch (Exception e) {
+                    errors.add(e);
+                }
+            }
+        });
+        publisher.start();
+
+        final CountDownLatch done = new CountDownLatch(2);
+        final List<Listener> listeners = new ArrayList<Listener>();
+        for (int i = 0; i < registrations; i++) {
+            listeners.add(new Listener() {
+                public void consume(EventKey eventKey, Object event) throws Exception {
+                }
+            });
+        }
+        for (int t = 0; t < 2; t++) {
+            final int offset = t;
+            new Thread(new Runnable() {
+                public void run() {
+                    for (int i = offset; i < registrations; i += 2) {
+                        channel.registerListener(listeners.get(i));
+                    }
+                    for (int i = offset; i < registrations; i += 4) {
+                        channel.unregisterListener(listeners.get(i));
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        running.set(false);
+        publisher.join();
+
+        assertTrue("Exceptions caught while publishing: " + errors, errors.isEmpty());
+        assertThat(channel.getListenerCount(), is(registrations / 2));
+    }
+}
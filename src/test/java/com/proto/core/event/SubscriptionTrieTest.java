@@ -0,0 +1,130 @@
+package com.proto.core.event;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the {@link SubscriptionTrie} class
+ *
+ * @author wfrancis
+ */
+public class SubscriptionTrieTest {
+
+    @Test
+    public void testIsPattern() {
+        assertFalse(SubscriptionTrie.isPattern("FX.EURUSD"));
+        assertFalse(SubscriptionTrie.isPattern("FX.EUR*USD"));
+        assertTrue(SubscriptionTrie.isPattern("FX.>"));
+        assertTrue(SubscriptionTrie.isPattern("2>"));
+        assertTrue(SubscriptionTrie.isPattern("FX.*.EURUSD"));
+        assertTrue(SubscriptionTrie.isPattern("*"));
+        assertTrue(SubscriptionTrie.isPattern("FX.*"));
+    }
+
+    @Test
+    public void testSplit() {
+        assertThat(SubscriptionTrie.split("FX.SPOT.EURUSD"), is(Arrays.asList("FX", "SPOT", "EURUSD")));
+        assertThat(SubscriptionTrie.split("FX.EU>RANDOM.STRING"), is(Arrays.asList("FX", "EU>")));
+        assertThat(SubscriptionTrie.split("FX."), is(Arrays.asList("FX", "")));
+    }
+
+    @Test
+    public void testCollectMatches() {
+        SubscriptionTrie<String> trie = new SubscriptionTrie<String>();
+        trie.add("FX.SPOT.EURUSD", "exact");
+        trie.add("FX.>", "fx");
+        trie.add("FX.*.EURUSD", "anyEURUSD");
+        trie.add("FX.SPOT.EU>", "spotEU");
+        trie.add("2>", "legacy");
+        trie.add("FX.*", "fxOneLevel");
+
+        assertThat(matches(trie, "FX.SPOT.EURUSD"), is(set("exact", "fx", "anyEURUSD", "spotEU")));
+        assertThat(matches(trie, "FX.FWD.EURUSD"), is(set("fx", "anyEURUSD")));
+        assertThat(matches(trie, "FX.SPOT.USDJPY"), is(set("fx")));
+        assertThat(matches(trie, "FX.SPOT"), is(set("fx", "fxOneLevel")));
+        assertThat(matches(trie, "FX"), is(set()));
+        assertThat(matches(trie, "22"), is(set("legacy")));
+        assertThat(matches(trie, "2.X"), is(set("legacy")));
+        assertThat(matches(trie, "2"), is(set()));
+    }
+
+    @Test
+    public void testCollectMatching() {
+        SubscriptionTrie<String> trie = new SubscriptionTrie<String>();
+        for (String subject : Arrays.asList("FX.SPOT.EURUSD", "FX.FWD.EURUSD", "FX.SPOT.USDJPY", "FX.SPOT", "EQ.IBM", "22", "2.X")) {
+            trie.add(subject, subject);
+        }
+
+        assertThat(matching(trie, "FX.>"), is(set("FX.SPOT.EURUSD", "FX.FWD.EURUSD", "FX.SPOT.USDJPY", "FX.SPOT")));
+        assertThat(matching(trie, "FX.*.EURUSD"), is(set("FX.SPOT.EURUSD", "FX.FWD.EURUSD")));
+        assertThat(matching(trie, "FX.*"), is(set("FX.SPOT")));
+        assertThat(matching(trie, "FX.SPOT.EU>"), is(set("FX.SPOT.EURUSD")));
+        assertThat(matching(trie, "2>"), is(set("22", "2.X")));
+        assertThat(matching(trie, ">"), is(set("FX.SPOT.EURUSD", "FX.FWD.EURUSD", "FX.SPOT.USDJPY", "FX.SPOT", "EQ.IBM", "22", "2.X")));
+    }
+
+    @Test
+    public void testRemove() {
+        SubscriptionTrie<String> trie = new SubscriptionTrie<String>();
+        trie.add("FX.>", "a");
+        trie.add("FX.>", "b");
+        trie.add("FX.*.EURUSD", "c");
+
+        assertTrue(trie.remove("FX.>", "a"));
+        assertFalse(trie.remove("FX.>", "a"));
+        assertTrue(trie.remove("FX.*.EURUSD", "c"));
+        assertFalse(trie.remove("EQ.>", "b"));
+
+        assertThat(matches(trie, "FX.SPOT.EURUSD"), is(set("b")));
+    }
+
+    @Test
+    public void testSegmentWildcardRegistration() throws Exception {
+        SimpleChannelManager manager = new SimpleChannelManager(new SimpleEventChannel());
+
+        EventKey spot = new StringEventKey("FX.SPOT.EURUSD");
+        EventKey forward = new StringEventKey("FX.FWD.EURUSD");
+        EventKey other = new StringEventKey("FX.SPOT.USDJPY");
+        Object event = new Object();
+
+        // channel created before the registration
+        manager.consume(spot, event);
+
+        Listener listener = mock(Listener.class);
+        manager.registerListener(new StringEventKey("FX.*.EURUSD"), listener);
+
+        manager.consume(spot, event);
+        manager.consume(forward, event);
+        manager.consume(other, event);
+
+        Thread.sleep(100);
+
+        verify(listener, times(1)).consume(spot, event);
+        verify(listener, times(1)).consume(forward, event);
+        verifyNoMoreInteractions(listener);
+        manager.stop();
+    }
+
+    private static Set<String> matches(SubscriptionTrie<String> trie, String subject) {
+        Set<String> result = new HashSet<String>();
+        trie.collectMatches(subject, result);
+        return result;
+    }
+
+    private static Set<String> matching(SubscriptionTrie<String> trie, String pattern) {
+        Set<String> result = new HashSet<String>();
+        trie.collectMatching(pattern, result);
+        return result;
+    }
+
+    private static Set<String> set(String... values) {
+        return new HashSet<String>(Arrays.asList(values));
+    }
+}
@@ -0,0 +1,142 @@
+package com.proto.core.event;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests for the {@link TimingWheelEventQueue} class
+ *
+ * @author wfrancis
+ */
+public class TimingWheelEventQueueTest {
+
+    private final long base = 1500000000000L;
+
+    private final EventKey key = mock(EventKey.class);
+
+    @Test
+    public void testReleasesInTimeOrder() {
+        TimingWheelEventQueue queue = new TimingWheelEventQueue();
+        TestEvent late = new TestEvent(base + 5000);
+        TestEvent early = new TestEvent(base + 10);
+        TestEvent sameTime1 = new TestEvent(base + 100);
+        TestEvent sameTime2 = new TestEvent(base + 100);
+
+        queue.put(key, late);
+        queue.put(key, sameTime1);
+        queue.put(key, early);
+        queue.put(key, sameTime2);
+
+        assertThat(queue.size(), is(4));
+        assertThat(queue.nextEventTime(), is(base + 10));
+        assertNull(queue.poll(base + 9));
+
+        assertSame(early, queue.poll(base + 10).getEvent());
+        assertNull(queue.poll(base + 99));
+        assertSame(sameTime1, queue.poll(base + 100).getEvent());
+        assertSame(sameTime2, queue.poll(base + 100).getEvent());
+        assertThat(queue.nextEventTime(), is(base + 5000));
+
+        // clock jumping far ahead
+        assertSame(late, queue.poll(base + 86400000L).getEvent());
+        assertNull(queue.poll(base + 86400000L));
+        assertThat(queue.size(), is(0));
+        assertThat(queue.nextEventTime(), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testLateEventsReleasedImmediately() {
+        TimingWheelEventQueue queue = new TimingWheelEventQueue();
+        TestEvent due = new TestEvent(base + 20);
+        queue.put(key, due);
+        assertNull(queue.poll(base + 10));
+
+        TestEvent late = new TestEvent(base + 5);
+        queue.put(key, late);
+
+        assertThat(queue.nextEventTime(), is(base + 5));
+        assertSame(late, queue.poll(base + 10).getEvent());
+        assertNull(queue.poll(base + 10));
+        assertSame(due, queue.poll(base + 20).getEvent());
+    }
+
+    @Test
+    public void testMatchesPriorityQueue() {
+        Random random = new Random(42);
+        TimingWheelEventQueue wheel = new TimingWheelEventQueue();
+        PriorityTimedEventQueue heap = new PriorityTimedEventQueue();
+
+        long now = base;
+        for (int round = 0; round < 2000; round++) {
+            int puts = random.nextInt(20);
+            for (int i = 0; i < puts; i++) {
+                long offset;
+                switch (random.nextInt(4)) {
+                    case 0:  offset = random.nextInt(64); break;
+                    case 1:  offset = random.nextInt(10000); break;
+                    case 2:  offset = (long) random.nextInt(1 << 30); break;
+                    default: offset = -random.nextInt(1000); break;
+                }
+                TestEvent event = new TestEvent(now + offset);
+                wheel.put(key, event);
+                heap.put(key, event);
+            }
+
+            assertThat(wheel.nextEventTime(), is(heap.nextEventTime()));
+
+            now += random.nextInt(5) == 0 ? random.nextInt(1 << 20) : random.nextInt(200);
+            assertThat(drain(wheel, now), is(drain(heap, now)));
+            assertThat(wheel.size(), is(heap.size()));
+        }
+
+        assertThat(drain(wheel, Long.MAX_VALUE), is(drain(heap, Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testRecycledEntriesAreReused() {
+        TimingWheelEventQueue queue = new TimingWheelEventQueue();
+        queue.put(key, new TestEvent(base));
+
+        ScheduledEvent entry = queue.poll(base);
+        queue.recycle(entry);
+        assertNull(entry.getEvent());
+
+        TestEvent event = new TestEvent(base + 1);
+        queue.put(key, event);
+        ScheduledEvent reused = queue.poll(base + 1);
+        assertSame(entry, reused);
+        assertSame(event, reused.getEvent());
+        assertThat(reused.getTime(), is(base + 1));
+    }
+
+    private static List<TimedEvent> drain(TimedEventQueue queue, long now) {
+        List<TimedEvent> events = new ArrayList<TimedEvent>();
+        for (ScheduledEvent entry = queue.poll(now); entry != null; entry = queue.poll(now)) {
+            events.add(entry.getEvent());
+        }
+        return events;
+    }
+
+    /**
+     * Utility class used for testing
+     */
+    private static class TestEvent implements TimedEvent {
+        private final Date date;
+
+        TestEvent(long time) {
+            this.date = new Date(time);
+        }
+
+        public Date getTime() {
+            return date;
+        }
+    }
+}
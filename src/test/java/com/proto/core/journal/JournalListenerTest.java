@@ -0,0 +1,188 @@
+package com.proto.core.journal;
+
+import com.proto.core.data.FXQuote;
+import com.proto.core.data.FXQuotePool;
+import com.proto.core.event.EventKey;
+import com.proto.core.event.EventKeyRegistry;
+import com.proto.core.event.SimpleChannelManager;
+import com.proto.core.event.SimpleEventChannel;
+import com.proto.core.event.StringEventKey;
+import com.proto.core.event.TimedEvent;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link JournalListener} and {@link JournalReader} classes
+ *
+ * @author wfrancis
+ */
+public class JournalListenerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSegmentTooSmallForKeyRecord() throws Exception {
+        // room for the event record, not for the key record written before it in a new segment
+        new JournalListener(folder.getRoot(), "ticks", JournalFormat.SEGMENT_HEADER_LENGTH + JournalFormat.RECORD_HEADER_LENGTH
+                + JournalFormat.EVENT_HEADER_LENGTH + 512 + 4, Long.MAX_VALUE, 1024, 512, new FXQuoteCodec());
+    }
+
+    @Test
+    public void testLongSubjectSkipped() throws Exception {
+        JournalListener journal = new JournalListener(folder.getRoot(), "ticks", new SerializableCodec());
+        char[] subject = new char[JournalListener.MAX_SUBJECT_LENGTH + 1];
+        Arrays.fill(subject, 'X');
+        journal.consume(new StringEventKey(new String(subject)), new Tick(new Date(5000L), "long"));
+        journal.consume(new StringEventKey("FX.EURUSD"), new Tick(new Date(6000L), "short"));
+        journal.close();
+
+        assertThat(journal.getSkippedCount(), is(1L));
+        assertThat(journal.getWrittenCount(), is(1L));
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        File directory = folder.getRoot();
+        JournalListener journal = new JournalListener(directory, "ticks", 4096, Long.MAX_VALUE, 1024, 512,
+                new FXQuoteCodec(), new SerializableCodec());
+
+        FXQuotePool pool = new FXQuotePool(16);
+        EventKey eurusd = new StringEventKey("FX.EURUSD");
+        EventKey usdjpy = new StringEventKey("FX.USDJPY");
+        for (int i = 0; i < 500; i++) {
+            FXQuote quote = pool.acquire().set(i, 1.1 + i, 1.2 + i, i, 2 * i, 1000L + i);
+            journal.consume(i % 2 == 0 ? eurusd : usdjpy, quote);
+            quote.release();
+        }
+        journal.consume(eurusd, new Tick(new Date(5000L), "last"));
+        journal.consume(eurusd, "not a timed event");
+        journal.consume(eurusd, new NotSerializableTick());
+        journal.close();
+
+        assertThat(journal.getWrittenCount(), is(501L));
+        assertThat(journal.getSkippedCount(), is(1L));
+        assertThat(journal.getDroppedCount(), is(0L));
+        assertTrue(journal.getSegmentCount() > 1);
+
+        JournalReader reader = new JournalReader(directory, "ticks", new EventKeyRegistry(), new FXQuoteCodec(), new SerializableCodec());
+        assertThat(reader.getSegmentCount(), is((int) journal.getSegmentCount()));
+        for (int i = 0; i < 500; i++) {
+            assertTrue(reader.next());
+            FXQuote quote = (FXQuote) reader.getEvent();
+            assertThat(reader.getEventKey().toString(), is(i % 2 == 0 ? "FX.EURUSD" : "FX.USDJPY"));
+            assertThat(reader.getTimeNanos(), is(1000L + i));
+            assertThat(quote.getInstrumentId(), is(i));
+            assertThat(quote.getBid(), is(1.1 + i));
+            assertThat(quote.getAskSize(), is(2L * i));
+            quote.release();
+        }
+
+        assertTrue(reader.next());
+        assertThat(((Tick) reader.getEvent()).name, is("last"));
+        assertThat(reader.getTimeMillis(), is(5000L));
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void testNewJournalAppendsSegments() throws Exception {
+        File directory = folder.getRoot();
+        JournalListener journal = new JournalListener(directory, "ticks", new SerializableCodec());
+        journal.consume(new StringEventKey("A"), new Tick(new Date(1L), "first"));
+        journal.close();
+
+        journal = new JournalListener(directory, "ticks", new SerializableCodec());
+        journal.consume(new StringEventKey("B"), new Tick(new Date(2L), "second"));
+        journal.close();
+
+        JournalReader reader = new JournalReader(directory, "ticks", new EventKeyRegistry(), new SerializableCodec());
+        assertTrue(reader.next());
+        assertThat(((Tick) reader.getEvent()).name, is("first"));
+        assertTrue(reader.next());
+        assertThat(((Tick) reader.getEvent()).name, is("second"));
+        assertThat(reader.getEventKey().toString(), is("B"));
+        assertFalse(reader.next());
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptRecordType() throws Exception {
+        File directory = folder.getRoot();
+        JournalListener journal = new JournalListener(directory, "ticks", new SerializableCodec());
+        journal.consume(new StringEventKey("A"), new Tick(new Date(1L), "first"));
+        journal.close();
+
+        // the type of the event record, following the key record
+        RandomAccessFile raf = new RandomAccessFile(JournalFormat.listSegments(directory, "ticks")[0], "rw");
+        try {
+            raf.seek(JournalFormat.SEGMENT_HEADER_LENGTH);
+            int keyRecordLength = Integer.reverseBytes(raf.readInt());
+            raf.seek(JournalFormat.SEGMENT_HEADER_LENGTH + keyRecordLength + 4);
+            raf.writeByte(0xF0);
+        } finally {
+            raf.close();
+        }
+
+        new JournalReader(directory, "ticks", new EventKeyRegistry(), new SerializableCodec()).next();
+    }
+
+    @Test
+    public void testJournalChannelManager() throws Exception {
+        File directory = folder.getRoot();
+        JournalListener journal = new JournalListener(directory, "manager", new SerializableCodec());
+        SimpleChannelManager manager = new SimpleChannelManager(new SimpleEventChannel());
+        manager.registerListener(new StringEventKey(EventKey.wildChar), journal);
+
+        manager.consume(new StringEventKey("FX.EURUSD"), new Tick(new Date(1L), "a"));
+        manager.consume(new StringEventKey("EQ.IBM"), new Tick(new Date(2L), "b"));
+
+        Thread.sleep(100);
+        manager.stop();
+        journal.close();
+
+        JournalReader reader = new JournalReader(directory, "manager", new EventKeyRegistry(), new SerializableCodec());
+        assertTrue(reader.next());
+        assertThat(reader.getEventKey().toString(), is("FX.EURUSD"));
+        assertTrue(reader.next());
+        assertThat(reader.getEventKey().toString(), is("EQ.IBM"));
+        assertFalse(reader.next());
+    }
+
+    /**
+     * Utility class used for testing
+     */
+    static class Tick implements TimedEvent, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final Date date;
+        private final String name;
+
+        Tick(Date date, String name) {
+            this.date = date;
+            this.name = name;
+        }
+
+        public Date getTime() {
+            return date;
+        }
+    }
+
+    /**
+     * Utility class used for testing
+     */
+    static class NotSerializableTick implements TimedEvent {
+        public Date getTime() {
+            return new Date(0L);
+        }
+    }
+}
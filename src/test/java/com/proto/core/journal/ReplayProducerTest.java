@@ -0,0 +1,237 @@
+package com.proto.core.journal;
+
+import com.proto.core.data.FXQuote;
+import com.proto.core.data.FXQuotePool;
+import com.proto.core.event.BufferedProducer;
+import com.proto.core.event.EventKey;
+import com.proto.core.event.EventKeyRegistry;
+import com.proto.core.event.Listener;
+import com.proto.core.event.SimpleChannelManager;
+import com.proto.core.event.SimpleEventChannel;
+import com.proto.core.event.StringEventKey;
+import com.proto.core.event.TimedEvent;
+import com.proto.core.event.TimingWheelEventQueue;
+import com.proto.utils.SettableClock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link ReplayProducer} class
+ *
+ * @author wfrancis
+ */
+public class ReplayProducerTest {
+
+    private static final long BASE = 1500000000000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setUp() throws Exception {
+        JournalListener journal = new JournalListener(folder.getRoot(), "day", new SerializableCodec());
+        EventKey key = new StringEventKey("FX.EURUSD");
+        for (int i = 0; i < 60; i++) {
+            // one event per minute, an hour of recorded time
+            journal.consume(key, new Tick(new Date(BASE + TimeUnit.MINUTES.toMillis(i)), i));
+        }
+        journal.close();
+    }
+
+    @Test
+    public void testMaxSpeedThroughBufferedProducer() throws Exception {
+        SettableClock clock = new SettableClock();
+        BufferedProducer buffered = new BufferedProducer(clock);
+        final List<Integer> received = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch latch = new CountDownLatch(60);
+        buffered.setListener(new Listener() {
+            public void consume(EventKey eventKey, Object event) throws Exception {
+                received.add(((Tick) event).index);
+                latch.countDown();
+            }
+        });
+        buffered.start();
+
+        ReplayProducer replay = new ReplayProducer(reader(), ReplayProducer.MAX_SPEED, clock);
+        replay.setListener(buffered);
+        replay.start();
+
+        assertTrue(replay.awaitCompletion(5, TimeUnit.SECONDS));
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        buffered.stop();
+        replay.stop();
+
+        assertThat(replay.getReplayedCount(), is(60L));
+        assertThat(clock.currentTimeMillis(), is(BASE + TimeUnit.MINUTES.toMillis(59)));
+        for (int i = 0; i < 60; i++) {
+            assertThat(received.get(i), is(i));
+        }
+    }
+
+    @Test
+    public void testPacedReplay() throws Exception {
+        SettableClock clock = new SettableClock();
+        final List<Long> times = Collections.synchronizedList(new ArrayList<Long>());
+
+        // an hour replayed 36000 times faster takes 100 ms
+        ReplayProducer replay = new ReplayProducer(reader(), 36000, clock);
+        replay.setListener(new Listener() {
+            public void consume(EventKey eventKey, Object event) throws Exception {
+                times.add(System.nanoTime());
+            }
+        });
+
+        replay.start();
+        assertTrue(replay.awaitCompletion(5, TimeUnit.SECONDS));
+        replay.stop();
+
+        assertThat(times.size(), is(60));
+        long elapsed = times.get(59) - times.get(0);
+        assertTrue("Replayed in " + elapsed + " ns", elapsed >= TimeUnit.MILLISECONDS.toNanos(95));
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        ReplayProducer replay = new ReplayProducer(reader(), 1, new SettableClock());
+        final CountDownLatch first = new CountDownLatch(1);
+        replay.setListener(new Listener() {
+            public void consume(EventKey eventKey, Object event) throws Exception {
+                first.countDown();
+            }
+        });
+
+        replay.start();
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+        replay.stop();
+
+        assertTrue(replay.awaitCompletion(5, TimeUnit.SECONDS));
+        assertThat(replay.getReplayedCount(), is(1L));
+    }
+
+    @Test
+    public void testQuotesThroughChannelManager() throws Exception {
+        final int count = 1000;
+        JournalListener journal = new JournalListener(folder.getRoot(), "quotes", new FXQuoteCodec());
+        FXQuotePool recorded = new FXQuotePool(1);
+        EventKey key = new StringEventKey("FX.EURUSD");
+        for (int i = 0; i < count; i++) {
+            FXQuote quote = recorded.acquire().set(i, 1.1, 1.2, 1, 1, TimeUnit.MILLISECONDS.toNanos(BASE + i));
+            journal.consume(key, quote);
+            quote.release();
+        }
+        journal.close();
+
+        SettableClock clock = new SettableClock();
+        BufferedProducer buffered = new BufferedProducer(clock);
+        SimpleChannelManager manager = new SimpleChannelManager(new SimpleEventChannel());
+        buffered.setListener(manager);
+        final List<Integer> received = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch latch = new CountDownLatch(count);
+        manager.registerListener(key, new Listener() {
+            public void consume(EventKey eventKey, Object event) throws Exception {
+                received.add(((FXQuote) event).getInstrumentId());
+                latch.countDown();
+            }
+        });
+        buffered.start();
+
+        // far fewer pooled quotes than replayed
+        FXQuotePool pool = new FXQuotePool(16);
+        ReplayProducer replay = new ReplayProducer(
+                new JournalReader(folder.getRoot(), "quotes", new EventKeyRegistry(), new FXQuoteCodec(pool)),
+                ReplayProducer.MAX_SPEED, clock);
+        replay.setListener(buffered);
+        replay.start();
+
+        assertTrue(replay.awaitCompletion(5, TimeUnit.SECONDS));
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        buffered.stop();
+        replay.stop();
+        manager.stop();
+
+        assertThat(replay.getReplayedCount(), is((long) count));
+        for (int i = 0; i < count; i++) {
+            assertThat(received.get(i), is(i));
+        }
+        Thread.sleep(100);
+        assertThat(pool.getAvailable(), is(16));
+    }
+
+    @Test
+    public void testDiscreteBufferedProducerOwnsClock() throws Exception {
+        SettableClock clock = new SettableClock();
+        clock.setTime(BASE);
+        BufferedProducer buffered = new BufferedProducer(clock, new TimingWheelEventQueue(), 16);
+        final SettableClock listenerClock = clock;
+        final List<Long> mismatched = Collections.synchronizedList(new ArrayList<Long>());
+        final CountDownLatch latch = new CountDownLatch(60);
+        buffered.setListener(new Listener() {
+            public void consume(EventKey eventKey, Object event) throws Exception {
+                long time = ((Tick) event).getTime().getTime();
+                if (listenerClock.currentTimeMillis() != time) {
+                    mismatched.add(time);
+                }
+                latch.countDown();
+            }
+        });
+        buffered.start();
+
+        try {
+            new ReplayProducer(reader(), ReplayProducer.MAX_SPEED, clock).setListener(buffered);
+            fail("A clock setting replay was accepted by a discrete BufferedProducer");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        ReplayProducer replay = new ReplayProducer(reader(), ReplayProducer.MAX_SPEED);
+        replay.setListener(buffered);
+        replay.start();
+
+        assertTrue(replay.awaitCompletion(5, TimeUnit.SECONDS));
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        buffered.stop();
+        replay.stop();
+
+        assertTrue("Clock not at the event time for " + mismatched, mismatched.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBadSpeed() throws Exception {
+        new ReplayProducer(reader(), 0, new SettableClock());
+    }
+
+    private JournalReader reader() {
+        return new JournalReader(folder.getRoot(), "day", new EventKeyRegistry(), new SerializableCodec());
+    }
+
+    /**
+     * Utility class used for testing
+     */
+    static class Tick implements TimedEvent, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final Date date;
+        private final int index;
+
+        Tick(Date date, int index) {
+            this.date = date;
+            this.index = index;
+        }
+
+        public Date getTime() {
+            return date;
+        }
+    }
+}
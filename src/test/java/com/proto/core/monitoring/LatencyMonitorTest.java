@@ -0,0 +1,112 @@
+package com.proto.core.monitoring;
+
+import com.proto.core.data.FXQuote;
+import com.proto.core.data.FXQuotePool;
+import com.proto.core.event.EventKey;
+import com.proto.core.event.Listener;
+import com.proto.core.event.SimpleChannelManager;
+import com.proto.core.event.SimpleEventChannel;
+import com.proto.core.event.StringEventKey;
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link LatencyMonitor} and {@link LatencyHistogram} classes
+ *
+ * @author wfrancis
+ */
+public class LatencyMonitorTest {
+
+    @Test
+    public void testBuckets() {
+        long previous = -1;
+        for (int bucket = 0; bucket < LatencyHistogram.BUCKETS; bucket++) {
+            long upper = LatencyHistogram.upperBound(bucket);
+            assertTrue(upper > previous);
+            assertThat(LatencyHistogram.bucket(upper), is(bucket));
+            assertThat(LatencyHistogram.bucket(previous + 1), is(bucket));
+            previous = upper;
+        }
+        assertThat(previous, is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(7);
+        for (int i = 1; i <= 100000; i++) {
+            histogram.record(i * 1000L);
+        }
+        histogram.record(-5);
+        for (int i = 0; i < 1000; i++) {
+            histogram.record(random.nextInt(1000));
+        }
+
+        LatencySnapshot snapshot = histogram.getSnapshot();
+        assertThat(snapshot.getCount(), is(101001L));
+        assertThat(snapshot.getMax(), is(100000000L));
+        assertWithin(snapshot.getP50(), 50000000L);
+        assertWithin(snapshot.getP99(), 99990000L);
+        assertWithin(snapshot.getP999(), 100000000L);
+
+        histogram.reset();
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getValueAtPercentile(99), is(0L));
+    }
+
+    @Test
+    public void testPrefix() {
+        assertThat(new LatencyMonitor().getPrefix(new StringEventKey("FX.EURUSD")), is("FX"));
+        assertThat(new LatencyMonitor().getPrefix(new StringEventKey("EURUSD")), is("EURUSD"));
+        assertThat(new LatencyMonitor(2).getPrefix(new StringEventKey("FX.SPOT.EURUSD")), is("FX.SPOT"));
+        assertThat(new LatencyMonitor(2).getPrefix(new StringEventKey("FX.SPOT")), is("FX.SPOT"));
+    }
+
+    @Test
+    public void testChannelManagerStages() throws Exception {
+        LatencyMonitor monitor = new LatencyMonitor();
+        SimpleChannelManager manager = new SimpleChannelManager(new SimpleEventChannel());
+        manager.setLatencyMonitor(monitor);
+
+        final CountDownLatch latch = new CountDownLatch(100);
+        InstrumentedListener listener = new InstrumentedListener(new Listener() {
+            public void consume(EventKey eventKey, Object event) throws Exception {
+                latch.countDown();
+            }
+        }, "counting", monitor);
+        manager.registerListener(new StringEventKey("FX" + EventKey.stringDelimiter + EventKey.wildChar), listener);
+        Thread.sleep(50);
+
+        FXQuotePool pool = new FXQuotePool(128);
+        EventKey eurusd = new StringEventKey("FX.EURUSD");
+        for (int i = 0; i < 100; i++) {
+            // quoted a millisecond ago
+            long time = monitor.currentTimeNanos() - TimeUnit.MILLISECONDS.toNanos(1);
+            manager.consume(eurusd, pool.acquire().set(1, 1.1, 1.2, 1, 1, time));
+        }
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        manager.stop();
+
+        for (LatencyMonitor.Stage stage : LatencyMonitor.Stage.values()) {
+            if (stage == LatencyMonitor.Stage.RECEIVE) {
+                assertThat(monitor.getSnapshot(stage, "FX").getCount(), is(0L));
+                continue;
+            }
+            LatencySnapshot snapshot = monitor.getSnapshot(stage, "FX");
+            assertThat(snapshot.getCount(), is(100L));
+            assertTrue(stage + " " + snapshot, snapshot.getP50() >= TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        assertThat(monitor.getListenerSnapshots().get("counting").getCount(), is(100L));
+        assertThat(pool.getAvailable(), is(128));
+    }
+
+    private static void assertWithin(long actual, long expected) {
+        assertTrue("Expected about " + expected + " but was " + actual, Math.abs(actual - expected) <= expected / 32);
+    }
+}
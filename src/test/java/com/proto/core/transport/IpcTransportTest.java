@@ -0,0 +1,154 @@
+package com.proto.core.transport;
+
+import com.proto.core.data.BinaryMarketDataTranslator;
+import com.proto.core.data.FXQuote;
+import com.proto.core.data.FXQuotePool;
+import com.proto.core.event.BoundedEventQueue;
+import com.proto.core.event.EventKey;
+import com.proto.core.event.Listener;
+import com.proto.core.event.Sender;
+import com.proto.core.event.StringEventKey;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link IpcSender} and {@link IpcReceiver} classes
+ *
+ * @author wfrancis
+ */
+public class IpcTransportTest {
+
+    private static final int COUNT = 10000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final FXQuotePool pool = new FXQuotePool(COUNT);
+
+    private final EventKey key = new StringEventKey("FX.EURUSD");
+
+    private IpcSender sender;
+
+    private IpcReceiver first;
+
+    private IpcReceiver second;
+
+    @After
+    public void tearDown() throws Exception {
+        if (first != null) {
+            first.stop();
+        }
+        if (second != null) {
+            second.stop();
+        }
+        sender.stop();
+    }
+
+    @Test
+    public void testManyReaders() throws Exception {
+        File file = folder.newFile("quotes.ring");
+        // a ring of a few thousand quotes wraps around
+        sender = new IpcSender(new BinaryMarketDataTranslator(), file, 1 << 19, Sender.DEFAULT_CAPACITY,
+                BoundedEventQueue.OverflowPolicy.BLOCK, Sender.DEFAULT_BATCH_SIZE, 0, TimeUnit.MILLISECONDS);
+        sender.start();
+
+        QuoteListener firstListener = new QuoteListener();
+        QuoteListener secondListener = new QuoteListener();
+        first = new IpcReceiver(new BinaryMarketDataTranslator(), file);
+        first.setListener(firstListener);
+        first.start();
+        second = new IpcReceiver(new BinaryMarketDataTranslator(), file);
+        second.setListener(secondListener);
+        second.start();
+
+        for (int i = 0; i < COUNT; i++) {
+            sender.consume(key, pool.acquire().set(1, 1.0, 1.0, 1, 1, i));
+            if (i % 100 == 0) {
+                // give the readers a chance to keep up with the ring
+                Thread.sleep(1);
+            }
+        }
+
+        assertTrue(firstListener.latch.await(10, TimeUnit.SECONDS));
+        assertTrue(secondListener.latch.await(10, TimeUnit.SECONDS));
+        assertTrue(firstListener.inOrder);
+        assertTrue(secondListener.inOrder);
+        assertThat(first.getLapCount(), is(0L));
+        assertThat(first.getPosition(), is(sender.getPosition()));
+    }
+
+    @Test(expected = IOException.class)
+    public void testSubjectTooLongRejected() throws Exception {
+        sender = new IpcSender(new BinaryMarketDataTranslator(), folder.newFile("quotes.ring"), 1 << 19,
+                Sender.DEFAULT_CAPACITY, BoundedEventQueue.OverflowPolicy.BLOCK, Sender.DEFAULT_BATCH_SIZE, 0,
+                TimeUnit.MILLISECONDS);
+        sender.start();
+
+        // the frame fits in the ring, but its subject length does not fit in the unsigned short of the header
+        char[] subject = new char[Frames.MAX_SUBJECT_LENGTH + 1];
+        Arrays.fill(subject, 'A');
+        sender.nativeConsumeBatch(Collections.singletonList(new String(subject)),
+                Collections.singletonList(ByteBuffer.allocate(8)));
+    }
+
+    @Test
+    public void testLapped() throws Exception {
+        File file = folder.newFile("quotes.ring");
+        sender = new IpcSender(new BinaryMarketDataTranslator(), file, 1 << 12, Sender.DEFAULT_CAPACITY,
+                BoundedEventQueue.OverflowPolicy.BLOCK, Sender.DEFAULT_BATCH_SIZE, 0, TimeUnit.MILLISECONDS);
+        sender.start();
+        IpcReceiver receiver = new IpcReceiver(new BinaryMarketDataTranslator(), file);
+        receiver.open();
+
+        for (int i = 0; i < 1000; i++) {
+            sender.consume(key, pool.acquire().set(1, 1.0, 1.0, 1, 1, i));
+        }
+        awaitSent(1000);
+
+        assertThat(receiver.poll(), is(0));
+        assertThat(receiver.getLapCount(), is(1L));
+        assertThat(receiver.getPosition(), is(sender.getPosition()));
+
+        sender.consume(key, pool.acquire().set(1, 1.0, 1.0, 1, 1, 1000));
+        awaitSent(1001);
+        assertThat(receiver.poll(), is(1));
+        receiver.shutdown();
+    }
+
+    private void awaitSent(long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sender.getSentCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertThat(sender.getSentCount(), is(count));
+    }
+
+    private static class QuoteListener implements Listener {
+
+        final CountDownLatch latch = new CountDownLatch(COUNT);
+
+        volatile boolean inOrder = true;
+
+        private long last = -1;
+
+        public void consume(EventKey eventKey, Object event) {
+            FXQuote quote = (FXQuote) event;
+            inOrder &= quote.getTimeNanos() == last + 1 && eventKey.toString().equals("FX.EURUSD");
+            last = quote.getTimeNanos();
+            latch.countDown();
+        }
+    }
+}
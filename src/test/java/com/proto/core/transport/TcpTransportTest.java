@@ -0,0 +1,204 @@
+package com.proto.core.transport;
+
+import com.proto.core.data.BinaryMarketDataTranslator;
+import com.proto.core.data.FXQuote;
+import com.proto.core.data.FXQuotePool;
+import com.proto.core.event.BoundedEventQueue;
+import com.proto.core.event.CachingTranslator;
+import com.proto.core.event.EventKey;
+import com.proto.core.event.EventKeyRegistry;
+import com.proto.core.event.Listener;
+import com.proto.core.event.StringEventKey;
+import org.junit.After;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link TcpSender} and {@link TcpReceiver} classes
+ *
+ * @author wfrancis
+ */
+public class TcpTransportTest {
+
+    private static final int COUNT = 10000;
+
+    private final List<TcpReceiver> receivers = new ArrayList<TcpReceiver>();
+
+    private TcpSender sender;
+
+    @After
+    public void tearDown() throws Exception {
+        for (TcpReceiver receiver : receivers) {
+            receiver.stop();
+        }
+        if (sender != null) {
+            sender.stop();
+        }
+    }
+
+    @Test
+    public void testFanOut() throws Exception {
+        sender = new TcpSender(new BinaryMarketDataTranslator(), new InetSocketAddress("127.0.0.1", 0));
+        sender.start();
+
+        InetSocketAddress address = new InetSocketAddress("127.0.0.1", sender.getLocalPort());
+        QuoteListener first = startReceiver(address);
+        QuoteListener second = startReceiver(address);
+        awaitConnections(2);
+
+        FXQuotePool pool = new FXQuotePool(COUNT);
+        EventKey[] keys = {new StringEventKey("FX.EURUSD"), new StringEventKey("FX.USDJPY")};
+        for (int i = 0; i < COUNT; i++) {
+            sender.consume(keys[i % 2], pool.acquire().set(i % 2, 1.0, 1.0, 1, 1, i));
+        }
+
+        assertTrue(first.latch.await(10, TimeUnit.SECONDS));
+        assertTrue(second.latch.await(10, TimeUnit.SECONDS));
+        assertTrue(first.inOrder);
+        assertTrue(second.inOrder);
+        assertThat(receivers.get(0).getReceivedCount(), is((long) COUNT));
+        assertThat(sender.getOverflowCount(), is(0L));
+    }
+
+    @Test
+    public void testParallelDecode() throws Exception {
+        sender = new TcpSender(new BinaryMarketDataTranslator(), new InetSocketAddress("127.0.0.1", 0));
+        sender.start();
+
+        TcpReceiver receiver = new TcpReceiver(new BinaryMarketDataTranslator(),
+                new InetSocketAddress("127.0.0.1", sender.getLocalPort()), 4, TcpReceiver.DEFAULT_BUFFER_SIZE,
+                TcpReceiver.DEFAULT_RECONNECT_MILLIS, TimeUnit.MILLISECONDS);
+        QuoteListener listener = new QuoteListener();
+        receiver.setListener(listener);
+        receivers.add(receiver);
+        receiver.start();
+        awaitConnections(1);
+
+        FXQuotePool pool = new FXQuotePool(COUNT);
+        EventKey[] keys = {new StringEventKey("FX.EURUSD"), new StringEventKey("FX.USDJPY")};
+        for (int i = 0; i < COUNT; i++) {
+            sender.consume(keys[i % 2], pool.acquire().set(i % 2, 1.0, 1.0, 1, 1, i));
+        }
+
+        // each decoded quote keeps its values while it waits in the reorder window
+        assertTrue(listener.latch.await(10, TimeUnit.SECONDS));
+        assertTrue(listener.inOrder);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testViewsRejectedWithDecodeThreads() {
+        // the guarantees of the translator are seen through any decorator
+        new TcpReceiver(new CachingTranslator<ByteBuffer>(BinaryMarketDataTranslator.decodingViews(new EventKeyRegistry(), 1)),
+                new InetSocketAddress("127.0.0.1", 0), 2, TcpReceiver.DEFAULT_BUFFER_SIZE,
+                TcpReceiver.DEFAULT_RECONNECT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBatchLargerThanTranslatorBuffersRejected() {
+        new TcpSender(new CachingTranslator<ByteBuffer>(new BinaryMarketDataTranslator(null, new EventKeyRegistry(), 16)),
+                new InetSocketAddress("127.0.0.1", 0), TcpSender.DEFAULT_CONNECTION_BUFFER_SIZE, TcpSender.DEFAULT_CAPACITY,
+                BoundedEventQueue.OverflowPolicy.BLOCK, 17, 0, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void testReconnect() throws Exception {
+        sender = new TcpSender(new BinaryMarketDataTranslator(), new InetSocketAddress("127.0.0.1", 0));
+        sender.start();
+        int port = sender.getLocalPort();
+        TcpReceiver receiver = new TcpReceiver(new BinaryMarketDataTranslator(), new InetSocketAddress("127.0.0.1", port),
+                0, TcpReceiver.DEFAULT_BUFFER_SIZE, 50, TimeUnit.MILLISECONDS);
+        receivers.add(receiver);
+        receiver.start();
+        awaitConnections(1);
+
+        sender.stop();
+        sender = new TcpSender(new BinaryMarketDataTranslator(), new InetSocketAddress("127.0.0.1", port));
+        sender.start();
+        awaitConnections(1);
+        awaitConnectCount(receiver, 2);
+    }
+
+    @Test
+    public void testReconnectOnInvalidSubjectLength() throws Exception {
+        ServerSocket server = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+        try {
+            TcpReceiver receiver = new TcpReceiver(new BinaryMarketDataTranslator(),
+                    new InetSocketAddress("127.0.0.1", server.getLocalPort()), 0, TcpReceiver.DEFAULT_BUFFER_SIZE,
+                    50, TimeUnit.MILLISECONDS);
+            receivers.add(receiver);
+            receiver.start();
+
+            // a frame of 6 bytes announcing a subject of 100 bytes
+            Socket first = server.accept();
+            ByteBuffer frame = ByteBuffer.allocate(10).order(ByteOrder.LITTLE_ENDIAN);
+            frame.putInt(6).putShort((short) 100).putInt(0);
+            first.getOutputStream().write(frame.array());
+            first.getOutputStream().flush();
+
+            // the receiver drops the corrupt stream and connects again
+            server.setSoTimeout(5000);
+            Socket second = server.accept();
+            awaitConnectCount(receiver, 2);
+            assertThat(receiver.getReceivedCount(), is(0L));
+            first.close();
+            second.close();
+        } finally {
+            server.close();
+        }
+    }
+
+    private QuoteListener startReceiver(InetSocketAddress address) throws Exception {
+        TcpReceiver receiver = new TcpReceiver(new BinaryMarketDataTranslator(), address);
+        QuoteListener listener = new QuoteListener();
+        receiver.setListener(listener);
+        receivers.add(receiver);
+        receiver.start();
+        return listener;
+    }
+
+    private void awaitConnections(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (sender.getConnectionCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(sender.getConnectionCount(), is(count));
+    }
+
+    private static void awaitConnectCount(TcpReceiver receiver, long count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (receiver.getConnectCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(receiver.getConnectCount(), is(count));
+    }
+
+    private static class QuoteListener implements Listener {
+
+        final CountDownLatch latch = new CountDownLatch(COUNT);
+
+        volatile boolean inOrder = true;
+
+        private long last = -1;
+
+        public void consume(EventKey eventKey, Object event) {
+            FXQuote quote = (FXQuote) event;
+            inOrder &= quote.getTimeNanos() == last + 1
+                    && eventKey.toString().equals(quote.getInstrumentId() == 0 ? "FX.EURUSD" : "FX.USDJPY");
+            last = quote.getTimeNanos();
+            latch.countDown();
+        }
+    }
+}
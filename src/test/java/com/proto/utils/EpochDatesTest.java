@@ -0,0 +1,104 @@
+package com.proto.utils;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link EpochDates} class
+ *
+ * @author wfrancis
+ */
+public class EpochDatesTest {
+
+    private static final String[] ZONES = {"UTC", "America/New_York", "Europe/London", "Asia/Kolkata", "Australia/Sydney"};
+
+    @Test
+    public void testMatchesCalendar() throws Exception {
+        Random random = new Random(42);
+        for (String zone : ZONES) {
+            TimeZone timeZone = TimeZone.getTimeZone(zone);
+            EpochDates dates = new EpochDates(timeZone);
+            // 2000 to 2030, so every daylight saving transition of the period is crossed
+            long from = TimeUnit.DAYS.toMillis(10957);
+            for (int i = 0; i < 20000; i++) {
+                long millis = from + (long) (random.nextDouble() * TimeUnit.DAYS.toMillis(365 * 30));
+                Calendar calendar = new GregorianCalendar(timeZone);
+                calendar.setTimeInMillis(millis);
+                calendar.set(Calendar.HOUR_OF_DAY, 0);
+                calendar.set(Calendar.MINUTE, 0);
+                calendar.set(Calendar.SECOND, 0);
+                calendar.set(Calendar.MILLISECOND, 0);
+                assertThat(zone + " " + millis, dates.getDayAtMidnight(millis), is(calendar.getTimeInMillis()));
+
+                calendar.set(Calendar.HOUR_OF_DAY, 9);
+                calendar.set(Calendar.MINUTE, 30);
+                assertThat(zone + " " + millis, dates.getDayAt(millis, 9, 30), is(calendar.getTimeInMillis()));
+            }
+        }
+    }
+
+    @Test
+    public void testDaylightSavingDay() throws Exception {
+        EpochDates dates = new EpochDates(TimeZone.getTimeZone("America/New_York"));
+        long midnight = dates.parseDate("20260308");
+        // 23 hours from midnight to midnight when clocks spring forward
+        assertThat(dates.getDayAtMidnight(midnight + TimeUnit.HOURS.toMillis(23) - 1), is(midnight));
+        assertThat(dates.getDayAtMidnight(midnight + TimeUnit.HOURS.toMillis(23)), is(dates.parseDate("20260309")));
+        assertThat(dates.getDayAt(midnight, 12, 0) - midnight, is(TimeUnit.HOURS.toMillis(11)));
+        assertThat(dates.getMillisFromMidnight(midnight + 5), is(5L));
+    }
+
+    @Test
+    public void testNanos() throws Exception {
+        EpochDates dates = new EpochDates(TimeZone.getTimeZone("UTC"));
+        long nanos = TimeUnit.DAYS.toNanos(20000) + TimeUnit.HOURS.toNanos(13) + 123456789L;
+        assertThat(dates.getDayAtMidnightNanos(nanos), is(TimeUnit.DAYS.toNanos(20000)));
+        assertThat(dates.getNanosFromMidnight(nanos), is(TimeUnit.HOURS.toNanos(13) + 123456789L));
+    }
+
+    @Test
+    public void testParseDate() throws Exception {
+        EpochDates dates = new EpochDates(TimeZone.getTimeZone("UTC"));
+        assertThat(dates.parseDate("19700101"), is(0L));
+        assertThat(dates.parseDate("20000229"), is(TimeUnit.DAYS.toMillis(11016)));
+        assertThat(EpochDates.getEpochDay(1969, 12, 31), is(-1L));
+        assertThat(EpochDates.getEpochDay(2026, 10, 16), is(20742L));
+
+        assertInvalidDate(dates, "20010229");
+        assertInvalidDate(dates, "20011301");
+        assertInvalidDate(dates, "2001-1-1");
+    }
+
+    @Test
+    public void testParseTimeOfDay() throws Exception {
+        assertThat(EpochDates.parseTimeOfDay("09:30:15"), is(TimeUnit.HOURS.toMillis(9) + TimeUnit.MINUTES.toMillis(30) + 15000));
+        assertThat(EpochDates.parseTimeOfDay("9:05:00"), is(TimeUnit.HOURS.toMillis(9) + TimeUnit.MINUTES.toMillis(5)));
+        assertThat(EpochDates.parseTimeOfDay("23:59:59"), is(TimeUnit.DAYS.toMillis(1) - 1000));
+
+        for (String invalid : new String[]{"24:00:00", "12:60:00", "12:00", "12:00:00:00", "ab:cd:ef", ":00:00", "123:00:00"}) {
+            try {
+                EpochDates.parseTimeOfDay(invalid);
+                fail("Parsed " + invalid);
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    private static void assertInvalidDate(EpochDates dates, String date) {
+        try {
+            dates.parseDate(date);
+            fail("Parsed " + date);
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+}
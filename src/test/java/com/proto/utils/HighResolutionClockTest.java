@@ -0,0 +1,73 @@
+package com.proto.utils;
+
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link HighResolutionClock} class
+ *
+ * @author wfrancis
+ */
+public class HighResolutionClockTest {
+
+    private static final long TOLERANCE_MILLIS = 50;
+
+    @Test
+    public void testRealTime() throws Exception {
+        HighResolutionClock clock = new HighResolutionClock();
+        assertNear(System.currentTimeMillis(), clock.currentTimeMillis());
+        assertNear(System.currentTimeMillis(), clock.currentTime().getTime());
+
+        long first = clock.currentTimeNanos();
+        long second = clock.currentTimeNanos();
+        assertTrue(second >= first);
+        assertThat(clock.currentTimeMillis(), is(TimeUnit.NANOSECONDS.toMillis(clock.currentTimeNanos())));
+    }
+
+    @Test
+    public void testRealTimeOnSimulatedDay() throws Exception {
+        Date simulated = Dates.getDayAt(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(3)), 0, 0);
+        HighResolutionClock clock = new HighResolutionClock(true, simulated);
+
+        long now = System.currentTimeMillis();
+        long expected = simulated.getTime() + now - Dates.getDayAtMidnight(now).getTime();
+        assertNear(expected, clock.currentTimeMillis());
+    }
+
+    @Test
+    public void testOffset() throws Exception {
+        Date start = new Date(TimeUnit.DAYS.toMillis(1000));
+        HighResolutionClock clock = new HighResolutionClock(true, true, start);
+        Thread.sleep(20);
+
+        // starts on the first read
+        assertNear(start.getTime(), clock.currentTimeMillis());
+        Thread.sleep(20);
+        clock.calibrate();
+        long elapsed = clock.currentTimeMillis() - start.getTime();
+        assertTrue("elapsed " + elapsed, elapsed >= 20 && elapsed < 20 + TOLERANCE_MILLIS);
+    }
+
+    @Test
+    public void testSimulated() throws Exception {
+        Date start = new Date(TimeUnit.DAYS.toMillis(1000));
+        HighResolutionClock clock = new HighResolutionClock(false, start);
+        assertSame(start, clock.currentTime());
+        assertThat(clock.currentTimeNanos(), is(TimeUnit.MILLISECONDS.toNanos(start.getTime())));
+
+        clock.tick();
+        clock.tick(500, TimeUnit.MICROSECONDS);
+        assertThat(clock.currentTimeNanos(), is(TimeUnit.MILLISECONDS.toNanos(start.getTime()) + 1500000));
+        assertThat(clock.currentTimeMillis(), is(start.getTime() + 1));
+        assertThat(clock.currentTime().getTime(), is(start.getTime() + 1));
+    }
+
+    private static void assertNear(long expected, long actual) {
+        assertTrue("expected " + expected + " but was " + actual, Math.abs(expected - actual) < TOLERANCE_MILLIS);
+    }
+}